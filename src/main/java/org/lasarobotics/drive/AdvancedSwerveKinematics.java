@@ -4,24 +4,19 @@
 
 package org.lasarobotics.drive;
 
-import static edu.wpi.first.math.Nat.N1;
-import static edu.wpi.first.math.Nat.N2;
-import static edu.wpi.first.math.Nat.N3;
-import static edu.wpi.first.math.Nat.N4;
-
 import org.lasarobotics.utils.GlobalConstants;
 
-import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import edu.wpi.first.math.numbers.N1;
-import edu.wpi.first.math.numbers.N2;
-import edu.wpi.first.math.numbers.N3;
-import edu.wpi.first.math.numbers.N4;
+import edu.wpi.first.units.Distance;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Units;
+import edu.wpi.first.units.Velocity;
 
 
 /**
@@ -43,8 +38,43 @@ public class AdvancedSwerveKinematics {
     FIELD_CENTRIC;
   }
 
+  /** Desaturation policy, for when requested speed exceeds what a module can achieve */
+  public enum DesaturationPolicy {
+    /**
+     * Do not limit module speeds
+     */
+    NONE,
+    /**
+     * Scale translation and rotation equally, preserving path curvature
+     */
+    UNIFORM,
+    /**
+     * Give up rotation first, only scaling translation if it alone exceeds module limits
+     */
+    TRANSLATION_PRIORITY,
+    /**
+     * Give up translation first, only scaling rotation if it alone exceeds module limits
+     */
+    ROTATION_PRIORITY;
+  }
+
   private static final double EPS = 1E-9;
   private Translation2d[] m_moduleLocations;
+  private double[] m_moduleRadii;
+  private double[] m_moduleAngles;
+  private double[] m_moduleSpeeds;
+  private double[] m_moduleHeadings;
+  private double[] m_moduleTurnSpeeds;
+  private double[] m_forwardX;
+  private double[] m_forwardY;
+  private double[] m_forwardOmega;
+  private double[] m_moduleComponents;
+  private double[] m_chassisComponents;
+  private double[] m_moduleX;
+  private double[] m_moduleY;
+  private double[] m_maxModuleSpeeds;
+  private double[] m_desaturationScales;
+  private DesaturationPolicy m_desaturationPolicy;
 
   /**
     * Create a SecondOrderSwerveKinematics object
@@ -56,6 +86,207 @@ public class AdvancedSwerveKinematics {
     if (moduleLocations.length < 2) throw new IllegalArgumentException("A swerve drive requires at least two modules");
 
     m_moduleLocations = moduleLocations;
+    m_moduleRadii = new double[m_moduleLocations.length];
+    m_moduleAngles = new double[m_moduleLocations.length];
+    m_moduleSpeeds = new double[m_moduleLocations.length];
+    m_moduleHeadings = new double[m_moduleLocations.length];
+    m_moduleTurnSpeeds = new double[m_moduleLocations.length];
+
+    // Module locations are fixed, precompute polar coordinates
+    for (int i = 0; i < m_moduleLocations.length; i++) {
+      m_moduleRadii[i] = m_moduleLocations[i].getNorm();
+      m_moduleAngles[i] = Math.atan2(m_moduleLocations[i].getY(), m_moduleLocations[i].getX());
+    }
+
+    m_forwardX = new double[m_moduleLocations.length * 2];
+    m_forwardY = new double[m_moduleLocations.length * 2];
+    m_forwardOmega = new double[m_moduleLocations.length * 2];
+    m_moduleComponents = new double[m_moduleLocations.length * 2];
+    m_chassisComponents = new double[3];
+    computeForwardKinematics();
+
+    m_moduleX = new double[m_moduleLocations.length];
+    m_moduleY = new double[m_moduleLocations.length];
+    m_maxModuleSpeeds = new double[m_moduleLocations.length];
+    m_desaturationScales = new double[2];
+    m_desaturationPolicy = DesaturationPolicy.NONE;
+    for (int i = 0; i < m_maxModuleSpeeds.length; i++) m_maxModuleSpeeds[i] = Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Set how module speeds are limited when requested speed is too high
+   * <p>
+   * Applied by every conversion to module states. Desaturation is disabled by default.
+   * @param policy Desaturation policy
+   * @param maxModuleSpeeds Maximum speed of each module in meters per second, in the same order as module locations
+   * @throws IllegalArgumentException If number of speeds does not match number of modules
+   */
+  public void setDesaturation(DesaturationPolicy policy, double... maxModuleSpeeds) {
+    if (maxModuleSpeeds.length != m_moduleLocations.length)
+      throw new IllegalArgumentException("Maximum speed must be given for each module");
+
+    System.arraycopy(maxModuleSpeeds, 0, m_maxModuleSpeeds, 0, m_maxModuleSpeeds.length);
+    m_desaturationPolicy = policy;
+  }
+
+  /**
+   * Set how module speeds are limited when requested speed is too high
+   * <p>
+   * Applied by every conversion to module states. Desaturation is disabled by default.
+   * @param policy Desaturation policy
+   * @param maxModuleSpeed Maximum speed of all modules
+   */
+  public void setDesaturation(DesaturationPolicy policy, Measure<Velocity<Distance>> maxModuleSpeed) {
+    for (int i = 0; i < m_maxModuleSpeeds.length; i++) m_maxModuleSpeeds[i] = maxModuleSpeed.in(Units.MetersPerSecond);
+    m_desaturationPolicy = policy;
+  }
+
+  /**
+   * Get desaturation policy
+   * @return Current desaturation policy
+   */
+  public DesaturationPolicy getDesaturationPolicy() {
+    return m_desaturationPolicy;
+  }
+
+  /**
+   * Get largest scale of b that can be added to a without exceeding max speed
+   * @param ax X component of fixed velocity
+   * @param ay Y component of fixed velocity
+   * @param bx X component of scaled velocity
+   * @param by Y component of scaled velocity
+   * @param maxSpeed Maximum speed
+   * @return Largest scale, infinite if b is zero, zero if a alone exceeds max speed
+   */
+  private static double getMaxScale(double ax, double ay, double bx, double by, double maxSpeed) {
+    double bb = bx * bx + by * by;
+    if (bb < EPS) return Double.POSITIVE_INFINITY;
+
+    // Larger root of |a + sb|^2 = maxSpeed^2
+    double ab = ax * bx + ay * by;
+    double discriminant = ab * ab - bb * (ax * ax + ay * ay - maxSpeed * maxSpeed);
+    if (discriminant < 0.0) return 0.0;
+
+    return Math.max((-ab + Math.sqrt(discriminant)) / bb, 0.0);
+  }
+
+  /**
+   * Get scale of chassis speed that keeps every module within its max speed according to desaturation policy
+   * <p>
+   * Module velocity is translation plus rotation scaled by the returned scales, module coordinates must be in
+   * m_moduleX and m_moduleY.
+   * @param vx X speed in meters per second
+   * @param vy Y speed in meters per second
+   * @param omega Rotation speed in radians per second
+   * @param scales Array to write translation and rotation scale into
+   */
+  private void desaturate(double vx, double vy, double omega, double[] scales) {
+    double translationScale = 1.0, rotationScale = 1.0;
+
+    switch (m_desaturationPolicy) {
+      case UNIFORM:
+        for (int i = 0; i < m_moduleX.length; i++)
+          translationScale = Math.min(translationScale, getMaxScale(0.0, 0.0, vx - m_moduleY[i] * omega, vy + m_moduleX[i] * omega, m_maxModuleSpeeds[i]));
+        rotationScale = translationScale;
+        break;
+      case TRANSLATION_PRIORITY:
+        for (int i = 0; i < m_moduleX.length; i++)
+          translationScale = Math.min(translationScale, getMaxScale(0.0, 0.0, vx, vy, m_maxModuleSpeeds[i]));
+        // Rotation only fits if translation does
+        if (translationScale < 1.0) rotationScale = 0.0;
+        else {
+          for (int i = 0; i < m_moduleX.length; i++)
+            rotationScale = Math.min(rotationScale, getMaxScale(vx, vy, -m_moduleY[i] * omega, +m_moduleX[i] * omega, m_maxModuleSpeeds[i]));
+        }
+        break;
+      case ROTATION_PRIORITY:
+        for (int i = 0; i < m_moduleX.length; i++)
+          rotationScale = Math.min(rotationScale, getMaxScale(0.0, 0.0, -m_moduleY[i] * omega, +m_moduleX[i] * omega, m_maxModuleSpeeds[i]));
+        // Translation only fits if rotation does
+        if (rotationScale < 1.0) translationScale = 0.0;
+        else {
+          for (int i = 0; i < m_moduleX.length; i++)
+            translationScale = Math.min(translationScale, getMaxScale(-m_moduleY[i] * omega, +m_moduleX[i] * omega, vx, vy, m_maxModuleSpeeds[i]));
+        }
+        break;
+      default:
+        break;
+    }
+
+    scales[0] = translationScale;
+    scales[1] = rotationScale;
+  }
+
+  /**
+   * Precompute least squares pseudo-inverse of inverse kinematics
+   * <p>
+   * Each module contributes rows [1, 0, -y] and [0, 1, +x] to the inverse kinematics matrix A, so the normal matrix
+   * A^T A only depends on sums of module coordinates and can be inverted directly.
+   */
+  private void computeForwardKinematics() {
+    double sumX = 0.0, sumY = 0.0, sumSquares = 0.0;
+    for (Translation2d location : m_moduleLocations) {
+      sumX += location.getX();
+      sumY += location.getY();
+      sumSquares += location.getX() * location.getX() + location.getY() * location.getY();
+    }
+
+    // Normal matrix [[n, 0, -sumY], [0, n, +sumX], [-sumY, +sumX, sumSquares]]
+    double n = m_moduleLocations.length;
+    double determinant = n * (n * sumSquares - sumX * sumX) - sumY * sumY * n;
+    if (Math.abs(determinant) < EPS) throw new IllegalArgumentException("Swerve module locations must not be collocated");
+
+    // Inverse of normal matrix by cofactors, symmetric
+    double inv00 = (n * sumSquares - sumX * sumX) / determinant;
+    double inv01 = (-sumY * sumX) / determinant;
+    double inv02 = (n * sumY) / determinant;
+    double inv11 = (n * sumSquares - sumY * sumY) / determinant;
+    double inv12 = (-n * sumX) / determinant;
+    double inv22 = (n * n) / determinant;
+
+    // Pseudo-inverse columns are the inverse normal matrix times the rows of A
+    for (int i = 0; i < m_moduleLocations.length; i++) {
+      double x = m_moduleLocations[i].getX();
+      double y = m_moduleLocations[i].getY();
+
+      m_forwardX[i * 2] = inv00 - inv02 * y;
+      m_forwardY[i * 2] = inv01 - inv12 * y;
+      m_forwardOmega[i * 2] = inv02 - inv22 * y;
+
+      m_forwardX[i * 2 + 1] = inv01 + inv02 * x;
+      m_forwardY[i * 2 + 1] = inv11 + inv12 * x;
+      m_forwardOmega[i * 2 + 1] = inv12 + inv22 * x;
+    }
+  }
+
+  /**
+   * Solve for chassis components from module components in least squares sense
+   * <p>
+   * Reads module X and Y components interleaved from m_moduleComponents
+   * @param chassisComponents Array to write X, Y, and rotation components into
+   * @return RMS residual of module components
+   */
+  private double solveForward(double[] chassisComponents) {
+    double x = 0.0, y = 0.0, omega = 0.0;
+    for (int i = 0; i < m_moduleComponents.length; i++) {
+      x += m_forwardX[i] * m_moduleComponents[i];
+      y += m_forwardY[i] * m_moduleComponents[i];
+      omega += m_forwardOmega[i] * m_moduleComponents[i];
+    }
+
+    // Compare module components implied by solution against measured
+    double squaredResidual = 0.0;
+    for (int i = 0; i < m_moduleLocations.length; i++) {
+      double residualX = x - omega * m_moduleLocations[i].getY() - m_moduleComponents[i * 2];
+      double residualY = y + omega * m_moduleLocations[i].getX() - m_moduleComponents[i * 2 + 1];
+      squaredResidual += residualX * residualX + residualY * residualY;
+    }
+
+    chassisComponents[0] = x;
+    chassisComponents[1] = y;
+    chassisComponents[2] = omega;
+
+    return Math.sqrt(squaredResidual / m_moduleComponents.length);
   }
 
   /**
@@ -121,6 +352,128 @@ public class AdvancedSwerveKinematics {
     return correctedSpeeds;
   }
 
+  /**
+   * Convert chassis speed to speeds, headings, and turn speeds of individual modules using second order kinematics
+   * <p>
+   * Does not allocate, output arrays must have one element per module. Module speeds are limited by the desaturation
+   * policy, if set. Turn speed is the rate at which each module heading changes relative to the robot while the requested speeds are
+   * held, which can be used as azimuth feedforward. It is zero for robot centric control, and for stopped modules.
+   * @param vx Desired X speed of the robot in meters per second
+   * @param vy Desired Y speed of the robot in meters per second
+   * @param omega Desired rotation speed of the robot in radians per second
+   * @param robotHeading Heading of the robot relative to the field in radians
+   * @param controlCentricity Control centricity to use (field or robot centric)
+   * @param moduleSpeeds Array to write speed of each module into, in meters per second
+   * @param moduleHeadings Array to write heading of each module into, in radians
+   * @param moduleTurnSpeeds Array to write turn speed of each module into, in radians per second
+   */
+  public void toSwerveModuleStates(double vx, double vy, double omega, double robotHeading,
+                                   ControlCentricity controlCentricity, double[] moduleSpeeds, double[] moduleHeadings,
+                                   double[] moduleTurnSpeeds) {
+    double headingOffset = robotHeading * controlCentricity.ordinal();
+
+    // Module location relative to the field for field centric if applicable
+    for (int i = 0; i < m_moduleRadii.length; i++) {
+      double moduleAngle = m_moduleAngles[i] + headingOffset;
+      m_moduleX[i] = m_moduleRadii[i] * Math.cos(moduleAngle);
+      m_moduleY[i] = m_moduleRadii[i] * Math.sin(moduleAngle);
+    }
+
+    // Limit requested speed so no module exceeds its max speed
+    if (m_desaturationPolicy != DesaturationPolicy.NONE) {
+      desaturate(vx, vy, omega, m_desaturationScales);
+      vx *= m_desaturationScales[0];
+      vy *= m_desaturationScales[0];
+      omega *= m_desaturationScales[1];
+    }
+
+    double omegaSquared = omega * omega;
+    for (int i = 0; i < m_moduleRadii.length; i++) {
+      double moduleX = m_moduleX[i];
+      double moduleY = m_moduleY[i];
+
+      // First order, module velocity is robot velocity plus omega x r
+      double moduleVx = vx - moduleY * omega;
+      double moduleVy = vy + moduleX * omega;
+      double moduleHeading = Math.atan2(moduleVy, moduleVx);
+      double moduleSpeed = Math.sqrt(moduleVx * moduleVx + moduleVy * moduleVy);
+
+      // Second order, centripetal acceleration of module rotated into direction of travel
+      double moduleAx = -moduleX * omegaSquared;
+      double moduleAy = -moduleY * omegaSquared;
+      double normalAcceleration = -Math.sin(moduleHeading) * moduleAx + Math.cos(moduleHeading) * moduleAy;
+
+      // Correct module heading for control centricity
+      moduleSpeeds[i] = moduleSpeed;
+      moduleHeadings[i] = moduleHeading - headingOffset;
+
+      // Heading of module velocity turns at normal acceleration over speed, minus rotation of the robot under it
+      moduleTurnSpeeds[i] = (moduleSpeed > EPS)
+        ? (normalAcceleration / moduleSpeed - omega) * controlCentricity.ordinal()
+        : 0.0;
+    }
+  }
+
+  /**
+   * Convert chassis speed to speeds and headings of individual modules using second order kinematics
+   * <p>
+   * Does not allocate, output arrays must have one element per module
+   * @param vx Desired X speed of the robot in meters per second
+   * @param vy Desired Y speed of the robot in meters per second
+   * @param omega Desired rotation speed of the robot in radians per second
+   * @param robotHeading Heading of the robot relative to the field in radians
+   * @param controlCentricity Control centricity to use (field or robot centric)
+   * @param moduleSpeeds Array to write speed of each module into, in meters per second
+   * @param moduleHeadings Array to write heading of each module into, in radians
+   */
+  public void toSwerveModuleStates(double vx, double vy, double omega, double robotHeading,
+                                   ControlCentricity controlCentricity, double[] moduleSpeeds, double[] moduleHeadings) {
+    toSwerveModuleStates(vx, vy, omega, robotHeading, controlCentricity, moduleSpeeds, moduleHeadings, m_moduleTurnSpeeds);
+  }
+
+  /**
+   * Convert chassis speed to states and turn speeds of individual modules using second order kinematics
+   * <p>
+   * Writes into existing module states, only allocating their angles
+   * @param desiredSpeed Desired translation and rotation speed of the robot
+   * @param robotHeading Heading of the robot relative to the field
+   * @param controlCentricity Control centricity to use (field or robot centric)
+   * @param moduleStates Array of module states to write into, one per module
+   * @param moduleTurnSpeeds Array to write turn speed of each module into, in radians per second
+   */
+  public void toSwerveModuleStates(ChassisSpeeds desiredSpeed, Rotation2d robotHeading, ControlCentricity controlCentricity,
+                                   SwerveModuleState[] moduleStates, double[] moduleTurnSpeeds) {
+    toSwerveModuleStates(
+      desiredSpeed.vxMetersPerSecond,
+      desiredSpeed.vyMetersPerSecond,
+      desiredSpeed.omegaRadiansPerSecond,
+      robotHeading.getRadians(),
+      controlCentricity,
+      m_moduleSpeeds,
+      m_moduleHeadings,
+      moduleTurnSpeeds
+    );
+
+    for (int i = 0; i < moduleStates.length; i++) {
+      moduleStates[i].speedMetersPerSecond = m_moduleSpeeds[i];
+      moduleStates[i].angle = Rotation2d.fromRadians(m_moduleHeadings[i]);
+    }
+  }
+
+  /**
+   * Convert chassis speed to states of individual modules using second order kinematics
+   * <p>
+   * Writes into existing module states, only allocating their angles
+   * @param desiredSpeed Desired translation and rotation speed of the robot
+   * @param robotHeading Heading of the robot relative to the field
+   * @param controlCentricity Control centricity to use (field or robot centric)
+   * @param moduleStates Array of module states to write into, one per module
+   */
+  public void toSwerveModuleStates(ChassisSpeeds desiredSpeed, Rotation2d robotHeading,
+                                   ControlCentricity controlCentricity, SwerveModuleState[] moduleStates) {
+    toSwerveModuleStates(desiredSpeed, robotHeading, controlCentricity, moduleStates, m_moduleTurnSpeeds);
+  }
+
   /**
     * Convert chassis speed to states of individual modules using second order kinematics
     *
@@ -130,62 +483,90 @@ public class AdvancedSwerveKinematics {
     * @return Array of the speed direction of the swerve modules
     */
   public SwerveModuleState[] toSwerveModuleStates(ChassisSpeeds desiredSpeed, Rotation2d robotHeading, ControlCentricity controlCentricity) {
-    Matrix<N3, N1> firstOrderInputMatrix = new Matrix<>(N3(),N1());
-    Matrix<N2, N3> firstOrderMatrix = new Matrix<>(N2(),N3());
-    Matrix<N4, N1> secondOrderInputMatrix = new Matrix<>(N4(),N1());
-    Matrix<N2, N4> secondOrderMatrix = new Matrix<>(N2(),N4());
-    Matrix<N2, N2> rotationMatrix = new Matrix<>(N2(),N2());
-
-    firstOrderInputMatrix.set(0, 0, desiredSpeed.vxMetersPerSecond);
-    firstOrderInputMatrix.set(1, 0, desiredSpeed.vyMetersPerSecond);
-    firstOrderInputMatrix.set(2, 0, desiredSpeed.omegaRadiansPerSecond);
+    SwerveModuleState[] swerveModuleStates = new SwerveModuleState[m_moduleLocations.length];
+    for (int i = 0; i < swerveModuleStates.length; i++) swerveModuleStates[i] = new SwerveModuleState();
 
-    secondOrderInputMatrix.set(2, 0, Math.pow(desiredSpeed.omegaRadiansPerSecond, 2));
+    toSwerveModuleStates(desiredSpeed, robotHeading, controlCentricity, swerveModuleStates);
 
-    firstOrderMatrix.set(0, 0, 1);
-    firstOrderMatrix.set(1, 1, 1);
+    return swerveModuleStates;
+  }
 
-    secondOrderMatrix.set(0, 0, 1);
-    secondOrderMatrix.set(1, 1, 1);
+  /**
+   * Convert speeds and headings of individual modules to robot relative chassis speed
+   * <p>
+   * Uses the least squares pseudo-inverse computed at construction, does not allocate.
+   * A large residual means modules disagree on robot motion, indicating wheel slip or a faulty module.
+   * @param moduleSpeeds Speed of each module in meters per second
+   * @param moduleHeadings Heading of each module relative to the robot in radians
+   * @param chassisSpeeds Array to write X speed, Y speed in meters per second and rotation speed in radians per second into
+   * @return RMS fit residual in meters per second
+   */
+  public double toChassisSpeeds(double[] moduleSpeeds, double[] moduleHeadings, double[] chassisSpeeds) {
+    for (int i = 0; i < m_moduleLocations.length; i++) {
+      m_moduleComponents[i * 2] = moduleSpeeds[i] * Math.cos(moduleHeadings[i]);
+      m_moduleComponents[i * 2 + 1] = moduleSpeeds[i] * Math.sin(moduleHeadings[i]);
+    }
 
-    SwerveModuleState[] swerveModuleStates = new SwerveModuleState[m_moduleLocations.length];
-    double[] moduleTurnSpeeds = new double[m_moduleLocations.length];
+    return solveForward(chassisSpeeds);
+  }
 
+  /**
+   * Convert states of individual modules to robot relative chassis speed
+   * <p>
+   * Uses the least squares pseudo-inverse computed at construction, does not allocate
+   * @param moduleStates Measured state of each module
+   * @param chassisSpeeds Chassis speeds to write into
+   * @return RMS fit residual in meters per second
+   */
+  public double toChassisSpeeds(SwerveModuleState[] moduleStates, ChassisSpeeds chassisSpeeds) {
     for (int i = 0; i < m_moduleLocations.length; i++) {
-      // Angle that the module location vector makes with respect to the robot
-      Rotation2d moduleAngle = new Rotation2d(Math.atan2(m_moduleLocations[i].getY(), m_moduleLocations[i].getX()));
-      // Angle that the module location vector makes with respect to the field for field centric if applicable
-      moduleAngle = Rotation2d.fromRadians(moduleAngle.getRadians() + robotHeading.getRadians() * controlCentricity.ordinal());
-      double moduleX = m_moduleLocations[i].getNorm() * Math.cos(moduleAngle.getRadians());
-      double moduleY = m_moduleLocations[i].getNorm() * Math.sin(moduleAngle.getRadians());
-      // -r_y
-      firstOrderMatrix.set(0, 2, -moduleY);
-      // +r_x
-      firstOrderMatrix.set(1, 2, +moduleX);
-
-      Matrix<N2, N1> firstOrderOutput = firstOrderMatrix.times(firstOrderInputMatrix);
-
-      double moduleHeading = Math.atan2(firstOrderOutput.get(1, 0), firstOrderOutput.get(0, 0));
-      double moduleSpeed = Math.sqrt(firstOrderOutput.elementPower(2).elementSum());
-
-      secondOrderMatrix.set(0, 2, -moduleX);
-      secondOrderMatrix.set(0, 3, -moduleY);
-      secondOrderMatrix.set(1, 2, -moduleY);
-      secondOrderMatrix.set(1, 3, +moduleX);
-
-      rotationMatrix.set(0, 0, +Math.cos(moduleHeading));
-      rotationMatrix.set(0, 1, +Math.sin(moduleHeading));
-      rotationMatrix.set(1, 0, -Math.sin(moduleHeading));
-      rotationMatrix.set(1, 1, +Math.cos(moduleHeading));
-
-      Matrix<N2,N1> secondOrderOutput = rotationMatrix.times(secondOrderMatrix.times(secondOrderInputMatrix));
+      m_moduleComponents[i * 2] = moduleStates[i].speedMetersPerSecond * moduleStates[i].angle.getCos();
+      m_moduleComponents[i * 2 + 1] = moduleStates[i].speedMetersPerSecond * moduleStates[i].angle.getSin();
+    }
 
-      // Correct module heading for control centricity
-      moduleHeading -= robotHeading.getRadians() * controlCentricity.ordinal();
-      swerveModuleStates[i] = new SwerveModuleState(moduleSpeed, Rotation2d.fromRadians(moduleHeading));
-      moduleTurnSpeeds[i] = secondOrderOutput.get(1, 0) / moduleSpeed - desiredSpeed.omegaRadiansPerSecond;
+    double residual = solveForward(m_chassisComponents);
+    chassisSpeeds.vxMetersPerSecond = m_chassisComponents[0];
+    chassisSpeeds.vyMetersPerSecond = m_chassisComponents[1];
+    chassisSpeeds.omegaRadiansPerSecond = m_chassisComponents[2];
+
+    return residual;
+  }
+
+  /**
+   * Convert distances driven and headings of individual modules to robot relative twist
+   * <p>
+   * Uses the least squares pseudo-inverse computed at construction, does not allocate
+   * @param moduleDistances Distance driven by each module since last update in meters
+   * @param moduleHeadings Heading of each module relative to the robot in radians
+   * @param twist Array to write X and Y displacement in meters and rotation in radians into
+   * @return RMS fit residual in meters
+   */
+  public double toTwist2d(double[] moduleDistances, double[] moduleHeadings, double[] twist) {
+    return toChassisSpeeds(moduleDistances, moduleHeadings, twist);
+  }
+
+  /**
+   * Convert change in positions of individual modules to robot relative twist
+   * <p>
+   * Uses the least squares pseudo-inverse computed at construction, does not allocate.
+   * Module headings are taken from the end positions.
+   * @param start Position of each module at last update
+   * @param end Current position of each module
+   * @param twist Twist to write into
+   * @return RMS fit residual in meters
+   */
+  public double toTwist2d(SwerveModulePosition[] start, SwerveModulePosition[] end, Twist2d twist) {
+    for (int i = 0; i < m_moduleLocations.length; i++) {
+      double distance = end[i].distanceMeters - start[i].distanceMeters;
+      m_moduleComponents[i * 2] = distance * end[i].angle.getCos();
+      m_moduleComponents[i * 2 + 1] = distance * end[i].angle.getSin();
     }
 
-    return swerveModuleStates;
+    double residual = solveForward(m_chassisComponents);
+    twist.dx = m_chassisComponents[0];
+    twist.dy = m_chassisComponents[1];
+    twist.dtheta = m_chassisComponents[2];
+
+    return residual;
   }
-}
\ No newline at end of file
+}
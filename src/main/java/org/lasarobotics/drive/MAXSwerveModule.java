@@ -13,6 +13,7 @@ import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
 
+import org.lasarobotics.hardware.LogKeys;
 import org.lasarobotics.hardware.revrobotics.Spark;
 import org.lasarobotics.hardware.revrobotics.Spark.MotorKind;
 import org.lasarobotics.hardware.revrobotics.SparkPIDConfig;
@@ -22,6 +23,7 @@ import org.littletonrobotics.junction.Logger;
 
 import com.revrobotics.CANSparkBase.ControlType;
 import com.revrobotics.CANSparkBase.IdleMode;
+import com.revrobotics.SparkPIDController;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -104,6 +106,7 @@ public class MAXSwerveModule implements AutoCloseable {
   private static final String ODOMETER_LOG_ENTRY = "/Odometer";
   private static final double DRIVE_WHEEL_DIAMETER_METERS = 0.0762; // 3" wheels
   private static final double DRIVETRAIN_EFFICIENCY = 0.90;
+  private static final String BURN_FLASH_ERROR_MESSAGE = "Failed to burn module settings to flash!";
   private static final double MAX_AUTO_LOCK_TIME = 10.0;
   private final double DRIVE_TICKS_PER_METER;
   private final double DRIVE_METERS_PER_TICK;
@@ -124,6 +127,8 @@ public class MAXSwerveModule implements AutoCloseable {
   private static final boolean DRIVE_ROTATE_SOFT_LIMITS = false;
   private static final boolean DRIVE_ROTATE_SENSOR_PHASE = true;
   private static final boolean DRIVE_ROTATE_INVERT_MOTOR = false;
+  private static final double DRIVE_ROTATE_GEAR_RATIO = 9424.0 / 203.0;
+  private static final double DRIVE_ROTATE_kV = DRIVE_ROTATE_GEAR_RATIO / MotorKind.NEO_550.motor.KvRadPerSecPerVolt;
 
   private Spark m_driveMotor;
   private Spark m_rotateMotor;
@@ -141,6 +146,7 @@ public class MAXSwerveModule implements AutoCloseable {
   private boolean m_autoLock;
   private double m_runningOdometer;
   private String m_odometerOutputPath;
+  private LogKeys m_logKeys;
 
   private TractionControlController m_tractionControlController;
   private Instant m_autoLockTimer;
@@ -183,6 +189,7 @@ public class MAXSwerveModule implements AutoCloseable {
     this.m_tractionControlController =  new TractionControlController(Units.MetersPerSecond.of(DRIVE_MAX_LINEAR_SPEED), maxSlippingTime, slipRatio);
     this.m_autoLockTimer = Instant.now();
     this.m_runningOdometer = 0.0;
+    this.m_logKeys = new LogKeys(m_driveMotor.getID().name, IS_SLIPPING_LOG_ENTRY, ODOMETER_LOG_ENTRY);
 
     // Set drive encoder conversion factor
     m_driveConversionFactor = DRIVE_WHEEL_DIAMETER_METERS * Math.PI / m_driveGearRatio.value;
@@ -194,6 +201,9 @@ public class MAXSwerveModule implements AutoCloseable {
     m_rotateMotor.setPositionConversionFactor(Spark.FeedbackSensor.THROUGH_BORE_ENCODER, m_rotateConversionFactor);
     m_rotateMotor.setVelocityConversionFactor(Spark.FeedbackSensor.THROUGH_BORE_ENCODER, m_rotateConversionFactor / 60);
 
+    // Module output shaft turns opposite to rotate motor, hence inverted sensor phase
+    m_rotateMotor.setSimulationSensorRatio(-DRIVE_ROTATE_GEAR_RATIO);
+
     // Enable PID wrapping
     m_rotateMotor.enablePIDWrapping(0.0, m_rotateConversionFactor);
 
@@ -260,8 +270,8 @@ public class MAXSwerveModule implements AutoCloseable {
     m_radius = m_moduleCoordinate.getNorm();
 
     // Make sure settings are burned to flash
-    m_driveMotor.burnFlash();
-    m_rotateMotor.burnFlash();
+    m_driveMotor.burnFlash().whenComplete((status, exception) -> m_driveMotor.checkParameterStatus(status, exception, BURN_FLASH_ERROR_MESSAGE));
+    m_rotateMotor.burnFlash().whenComplete((status, exception) -> m_rotateMotor.checkParameterStatus(status, exception, BURN_FLASH_ERROR_MESSAGE));
 
     // Read odometer file if exists
     m_odometerOutputPath = (m_driveMotor.getID().name + "-odometer.txt").replace('/', '-');
@@ -315,26 +325,31 @@ public class MAXSwerveModule implements AutoCloseable {
   public void periodic() {
     m_driveMotor.periodic();
     m_rotateMotor.periodic();
-    Logger.recordOutput(m_driveMotor.getID().name + IS_SLIPPING_LOG_ENTRY, isSlipping());
-    Logger.recordOutput(m_driveMotor.getID().name + ODOMETER_LOG_ENTRY, m_runningOdometer);
+    Logger.recordOutput(m_logKeys.get(IS_SLIPPING_LOG_ENTRY), isSlipping());
+    Logger.recordOutput(m_logKeys.get(ODOMETER_LOG_ENTRY), m_runningOdometer);
   }
 
   /**
    * Call this method periodically during simulation
+   * <p>
+   * Inputs of motors stepped by {@link org.lasarobotics.hardware.revrobotics.SparkSim} are left to the physics
+   * simulation, otherwise commanded values are reported
    */
   public void simulationPeriodic() {
-    m_driveMotor.getInputs().encoderPosition = m_simDrivePosition;
-    m_rotateMotor.getInputs().absoluteEncoderPosition = m_simRotatePosition;
+    if (!m_driveMotor.isSimulated()) m_driveMotor.getInputs().encoderPosition = m_simDrivePosition;
+    if (!m_rotateMotor.isSimulated()) m_rotateMotor.getInputs().absoluteEncoderPosition = m_simRotatePosition;
   }
 
   /**
-   * Set swerve module direction and speed
+   * Set swerve module direction and speed, with feedforward for module turn speed
    * @param state Desired swerve module state
+   * @param turnSpeed Desired module turn speed in radians per second, counterclockwise positive
    */
-  public void set(SwerveModuleState state) {
+  public void set(SwerveModuleState state, double turnSpeed) {
     // Auto lock modules if auto lock enabled, speed not requested, and time has elapsed
     if (m_autoLock && state.speedMetersPerSecond < EPSILON) {
       state.speedMetersPerSecond = 0.0;
+      turnSpeed = 0.0;
       // Time's up, lock now...
       if (Duration.between(m_autoLockTimer, Instant.now()).toMillis() > m_autoLockTime)
         state.angle = LOCK_POSITION.minus(m_location.offset);
@@ -355,8 +370,13 @@ public class MAXSwerveModule implements AutoCloseable {
     // REV encoder returns an angle in radians
     desiredState = SwerveModuleState.optimize(desiredState, Rotation2d.fromRadians(m_rotateMotor.getInputs().absoluteEncoderPosition));
 
-    // Set rotate motor position
-    m_rotateMotor.set(desiredState.angle.getRadians(), ControlType.kPosition);
+    // Set rotate motor position, turn speed is unaffected by optimization
+    m_rotateMotor.set(
+      desiredState.angle.getRadians(),
+      ControlType.kPosition,
+      turnSpeed * DRIVE_ROTATE_kV,
+      SparkPIDController.ArbFFUnits.kVoltage
+    );
 
     // Set drive motor speed
     m_driveMotor.set(desiredState.speedMetersPerSecond, ControlType.kVelocity);
@@ -373,12 +393,22 @@ public class MAXSwerveModule implements AutoCloseable {
   }
 
   /**
-   * Set swerve module direction and speed, automatically applying traction control
+   * Set swerve module direction and speed
+   * @param state Desired swerve module state
+   */
+  public void set(SwerveModuleState state) {
+    set(state, 0.0);
+  }
+
+  /**
+   * Set swerve module direction and speed, with feedforward for module turn speed, automatically applying traction control
    * @param state Desired swerve module state
+   * @param turnSpeed Desired module turn speed in radians per second, counterclockwise positive
    * @param inertialVelocity Current inertial velocity
    * @param rotateRate Desired robot rotate rate
    */
-  public void set(SwerveModuleState state, Measure<Velocity<Distance>> inertialVelocity, Measure<Velocity<Angle>> rotateRate) {
+  public void set(SwerveModuleState state, double turnSpeed,
+                  Measure<Velocity<Distance>> inertialVelocity, Measure<Velocity<Angle>> rotateRate) {
     // Apply traction control
     state.speedMetersPerSecond = m_tractionControlController.calculate(
       Units.MetersPerSecond.of(state.speedMetersPerSecond),
@@ -387,7 +417,17 @@ public class MAXSwerveModule implements AutoCloseable {
     ).in(Units.MetersPerSecond);
 
     // Set swerve module state
-    set(state);
+    set(state, turnSpeed);
+  }
+
+  /**
+   * Set swerve module direction and speed, automatically applying traction control
+   * @param state Desired swerve module state
+   * @param inertialVelocity Current inertial velocity
+   * @param rotateRate Desired robot rotate rate
+   */
+  public void set(SwerveModuleState state, Measure<Velocity<Distance>> inertialVelocity, Measure<Velocity<Angle>> rotateRate) {
+    set(state, 0.0, inertialVelocity, rotateRate);
   }
 
   /**
@@ -398,6 +438,15 @@ public class MAXSwerveModule implements AutoCloseable {
     set(states[m_location.index]);
   }
 
+  /**
+   * Set swerve module direction and speed, with feedforward for module turn speed
+   * @param states Array of states for all swerve modules
+   * @param turnSpeeds Array of turn speeds for all swerve modules in radians per second
+   */
+  public void set(SwerveModuleState[] states, double[] turnSpeeds) {
+    set(states[m_location.index], turnSpeeds[m_location.index]);
+  }
+
   /**
    * Set swerve module direction and speed, automatically applying traction control
    * @param states Array of states for all swerve modules
@@ -408,6 +457,18 @@ public class MAXSwerveModule implements AutoCloseable {
     set(states[m_location.index], inertialVelocity, rotateRate);
   }
 
+  /**
+   * Set swerve module direction and speed, with feedforward for module turn speed, automatically applying traction control
+   * @param states Array of states for all swerve modules
+   * @param turnSpeeds Array of turn speeds for all swerve modules in radians per second
+   * @param inertialVelocity Current inertial velocity
+   * @param rotateRate Current turn rate
+   */
+  public void set(SwerveModuleState[] states, double[] turnSpeeds,
+                  Measure<Velocity<Distance>> inertialVelocity, Measure<Velocity<Angle>> rotateRate) {
+    set(states[m_location.index], turnSpeeds[m_location.index], inertialVelocity, rotateRate);
+  }
+
   /**
    * Get velocity of drive wheel
    * @return velocity of drive wheel in m/s
@@ -438,6 +499,35 @@ public class MAXSwerveModule implements AutoCloseable {
     );
   }
 
+  /**
+   * Read drive distance directly from drive motor, bypassing cached inputs
+   * <p>
+   * Safe to call from an odometry sampling thread
+   * @return Drive distance in meters
+   */
+  public double sampleDrivePosition() {
+    return m_driveMotor.sampleEncoderPosition();
+  }
+
+  /**
+   * Read module angle directly from rotate motor, bypassing cached inputs
+   * <p>
+   * Safe to call from an odometry sampling thread
+   * @return Module angle in radians
+   */
+  public double sampleRotatePosition() {
+    return m_rotateMotor.sampleAbsoluteEncoderPosition() - m_location.offset.getRadians();
+  }
+
+  /**
+   * Match drive and rotate motor position status frames to odometry sampling period
+   * @param period Odometry sampling period
+   */
+  public void setOdometryPeriod(Measure<Time> period) {
+    m_driveMotor.setSensorStatusFramePeriod(period);
+    m_rotateMotor.setSensorStatusFramePeriod(period);
+  }
+
   /**
    * Get if drive wheel is slipping
    * @return True if wheel is slipping excessively
@@ -7,6 +7,7 @@ package org.lasarobotics.drive;
 import java.util.HashMap;
 
 import org.apache.commons.math3.analysis.polynomials.PolynomialSplineFunction;
+import org.lasarobotics.hardware.IMU;
 import org.lasarobotics.utils.GlobalConstants;
 import org.lasarobotics.utils.PIDConstants;
 
@@ -88,6 +89,17 @@ public class RotatePIDController extends PIDController {
     return super.calculate(currentAngle.in(Units.Degrees));
   }
 
+  /**
+   * Returns next output of RotatePIDController
+   * @param imu IMU to read current yaw angle and rate from
+   * @param rotateRequest rotate request [-1.0, +1.0]
+   *
+   * @return optimal turn output
+   */
+  public double calculate(IMU imu, double rotateRequest) {
+    return calculate(imu.getYawAngle(), imu.getYawRate(), rotateRequest);
+  }
+
   /**
    * Get if robot is rotating
    * @return true if rotating
@@ -87,6 +87,7 @@ public class SDSMK4SwerveModule implements AutoCloseable {
 
   private static final double DRIVE_WHEEL_DIAMETER_METERS = Units.Inches.of(3).in(Units.Meters); // 4" wheels
   private static final double DRIVETRAIN_EFFICIENCY = 0.90;
+  private static final String BURN_FLASH_ERROR_MESSAGE = "Failed to burn module settings to flash!";
   private static final double MAX_AUTO_LOCK_TIME = 10.0;
   private final double DRIVE_TICKS_PER_METER;
   private final double DRIVE_METERS_PER_TICK;
@@ -234,8 +235,8 @@ public class SDSMK4SwerveModule implements AutoCloseable {
     m_radius = m_moduleCoordinate.getNorm();
 
     // Make sure settings are burned to flash
-    m_driveMotor.burnFlash();
-    m_rotateMotor.burnFlash();
+    m_driveMotor.burnFlash().whenComplete((status, exception) -> m_driveMotor.checkParameterStatus(status, exception, BURN_FLASH_ERROR_MESSAGE));
+    m_rotateMotor.burnFlash().whenComplete((status, exception) -> m_rotateMotor.checkParameterStatus(status, exception, BURN_FLASH_ERROR_MESSAGE));
   }
 
   /**
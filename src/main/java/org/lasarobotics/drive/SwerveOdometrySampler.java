@@ -0,0 +1,211 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.drive;
+
+import java.util.Arrays;
+
+import org.lasarobotics.hardware.IMU;
+import org.lasarobotics.utils.TimestampedRingBuffer;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.units.Units;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Swerve odometry sampler
+ * <p>
+ * Reads every module's drive distance and angle, and the IMU yaw, on a dedicated thread at a fixed rate, faster than the
+ * robot loop, and stores the samples in a preallocated timestamped ring buffer. The robot loop drains all new samples in
+ * one batch, so odometry integrates with the sampling period rather than the loop period. Heading and module angles
+ * passed to the consumer are reused until their value changes.
+ */
+public class SwerveOdometrySampler implements AutoCloseable {
+  /** Consumer of odometry samples */
+  @FunctionalInterface
+  public interface OdometryConsumer {
+    /**
+     * Accept odometry sample
+     * @param timestamp FPGA timestamp of sample in seconds
+     * @param rotation Robot heading, counterclockwise positive
+     * @param positions Module positions, in the order modules were given; only valid until this method returns
+     */
+    void accept(double timestamp, Rotation2d rotation, SwerveModulePosition[] positions);
+  }
+
+  private static final String THREAD_NAME = "OdometrySampler";
+  private static final double SAMPLE_HISTORY = 0.5;
+  private static final int VALUES_PER_MODULE = 2;
+
+  private IMU m_imu;
+  private MAXSwerveModule[] m_modules;
+  private Notifier m_thread;
+  private double m_period;
+  private TimestampedRingBuffer m_samples;
+  private double[] m_sample;
+  private double[] m_imuSample;
+  private int m_yawIndex;
+  private SwerveModulePosition[] m_positions;
+  private double[] m_angles;
+  private Rotation2d m_rotation;
+  private double m_rotationYaw;
+  private TimestampedRingBuffer.SampleConsumer m_sampleConsumer;
+  private OdometryConsumer m_consumer;
+  private double m_lastTimestamp;
+  private int m_drainCount;
+  private volatile boolean m_isRunning;
+
+  /**
+   * Create a swerve odometry sampler
+   * <p>
+   * Module and IMU status frames are set to match the sampling period
+   * @param imu IMU to read heading from
+   * @param period Sampling period
+   * @param modules Swerve modules to sample
+   */
+  public SwerveOdometrySampler(IMU imu, Measure<Time> period, MAXSwerveModule... modules) {
+    this.m_imu = imu;
+    this.m_modules = modules.clone();
+    this.m_period = period.in(Units.Seconds);
+    this.m_yawIndex = m_modules.length * VALUES_PER_MODULE;
+    this.m_samples = new TimestampedRingBuffer((int)Math.ceil(SAMPLE_HISTORY / m_period), m_yawIndex + 1);
+    this.m_sample = new double[m_yawIndex + 1];
+    this.m_imuSample = new double[m_imu.getSampleSize()];
+    this.m_positions = new SwerveModulePosition[m_modules.length];
+    this.m_angles = new double[m_modules.length];
+    this.m_rotation = null;
+    this.m_rotationYaw = Double.NaN;
+    this.m_sampleConsumer = this::consumeSample;
+    this.m_lastTimestamp = Double.NEGATIVE_INFINITY;
+    this.m_isRunning = false;
+
+    for (int i = 0; i < m_positions.length; i++) m_positions[i] = new SwerveModulePosition();
+    Arrays.fill(m_angles, Double.NaN);
+
+    // Match status frames to sampling period
+    for (MAXSwerveModule module : m_modules) module.setOdometryPeriod(period);
+    m_imu.setUpdatePeriod(period);
+  }
+
+  /**
+   * Read all modules and record sample
+   * <p>
+   * Only called from the sampling thread, or directly while the thread is stopped
+   */
+  void sample() {
+    double timestamp = RobotController.getFPGATime() / 1e6;
+    for (int i = 0; i < m_modules.length; i++) {
+      m_sample[i * VALUES_PER_MODULE] = m_modules[i].sampleDrivePosition();
+      m_sample[i * VALUES_PER_MODULE + 1] = m_modules[i].sampleRotatePosition();
+    }
+    m_sample[m_yawIndex] = sampleYaw(timestamp);
+
+    m_samples.add(timestamp, m_sample);
+  }
+
+  /**
+   * Read IMU yaw from its latest sample, extrapolated to sample time with the yaw rate
+   * @param timestamp Sample timestamp in seconds
+   * @return Yaw in degrees, clockwise positive, NaN if IMU has not recorded any samples
+   */
+  private double sampleYaw(double timestamp) {
+    double imuTimestamp = m_imu.getLatestSample(m_imuSample);
+    if (Double.isNaN(imuTimestamp)) return Double.NaN;
+
+    return m_imuSample[IMU.SAMPLE_YAW_ANGLE] + m_imuSample[IMU.SAMPLE_YAW_RATE] * (timestamp - imuTimestamp);
+  }
+
+  /**
+   * Pass sample to odometry consumer
+   * @param timestamp Sample timestamp in seconds
+   * @param values Sample values
+   */
+  private void consumeSample(double timestamp, double[] values) {
+    for (int i = 0; i < m_positions.length; i++) {
+      m_positions[i].distanceMeters = values[i * VALUES_PER_MODULE];
+
+      // Only create a new angle if module has turned
+      double angle = values[i * VALUES_PER_MODULE + 1];
+      if (angle == m_angles[i]) continue;
+      m_angles[i] = angle;
+      m_positions[i].angle = Rotation2d.fromRadians(angle);
+    }
+
+    // Fall back to latest heading if IMU had not recorded any samples
+    double yaw = values[m_yawIndex];
+    Rotation2d rotation = Double.isNaN(yaw) ? m_imu.getRotation2d() : getRotation(yaw);
+
+    m_consumer.accept(timestamp, rotation, m_positions);
+    m_drainCount++;
+  }
+
+  /**
+   * Get heading for yaw, only creating a new heading if yaw has changed
+   * @param yaw Yaw in degrees, clockwise positive
+   * @return Heading, counterclockwise positive
+   */
+  private Rotation2d getRotation(double yaw) {
+    if (yaw == m_rotationYaw) return m_rotation;
+
+    m_rotationYaw = yaw;
+    m_rotation = Rotation2d.fromDegrees(-yaw);
+    return m_rotation;
+  }
+
+  /**
+   * Pass every sample recorded since the last call to consumer, oldest first
+   * <p>
+   * Call this once per robot loop, for example to update a pose estimator
+   * @param consumer Odometry consumer
+   * @return Number of samples consumed
+   */
+  public int drain(OdometryConsumer consumer) {
+    m_consumer = consumer;
+    m_drainCount = 0;
+    m_lastTimestamp = m_samples.drainSince(m_lastTimestamp, m_sampleConsumer);
+    m_consumer = null;
+
+    return m_drainCount;
+  }
+
+  /**
+   * Start sampling
+   */
+  public synchronized void start() {
+    if (m_thread == null) {
+      m_thread = new Notifier(this::sample);
+      m_thread.setName(THREAD_NAME);
+    }
+
+    m_thread.startPeriodic(m_period);
+    m_isRunning = true;
+  }
+
+  /**
+   * Stop sampling
+   */
+  public synchronized void stop() {
+    if (m_thread != null) m_thread.stop();
+    m_isRunning = false;
+  }
+
+  /**
+   * Check if sampler is running
+   * @return True if running
+   */
+  public boolean isRunning() {
+    return m_isRunning;
+  }
+
+  @Override
+  public synchronized void close() {
+    stop();
+    if (m_thread != null) m_thread.close();
+    m_thread = null;
+  }
+}
@@ -0,0 +1,89 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+/**
+ * Circuit breaker for device polling
+ * <p>
+ * Opens after repeated consecutive failures so that an absent device stops being polled every loop, then allows a
+ * single probe request at a low rate until the device responds again
+ */
+public class CircuitBreaker {
+  /** Circuit breaker state */
+  public enum State {
+    /** Device is responding, poll every loop */
+    CLOSED,
+    /** Device is not responding, only probe occasionally */
+    OPEN;
+  }
+
+  private final int m_failureThreshold;
+  private final double m_probePeriod;
+  private State m_state;
+  private int m_failures;
+  private double m_lastProbeTimestamp;
+
+  /**
+   * Create a circuit breaker
+   * @param failureThreshold Number of consecutive failures that opens the breaker
+   * @param probePeriod Time between probes while open, in seconds
+   */
+  public CircuitBreaker(int failureThreshold, double probePeriod) {
+    this.m_failureThreshold = Math.max(failureThreshold, 1);
+    this.m_probePeriod = probePeriod;
+    this.m_state = State.CLOSED;
+    this.m_failures = 0;
+    this.m_lastProbeTimestamp = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Check if device should be polled
+   * <p>
+   * While open, returns true once per probe period
+   * @param timestamp Current time in seconds
+   * @return True if device should be polled
+   */
+  public boolean allowRequest(double timestamp) {
+    if (m_state == State.CLOSED) return true;
+    if (timestamp - m_lastProbeTimestamp < m_probePeriod) return false;
+
+    m_lastProbeTimestamp = timestamp;
+    return true;
+  }
+
+  /**
+   * Record successful request, closing breaker
+   * @return True if breaker was closed by this request
+   */
+  public boolean recordSuccess() {
+    m_failures = 0;
+    if (m_state == State.CLOSED) return false;
+
+    m_state = State.CLOSED;
+    return true;
+  }
+
+  /**
+   * Record failed request, opening breaker after too many consecutive failures
+   * @param timestamp Current time in seconds
+   * @return True if breaker was opened by this request
+   */
+  public boolean recordFailure(double timestamp) {
+    m_failures++;
+    if (m_state == State.OPEN || m_failures < m_failureThreshold) return false;
+
+    m_state = State.OPEN;
+    m_lastProbeTimestamp = timestamp;
+    return true;
+  }
+
+  /**
+   * Get circuit breaker state
+   * @return Current state
+   */
+  public State getState() {
+    return m_state;
+  }
+}
@@ -0,0 +1,174 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Hardware manager
+ * <p>
+ * Every hardware wrapper registers itself on construction. Calling {@link HardwareManager#run()} at the start of the
+ * robot loop updates all device inputs in one acquisition phase, in registration order, and measures the time each
+ * device's input update takes so that slow devices are visible in the log. All devices are given the same timestamp
+ * for the acquisition phase.
+ */
+public class HardwareManager {
+  private static HardwareManager m_manager;
+
+  private static final int SLOWEST_DEVICE_COUNT = 3;
+  private static final double NANOSECONDS_PER_MILLISECOND = 1e6;
+  private static final String PERIODIC_TIME_LOG_ENTRY = "/PeriodicTime";
+  private static final String TIMESTAMP_LOG_ENTRY = "HardwareManager/Timestamp";
+  private static final String TOTAL_TIME_LOG_ENTRY = "HardwareManager/TotalTime";
+  private static final String SLOWEST_DEVICES_LOG_ENTRY = "HardwareManager/SlowestDevices";
+  private static final String SLOWEST_DEVICE_TIMES_LOG_ENTRY = "HardwareManager/SlowestDeviceTimes";
+
+  private ArrayList<LoggableHardware> m_devices;
+  private ArrayList<String> m_names;
+  private ArrayList<String> m_timeLogKeys;
+  private String[] m_slowestDevices;
+  private double[] m_slowestDeviceTimes;
+  private double m_timestamp;
+  private double m_totalTime;
+  private volatile boolean m_isRunning;
+
+  private HardwareManager() {
+    this.m_devices = new ArrayList<>();
+    this.m_names = new ArrayList<>();
+    this.m_timeLogKeys = new ArrayList<>();
+    this.m_slowestDevices = new String[SLOWEST_DEVICE_COUNT];
+    this.m_slowestDeviceTimes = new double[SLOWEST_DEVICE_COUNT];
+    this.m_timestamp = 0.0;
+    this.m_totalTime = 0.0;
+    this.m_isRunning = false;
+  }
+
+  /**
+   * Get instance of hardware manager
+   * @return Hardware manager instance
+   */
+  public static synchronized HardwareManager getInstance() {
+    if (m_manager == null) m_manager = new HardwareManager();
+    return m_manager;
+  }
+
+  /**
+   * Register device to be updated by hardware manager
+   * @param name Device name
+   * @param device Device to register
+   */
+  public synchronized void register(String name, LoggableHardware device) {
+    if (m_devices.contains(device)) return;
+
+    m_devices.add(device);
+    m_names.add(name);
+    m_timeLogKeys.add(name + PERIODIC_TIME_LOG_ENTRY);
+  }
+
+  /**
+   * Unregister device
+   * @param device Device to unregister
+   */
+  public synchronized void unregister(LoggableHardware device) {
+    int index = m_devices.indexOf(device);
+    if (index < 0) return;
+
+    m_devices.remove(index);
+    m_names.remove(index);
+    m_timeLogKeys.remove(index);
+  }
+
+  /**
+   * Update inputs of all registered devices
+   * <p>
+   * Call this at the start of every robot loop, before the command scheduler runs. Devices that send outputs, such as
+   * {@link org.lasarobotics.hardware.revrobotics.Spark}, only read inputs here, so their periodic methods must still be
+   * called by their owners.
+   */
+  public synchronized void run() {
+    m_isRunning = true;
+    m_timestamp = Timer.getFPGATimestamp();
+    m_totalTime = 0.0;
+    Arrays.fill(m_slowestDevices, "");
+    Arrays.fill(m_slowestDeviceTimes, 0.0);
+
+    for (int i = 0; i < m_devices.size(); i++) {
+      long startTime = System.nanoTime();
+      m_devices.get(i).acquireInputs(m_timestamp);
+      double time = (System.nanoTime() - startTime) / NANOSECONDS_PER_MILLISECOND;
+
+      m_totalTime += time;
+      recordTime(m_names.get(i), time);
+      Logger.recordOutput(m_timeLogKeys.get(i), time);
+    }
+
+    Logger.recordOutput(TIMESTAMP_LOG_ENTRY, m_timestamp);
+    Logger.recordOutput(TOTAL_TIME_LOG_ENTRY, m_totalTime);
+    Logger.recordOutput(SLOWEST_DEVICES_LOG_ENTRY, m_slowestDevices);
+    Logger.recordOutput(SLOWEST_DEVICE_TIMES_LOG_ENTRY, m_slowestDeviceTimes);
+  }
+
+  /**
+   * Insert device into slowest devices if it is slow enough
+   * @param name Device name
+   * @param time Input update time in milliseconds
+   */
+  private void recordTime(String name, double time) {
+    int index = SLOWEST_DEVICE_COUNT;
+    while (index > 0 && time > m_slowestDeviceTimes[index - 1]) index--;
+    if (index == SLOWEST_DEVICE_COUNT) return;
+
+    for (int i = SLOWEST_DEVICE_COUNT - 1; i > index; i--) {
+      m_slowestDevices[i] = m_slowestDevices[i - 1];
+      m_slowestDeviceTimes[i] = m_slowestDeviceTimes[i - 1];
+    }
+    m_slowestDevices[index] = name;
+    m_slowestDeviceTimes[index] = time;
+  }
+
+  /**
+   * Stop updating devices, returning to devices reading their inputs in their periodic methods
+   */
+  public void stop() {
+    m_isRunning = false;
+  }
+
+  /**
+   * Check if hardware manager is updating devices
+   * @return True if {@link HardwareManager#run()} has been called
+   */
+  public boolean isRunning() {
+    return m_isRunning;
+  }
+
+  /**
+   * Get timestamp of last acquisition phase, shared by all devices updated in it
+   * @return Timestamp in seconds
+   */
+  public synchronized double getTimestamp() {
+    return m_timestamp;
+  }
+
+  /**
+   * Get total time taken by all devices in last acquisition phase
+   * @return Total time in milliseconds
+   */
+  public synchronized double getTotalTime() {
+    return m_totalTime;
+  }
+
+  /**
+   * Get slowest devices in last acquisition phase, slowest first
+   * @return Names of slowest devices, empty if fewer devices are registered
+   */
+  public synchronized String[] getSlowestDevices() {
+    return m_slowestDevices.clone();
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+import org.lasarobotics.utils.TimestampedRingBuffer;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.units.Angle;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.units.Velocity;
+
+/**
+ * Inertial measurement unit
+ * <p>
+ * Common interface for gyros, so drive code can use any supported IMU. Yaw is continuous and clockwise positive, as
+ * reported by the devices. Besides the latest inputs, every IMU keeps a bounded history of timestamped samples at the
+ * device's native rate, which can be queried by time or drained in order.
+ */
+public interface IMU extends LoggableHardware {
+  /** Index of continuous yaw angle in degrees in a sample */
+  public static final int SAMPLE_YAW_ANGLE = 0;
+  /** Index of yaw rate in degrees per second in a sample */
+  public static final int SAMPLE_YAW_RATE = 1;
+  /** Index of pitch angle in degrees in a sample */
+  public static final int SAMPLE_PITCH_ANGLE = 2;
+  /** Index of roll angle in degrees in a sample */
+  public static final int SAMPLE_ROLL_ANGLE = 3;
+  /** Number of values in a sample common to all IMUs */
+  public static final int SAMPLE_SIZE = 4;
+
+  /**
+   * Get yaw angle, clockwise positive
+   * @return Yaw angle
+   */
+  public Measure<Angle> getYawAngle();
+
+  /**
+   * Get yaw rate, clockwise positive
+   * @return Yaw rate
+   */
+  public Measure<Velocity<Angle>> getYawRate();
+
+  /**
+   * Get pitch angle
+   * @return Pitch angle
+   */
+  public Measure<Angle> getPitchAngle();
+
+  /**
+   * Get roll angle
+   * @return Roll angle
+   */
+  public Measure<Angle> getRollAngle();
+
+  /**
+   * Get heading of the robot, counterclockwise positive
+   * @return Heading as a {@link Rotation2d}
+   */
+  public Rotation2d getRotation2d();
+
+  /**
+   * Get time the latest yaw input was measured
+   * @return FPGA timestamp in seconds
+   */
+  public double getYawTimestamp();
+
+  /**
+   * Get number of values in a sample of this IMU
+   * <p>
+   * Values at the SAMPLE_ indices of this interface are common to all IMUs, devices may append their own
+   * @return Sample size, at least {@value IMU#SAMPLE_SIZE}
+   */
+  public int getSampleSize();
+
+  /**
+   * Get latest sample
+   * @param sample Array of at least {@link IMU#getSampleSize()} values to copy sample into
+   * @return FPGA timestamp of sample in seconds, NaN if no samples are available
+   */
+  public double getLatestSample(double[] sample);
+
+  /**
+   * Get sample at timestamp, interpolated between recorded samples
+   * @param timestamp FPGA timestamp in seconds
+   * @param sample Array of at least {@link IMU#getSampleSize()} values to copy sample into
+   * @return True if sample is available, false if timestamp is older than retained samples
+   */
+  public boolean getSampleAt(double timestamp, double[] sample);
+
+  /**
+   * Pass every sample recorded after timestamp to consumer, oldest first
+   * @param timestamp FPGA timestamp of last sample already consumed, in seconds
+   * @param consumer Sample consumer
+   * @return Timestamp of newest sample consumed, to pass into the next call
+   */
+  public double drainSamplesSince(double timestamp, TimestampedRingBuffer.SampleConsumer consumer);
+
+  /**
+   * Set period at which yaw and yaw rate are updated by the device, if supported
+   * @param period Update period
+   */
+  public void setUpdatePeriod(Measure<Time> period);
+
+  /**
+   * Reset yaw to zero
+   */
+  public void reset();
+
+  /**
+   * Set yaw angle for simulator
+   * @param angle Angle to set in degrees, clockwise positive
+   */
+  public void setSimAngle(double angle);
+
+  /**
+   * Get yaw angle for simulator
+   * @return Simulated angle that was set
+   */
+  public double getSimAngle();
+}
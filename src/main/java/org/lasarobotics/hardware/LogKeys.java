@@ -0,0 +1,72 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+import java.util.HashMap;
+
+/**
+ * Precomputed log keys for a device
+ * <p>
+ * Builds each full log key once, so that logging in periodic methods does not create new strings every loop
+ */
+public class LogKeys {
+  private static final ClassValue<String[]> ENUM_NAMES = new ClassValue<String[]>() {
+    @Override
+    protected String[] computeValue(Class<?> type) {
+      Object[] constants = type.getEnumConstants();
+      String[] names = new String[constants.length];
+      for (int i = 0; i < constants.length; i++) names[i] = constants[i].toString();
+      return names;
+    }
+  };
+
+  private final String m_prefix;
+  private final HashMap<String, String> m_keys;
+
+  /**
+   * Create log key table for a device
+   * @param prefix Log key prefix, usually the device name
+   * @param entries Log entries to precompute keys for
+   */
+  public LogKeys(String prefix, String... entries) {
+    this.m_prefix = prefix;
+    this.m_keys = new HashMap<>();
+
+    for (String entry : entries) m_keys.put(entry, m_prefix + entry);
+  }
+
+  /**
+   * Get full log key for entry
+   * <p>
+   * Entries that were not precomputed are built and cached on first use
+   * @param entry Log entry
+   * @return Log key for entry
+   */
+  public String get(String entry) {
+    String key = m_keys.get(entry);
+    if (key != null) return key;
+
+    key = m_prefix + entry;
+    m_keys.put(entry, key);
+    return key;
+  }
+
+  /**
+   * Get log key prefix
+   * @return Log key prefix
+   */
+  public String getPrefix() {
+    return m_prefix;
+  }
+
+  /**
+   * Get cached string value of enum constant
+   * @param value Enum constant
+   * @return Cached {@link Enum#toString()} value
+   */
+  public static String toString(Enum<?> value) {
+    return ENUM_NAMES.get(value.getDeclaringClass())[value.ordinal()];
+  }
+}
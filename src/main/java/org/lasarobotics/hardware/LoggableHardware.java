@@ -12,6 +12,17 @@ public interface LoggableHardware {
    */
   public void periodic();
 
+  /**
+   * Update sensor inputs, called by {@link HardwareManager} in its acquisition phase at the start of the loop
+   * <p>
+   * Devices that send outputs from {@link LoggableHardware#periodic()} should only read inputs here, and skip reading
+   * them in {@link LoggableHardware#periodic()} while the hardware manager is running
+   * @param timestamp Timestamp of acquisition phase in seconds, shared by all devices
+   */
+  public default void acquireInputs(double timestamp) {
+    periodic();
+  }
+
   /**
    * Get latest sensor input data
    * @return Latest sensor data
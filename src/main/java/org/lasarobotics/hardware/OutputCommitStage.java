@@ -0,0 +1,138 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+import java.util.ArrayList;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Output commit stage
+ * <p>
+ * When enabled, motor controller set calls only record the desired output. {@link OutputCommitStage#commit()} then
+ * flushes every device once, in name order, so each device sends at most one frame per loop regardless of how many
+ * commands set it or in which order the scheduler ran them.
+ */
+public class OutputCommitStage {
+  private static OutputCommitStage m_stage;
+
+  private static final String TIMESTAMP_LOG_ENTRY = "OutputCommitStage/Timestamp";
+  private static final String COMMITTED_LOG_ENTRY = "OutputCommitStage/Committed";
+  private static final String SUPERSEDED_LOG_ENTRY = "OutputCommitStage/Superseded";
+
+  private ArrayList<String> m_names;
+  private ArrayList<Runnable> m_tasks;
+  private volatile boolean m_isEnabled;
+  private double m_timestamp;
+  private int m_committed;
+  private long m_superseded;
+
+  private OutputCommitStage() {
+    this.m_names = new ArrayList<>();
+    this.m_tasks = new ArrayList<>();
+    this.m_isEnabled = false;
+    this.m_timestamp = 0.0;
+    this.m_committed = 0;
+    this.m_superseded = 0;
+  }
+
+  /**
+   * Get instance of output commit stage
+   * @return Output commit stage instance
+   */
+  public static synchronized OutputCommitStage getInstance() {
+    if (m_stage == null) m_stage = new OutputCommitStage();
+    return m_stage;
+  }
+
+  /**
+   * Register device, keeping devices sorted by name
+   * @param name Device name
+   * @param task Task that sends device's pending output, if any
+   */
+  public synchronized void register(String name, Runnable task) {
+    if (m_tasks.contains(task)) return;
+
+    int index = 0;
+    while (index < m_names.size() && m_names.get(index).compareTo(name) <= 0) index++;
+    m_names.add(index, name);
+    m_tasks.add(index, task);
+  }
+
+  /**
+   * Unregister device
+   * @param task Task that was registered
+   */
+  public synchronized void unregister(Runnable task) {
+    int index = m_tasks.indexOf(task);
+    if (index < 0) return;
+
+    m_names.remove(index);
+    m_tasks.remove(index);
+  }
+
+  /**
+   * Defer motor outputs until {@link OutputCommitStage#commit()} is called
+   * <p>
+   * Call {@link OutputCommitStage#commit()} at the end of every robot loop, after the command scheduler has run.
+   * Stopping a motor is never deferred.
+   */
+  public void enable() {
+    m_isEnabled = true;
+  }
+
+  /**
+   * Send pending outputs and return to sending outputs immediately
+   */
+  public void disable() {
+    commit();
+    m_isEnabled = false;
+  }
+
+  /**
+   * Check if outputs are deferred
+   * @return True if enabled
+   */
+  public boolean isEnabled() {
+    return m_isEnabled;
+  }
+
+  /**
+   * Record that a pending output was replaced before being sent
+   */
+  public synchronized void recordSuperseded() {
+    m_superseded++;
+  }
+
+  /**
+   * Note that a device sent its pending output during commit
+   */
+  public synchronized void recordCommitted() {
+    m_committed++;
+  }
+
+  /**
+   * Get timestamp of current or last commit, shared by all devices committed in it
+   * @return Commit timestamp in seconds
+   */
+  public synchronized double getTimestamp() {
+    return m_timestamp;
+  }
+
+  /**
+   * Send pending output of every registered device, in name order
+   */
+  public synchronized void commit() {
+    m_timestamp = Timer.getFPGATimestamp();
+    m_committed = 0;
+    for (int i = 0; i < m_tasks.size(); i++) m_tasks.get(i).run();
+
+    Logger.recordOutput(TIMESTAMP_LOG_ENTRY, m_timestamp);
+    Logger.recordOutput(COMMITTED_LOG_ENTRY, m_committed);
+    Logger.recordOutput(SUPERSEDED_LOG_ENTRY, m_superseded);
+  }
+}
@@ -4,11 +4,14 @@
 
 package org.lasarobotics.hardware.ctre;
 
+import org.lasarobotics.hardware.HardwareManager;
 import org.lasarobotics.hardware.LoggableHardware;
 import org.littletonrobotics.junction.AutoLog;
 import org.littletonrobotics.junction.Logger;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
 import com.ctre.phoenix6.signals.SensorDirectionValue;
 
@@ -48,6 +51,10 @@ public class CANCoder implements LoggableHardware, AutoCloseable {
   }
 
   private com.ctre.phoenix6.hardware.CANcoder m_canCoder;
+  private StatusSignal<Double> m_absolutePositionSignal;
+  private StatusSignal<Double> m_relativePositionSignal;
+  private StatusSignal<Double> m_velocitySignal;
+  private BaseStatusSignal[] m_signals;
 
   private ID m_id;
   private CANCoderInputsAutoLogged m_inputs;
@@ -60,6 +67,14 @@ public class CANCoder implements LoggableHardware, AutoCloseable {
     this.m_id = id;
     this.m_canCoder = new com.ctre.phoenix6.hardware.CANcoder(m_id.deviceID, m_id.bus.name);
     this.m_inputs = new CANCoderInputsAutoLogged();
+    this.m_absolutePositionSignal = m_canCoder.getAbsolutePosition();
+    this.m_relativePositionSignal = m_canCoder.getPosition();
+    this.m_velocitySignal = m_canCoder.getVelocity();
+    this.m_signals = new BaseStatusSignal[] { m_absolutePositionSignal, m_relativePositionSignal, m_velocitySignal };
+
+    // Register signals with refresher, then device with hardware manager
+    PhoenixSignalRefresher.getInstance().register(m_id.bus, m_signals);
+    HardwareManager.getInstance().register(m_id.name, this);
 
     periodic();
   }
@@ -72,7 +87,7 @@ public class CANCoder implements LoggableHardware, AutoCloseable {
      * @return The position of the sensor.
      */
   private double getAbsolutePosition() {
-    return m_canCoder.getAbsolutePosition().getValue() * m_absolutePositionCoefficient;
+    return m_absolutePositionSignal.getValue() * m_absolutePositionCoefficient;
   }
 
   /**
@@ -81,7 +96,7 @@ public class CANCoder implements LoggableHardware, AutoCloseable {
    * @return The position of the sensor.
    */
   private double getRelativePosition() {
-    return m_canCoder.getPosition().getValue() * m_relativePositionCoefficient;
+    return m_relativePositionSignal.getValue() * m_relativePositionCoefficient;
   }
 
   /**
@@ -90,15 +105,18 @@ public class CANCoder implements LoggableHardware, AutoCloseable {
    * @return The velocity of the sensor.
    */
   private double getVelocity() {
-    return m_canCoder.getVelocity().getValue() * m_velocityCoefficient;
+    return m_velocitySignal.getValue() * m_velocityCoefficient;
   }
 
   /**
-   * Gets the velocity of the sensor.
-   * The units are determined by the internal coefficient, default is rotations.
-   * @return The Velocity of the sensor.
+   * Update CANCoder input readings
+   * <p>
+   * Signals are refreshed by the {@link PhoenixSignalRefresher} when the hardware manager is running, otherwise they are
+   * refreshed here together
    */
   private void updateInputs() {
+    if (!HardwareManager.getInstance().isRunning()) BaseStatusSignal.refreshAll(m_signals);
+
     m_inputs.absolutePosition = getAbsolutePosition();
     m_inputs.relativePosition = getRelativePosition();
     m_inputs.velocity = getVelocity();
@@ -206,11 +224,11 @@ public class CANCoder implements LoggableHardware, AutoCloseable {
   public StatusCode setStatusFramePeriod(CANCoderFrame statusFrame, int frequencyHz) {
     switch (statusFrame) {
       case ABSOLUTE_POSITION:
-        return m_canCoder.getAbsolutePosition().setUpdateFrequency(frequencyHz);
+        return m_absolutePositionSignal.setUpdateFrequency(frequencyHz);
       case RELATIVE_POSITION:
-        return m_canCoder.getPosition().setUpdateFrequency(frequencyHz);
+        return m_relativePositionSignal.setUpdateFrequency(frequencyHz);
       case VELOCITY:
-        return m_canCoder.getVelocity().setUpdateFrequency(frequencyHz);
+        return m_velocitySignal.setUpdateFrequency(frequencyHz);
       default:
         return StatusCode.OK;
     }
@@ -218,6 +236,8 @@ public class CANCoder implements LoggableHardware, AutoCloseable {
 
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
+    PhoenixSignalRefresher.getInstance().unregister(m_id.bus, m_signals);
     m_canCoder = null;
   }
 }
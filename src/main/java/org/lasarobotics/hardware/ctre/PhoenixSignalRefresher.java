@@ -0,0 +1,152 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.ctre;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import org.lasarobotics.hardware.HardwareManager;
+import org.lasarobotics.hardware.LoggableHardware;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.units.Units;
+
+/**
+ * Phoenix 6 status signal refresher
+ * <p>
+ * Devices register the status signals they read, and all signals on a bus are refreshed together in a single call,
+ * once per loop, so every device reads a coherent snapshot. The refresher registers itself with the
+ * {@link HardwareManager} before the first Phoenix 6 device, so it runs ahead of the devices that read its signals.
+ */
+public class PhoenixSignalRefresher implements LoggableHardware {
+  private static PhoenixSignalRefresher m_refresher;
+
+  private static final String NAME = "PhoenixSignalRefresher";
+  private static final String STATUS_LOG_ENTRY = "/Status";
+
+  private EnumMap<PhoenixCANBus, List<BaseStatusSignal>> m_signals;
+  private EnumMap<PhoenixCANBus, BaseStatusSignal[]> m_signalArrays;
+  private EnumMap<PhoenixCANBus, StatusCode> m_status;
+  private EnumMap<PhoenixCANBus, String> m_statusLogKeys;
+  private EnumMap<PhoenixCANBus, Double> m_timeouts;
+
+  private PhoenixSignalRefresher() {
+    this.m_signals = new EnumMap<>(PhoenixCANBus.class);
+    this.m_signalArrays = new EnumMap<>(PhoenixCANBus.class);
+    this.m_status = new EnumMap<>(PhoenixCANBus.class);
+    this.m_statusLogKeys = new EnumMap<>(PhoenixCANBus.class);
+    this.m_timeouts = new EnumMap<>(PhoenixCANBus.class);
+
+    for (PhoenixCANBus bus : PhoenixCANBus.values()) {
+      m_signals.put(bus, new ArrayList<>());
+      m_signalArrays.put(bus, new BaseStatusSignal[0]);
+      m_status.put(bus, StatusCode.OK);
+      m_statusLogKeys.put(bus, NAME + "/" + bus.name() + STATUS_LOG_ENTRY);
+    }
+
+    HardwareManager.getInstance().register(NAME, this);
+  }
+
+  /**
+   * Get instance of signal refresher
+   * @return Signal refresher instance
+   */
+  public static synchronized PhoenixSignalRefresher getInstance() {
+    if (m_refresher == null) m_refresher = new PhoenixSignalRefresher();
+    return m_refresher;
+  }
+
+  /**
+   * Register status signals to be refreshed
+   * @param bus CAN bus signals are received on
+   * @param signals Status signals
+   */
+  public synchronized void register(PhoenixCANBus bus, BaseStatusSignal... signals) {
+    List<BaseStatusSignal> busSignals = m_signals.get(bus);
+    for (BaseStatusSignal signal : signals) if (!busSignals.contains(signal)) busSignals.add(signal);
+    m_signalArrays.put(bus, busSignals.toArray(new BaseStatusSignal[0]));
+  }
+
+  /**
+   * Unregister status signals
+   * @param bus CAN bus signals are received on
+   * @param signals Status signals
+   */
+  public synchronized void unregister(PhoenixCANBus bus, BaseStatusSignal... signals) {
+    List<BaseStatusSignal> busSignals = m_signals.get(bus);
+    for (BaseStatusSignal signal : signals) busSignals.remove(signal);
+    m_signalArrays.put(bus, busSignals.toArray(new BaseStatusSignal[0]));
+  }
+
+  /**
+   * Block until every signal on bus has received new data, instead of only refreshing
+   * <p>
+   * This yields time-aligned samples when all signals on the bus are updated at the same high frequency, but blocks the
+   * calling thread for up to the timeout every loop.
+   * @param bus CAN bus
+   * @param timeout Maximum time to wait for new data
+   */
+  public synchronized void enableSynchronousRefresh(PhoenixCANBus bus, Measure<Time> timeout) {
+    m_timeouts.put(bus, timeout.in(Units.Seconds));
+  }
+
+  /**
+   * Return to refreshing signals on bus without blocking
+   * @param bus CAN bus
+   */
+  public synchronized void disableSynchronousRefresh(PhoenixCANBus bus) {
+    m_timeouts.remove(bus);
+  }
+
+  /**
+   * Refresh all registered signals on bus in a single call
+   * @param bus CAN bus
+   * @return Status of refresh
+   */
+  public synchronized StatusCode refresh(PhoenixCANBus bus) {
+    BaseStatusSignal[] signals = m_signalArrays.get(bus);
+    if (signals.length == 0) return StatusCode.OK;
+
+    Double timeout = m_timeouts.get(bus);
+    StatusCode status = timeout != null
+      ? BaseStatusSignal.waitForAll(timeout, signals)
+      : BaseStatusSignal.refreshAll(signals);
+    m_status.put(bus, status);
+
+    return status;
+  }
+
+  /**
+   * Get status of last refresh
+   * @param bus CAN bus
+   * @return Status of last refresh of bus
+   */
+  public synchronized StatusCode getStatus(PhoenixCANBus bus) {
+    return m_status.get(bus);
+  }
+
+  /**
+   * Call this method periodically
+   */
+  @Override
+  public void periodic() {
+    for (PhoenixCANBus bus : PhoenixCANBus.values()) {
+      refresh(bus);
+      Logger.recordOutput(m_statusLogKeys.get(bus), getStatus(bus).getName());
+    }
+  }
+
+  @Override
+  public LoggableInputs getInputs() {
+    return null;
+  }
+}
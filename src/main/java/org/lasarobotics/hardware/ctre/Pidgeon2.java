@@ -4,24 +4,33 @@
 
 package org.lasarobotics.hardware.ctre;
 
-import org.lasarobotics.hardware.LoggableHardware;
+import org.lasarobotics.hardware.HardwareManager;
+import org.lasarobotics.hardware.IMU;
 import org.lasarobotics.utils.GlobalConstants;
+import org.lasarobotics.utils.TimestampedRingBuffer;
 import org.littletonrobotics.junction.AutoLog;
 import org.littletonrobotics.junction.Logger;
 
+import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.MountPoseConfigs;
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
 import com.ctre.phoenix6.hardware.Pigeon2;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.units.Angle;
 import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.units.MutableMeasure;
 import edu.wpi.first.units.Units;
 import edu.wpi.first.units.Velocity;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 
 /** CTRE Pidgeon 2.0 */
-public class Pidgeon2 implements LoggableHardware, AutoCloseable {
+public class Pidgeon2 implements IMU, AutoCloseable {
   /** Pidgeon ID */
   public static class ID {
     public final String name;
@@ -53,22 +62,101 @@ public class Pidgeon2 implements LoggableHardware, AutoCloseable {
    */
   @AutoLog
   public static class Pidgeon2Inputs {
+    public double pitchAngleDegrees = 0.0;
+    public double yawAngleDegrees = 0.0;
+    public double rollAngleDegrees = 0.0;
+    public double yawRateDegreesPerSecond = 0.0;
+    public double yawTimestampSeconds = 0.0;
+    public double compensatedYawAngleDegrees = 0.0;
+    /** @deprecated Use {@link #pitchAngleDegrees}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Angle> pitchAngle = Units.Radians.of(0.0);
+    /** @deprecated Use {@link #yawAngleDegrees}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Angle> yawAngle = Units.Radians.of(0.0);
+    /** @deprecated Use {@link #rollAngleDegrees}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Angle> rollAngle = Units.Radians.of(0.0);
+    /** @deprecated Use {@link #yawRateDegreesPerSecond}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Velocity<Angle>> yawRate = Units.RadiansPerSecond.of(0.0);
-    public Rotation2d rotation2d = GlobalConstants.ROTATION_ZERO;
   }
 
+  private static final int MAX_RIO_UPDATE_FREQUENCY = 100;
+  private static final int MAX_CANIVORE_UPDATE_FREQUENCY = 250;
+  private static final double SAMPLE_HISTORY = 0.5;
+  private static final String SAMPLER_THREAD_NAME_SUFFIX = "Sampler";
+
   private Pigeon2 m_pidgeon;
+  private StatusSignal<Double> m_pitchSignal;
+  private StatusSignal<Double> m_yawSignal;
+  private StatusSignal<Double> m_rollSignal;
+  private StatusSignal<Double> m_yawRateSignal;
+  private BaseStatusSignal[] m_signals;
+  private StatusSignal<Double> m_samplePitchSignal;
+  private StatusSignal<Double> m_sampleYawSignal;
+  private StatusSignal<Double> m_sampleRollSignal;
+  private StatusSignal<Double> m_sampleYawRateSignal;
+  private BaseStatusSignal[] m_sampleSignals;
+  private Notifier m_sampler;
+  private TimestampedRingBuffer m_samples;
+  private double[] m_sample;
+  private double m_lastSampleTime;
+  private double m_simAngle;
 
   private ID m_id;
   private Pidgeon2InputsAutoLogged m_inputs;
 
+  private MutableMeasure<Angle> m_pitchAngle;
+  private MutableMeasure<Angle> m_yawAngle;
+  private MutableMeasure<Angle> m_rollAngle;
+  private MutableMeasure<Velocity<Angle>> m_yawRate;
+  private MutableMeasure<Angle> m_compensatedYawAngle;
+  private Rotation2d m_rotation2d;
+  private double m_rotation2dAngle;
+  private Rotation2d m_compensatedRotation2d;
+  private double m_compensatedRotation2dAngle;
+
   public Pidgeon2(ID id) {
     this.m_id = id;
     this.m_pidgeon = new Pigeon2(id.deviceID, id.bus.name);
     this.m_inputs = new Pidgeon2InputsAutoLogged();
+    this.m_pitchAngle = MutableMeasure.zero(Units.Degrees);
+    this.m_yawAngle = MutableMeasure.zero(Units.Degrees);
+    this.m_rollAngle = MutableMeasure.zero(Units.Degrees);
+    this.m_yawRate = MutableMeasure.zero(Units.DegreesPerSecond);
+    this.m_compensatedYawAngle = MutableMeasure.zero(Units.Degrees);
+    this.m_rotation2d = GlobalConstants.ROTATION_ZERO;
+    this.m_rotation2dAngle = 0.0;
+    this.m_compensatedRotation2d = GlobalConstants.ROTATION_ZERO;
+    this.m_compensatedRotation2dAngle = 0.0;
+    this.m_samples = new TimestampedRingBuffer((int)Math.ceil(MAX_CANIVORE_UPDATE_FREQUENCY * SAMPLE_HISTORY), SAMPLE_SIZE);
+    this.m_sample = new double[SAMPLE_SIZE];
+    this.m_lastSampleTime = Double.NEGATIVE_INFINITY;
+    this.m_simAngle = 0.0;
+    this.m_pitchSignal = m_pidgeon.getPitch();
+    this.m_yawSignal = m_pidgeon.getYaw();
+    this.m_rollSignal = m_pidgeon.getRoll();
+    this.m_yawRateSignal = m_pidgeon.getAngularVelocityZWorld();
+    this.m_signals = new BaseStatusSignal[] { m_pitchSignal, m_yawSignal, m_rollSignal, m_yawRateSignal };
+
+    // Sampling thread refreshes its own copies of the signals, as signals are not thread safe
+    this.m_samplePitchSignal = m_pitchSignal.clone();
+    this.m_sampleYawSignal = m_yawSignal.clone();
+    this.m_sampleRollSignal = m_rollSignal.clone();
+    this.m_sampleYawRateSignal = m_yawRateSignal.clone();
+    this.m_sampleSignals = new BaseStatusSignal[] {
+      m_samplePitchSignal, m_sampleYawSignal, m_sampleRollSignal, m_sampleYawRateSignal
+    };
+    this.m_sampler = new Notifier(this::addSample);
+    m_sampler.setName(m_id.name + SAMPLER_THREAD_NAME_SUFFIX);
+
+    // Register signals with refresher, then device with hardware manager
+    PhoenixSignalRefresher.getInstance().register(m_id.bus, m_signals);
+    HardwareManager.getInstance().register(m_id.name, this);
+
+    // Sample at default yaw update frequency until it is changed
+    m_sampler.startPeriodic(1.0 / MAX_RIO_UPDATE_FREQUENCY);
 
     periodic();
   }
@@ -78,7 +166,7 @@ public class Pidgeon2 implements LoggableHardware, AutoCloseable {
 	 * @return Pitch
 	 */
   private double getPitch() {
-    return m_pidgeon.getPitch().getValue();
+    return m_pitchSignal.getValue();
   }
 
   /**
@@ -95,24 +183,7 @@ public class Pidgeon2 implements LoggableHardware, AutoCloseable {
    * @return The current heading of the robot in degrees
    */
   private double getAngle() {
-    return m_pidgeon.getAngle();
-  }
-
-  /**
-   * Returns the heading of the robot as a {@link Rotation2d}.
-   * <p>
-   * The angle increases as the Pigeon 2 turns counterclockwise when
-   * looked at from the top. This follows the NWU axis convention.
-   * <p>
-   * The angle is continuous; that is, it will continue from 360 to
-   * 361 degrees. This allows for algorithms that wouldn't want to
-   * see a discontinuity in the gyro output as it sweeps past from
-   * 360 to 0 on the second time around.
-   *
-   * @return The current heading of the robot as a {@link Rotation2d}
-   */
-  private Rotation2d getRotation2d() {
-    return m_pidgeon.getRotation2d();
+    return -m_yawSignal.getValue();
   }
 
   /**
@@ -120,7 +191,7 @@ public class Pidgeon2 implements LoggableHardware, AutoCloseable {
 	 * @return Roll
 	 */
   private double getRoll() {
-    return m_pidgeon.getRoll().getValue();
+    return m_rollSignal.getValue();
   }
 
   /**
@@ -131,19 +202,73 @@ public class Pidgeon2 implements LoggableHardware, AutoCloseable {
    * @return The current rate of change in yaw angle (in degrees per second)
    */
   private double getRate() {
-    return m_pidgeon.getRate();
+    return -m_yawRateSignal.getValue();
   }
 
+  /**
+   * Get yaw extrapolated to the present using the yaw rate
+   * <p>
+   * The angle follows the same convention as {@link Pidgeon2#getAngle()}
+   * @return Latency compensated heading in degrees
+   */
+  private double getCompensatedAngle() {
+    return -BaseStatusSignal.getLatencyCompensatedValue(m_yawSignal, m_yawRateSignal);
+  }
+
+  /**
+   * Get time yaw was sampled
+   * @return FPGA timestamp of yaw sample in seconds
+   */
+  private double getYawSignalTimestamp() {
+    return Timer.getFPGATimestamp() - m_yawSignal.getTimestamp().getLatency();
+  }
 
   /**
    * Update Pidgeon input readings
+   * <p>
+   * Signals are refreshed by the {@link PhoenixSignalRefresher} when the hardware manager is running, otherwise they are
+   * refreshed here together
    */
   private void updateInputs() {
-    m_inputs.pitchAngle = Units.Degrees.of(getPitch());
-    m_inputs.yawAngle = Units.Degrees.of(getAngle());
-    m_inputs.rollAngle = Units.Degrees.of(getRoll());
-    m_inputs.yawRate = Units.DegreesPerSecond.of(getRate());
-    m_inputs.rotation2d = getRotation2d();
+    if (!HardwareManager.getInstance().isRunning()) BaseStatusSignal.refreshAll(m_signals);
+
+    m_inputs.pitchAngleDegrees = getPitch();
+    m_inputs.yawAngleDegrees = getAngle();
+    m_inputs.rollAngleDegrees = getRoll();
+    m_inputs.yawRateDegreesPerSecond = getRate();
+    m_inputs.yawTimestampSeconds = getYawSignalTimestamp();
+    m_inputs.compensatedYawAngleDegrees = getCompensatedAngle();
+    updateDeprecatedInputs();
+  }
+
+  /**
+   * Point deprecated unit-typed inputs at reused measures holding the latest readings, without allocating
+   */
+  @SuppressWarnings("deprecation")
+  private void updateDeprecatedInputs() {
+    m_inputs.pitchAngle = getPitchAngle();
+    m_inputs.yawAngle = getYawAngle();
+    m_inputs.rollAngle = getRollAngle();
+    m_inputs.yawRate = getYawRate();
+  }
+
+  /**
+   * Record latest signals in sample history, if a new yaw frame has been received
+   * <p>
+   * Called from the sampling thread at the yaw update frequency, which is the only writer of the sample history
+   */
+  private void addSample() {
+    BaseStatusSignal.refreshAll(m_sampleSignals);
+    double sampleTime = m_sampleYawSignal.getTimestamp().getTime();
+    if (sampleTime <= m_lastSampleTime) return;
+    m_lastSampleTime = sampleTime;
+
+    // Same clockwise positive convention as inputs
+    m_sample[SAMPLE_YAW_ANGLE] = -m_sampleYawSignal.getValue();
+    m_sample[SAMPLE_YAW_RATE] = -m_sampleYawRateSignal.getValue();
+    m_sample[SAMPLE_PITCH_ANGLE] = m_samplePitchSignal.getValue();
+    m_sample[SAMPLE_ROLL_ANGLE] = m_sampleRollSignal.getValue();
+    m_samples.add(Timer.getFPGATimestamp() - m_sampleYawSignal.getTimestamp().getLatency(), m_sample);
   }
 
   /**
@@ -164,6 +289,146 @@ public class Pidgeon2 implements LoggableHardware, AutoCloseable {
     return m_inputs;
   }
 
+  /**
+   * Get pitch angle
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Pitch angle
+   */
+  @Override
+  public Measure<Angle> getPitchAngle() {
+    return m_pitchAngle.mut_replace(m_inputs.pitchAngleDegrees, Units.Degrees);
+  }
+
+  /**
+   * Get yaw angle, clockwise positive
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Yaw angle, clockwise positive
+   */
+  @Override
+  public Measure<Angle> getYawAngle() {
+    return m_yawAngle.mut_replace(m_inputs.yawAngleDegrees, Units.Degrees);
+  }
+
+  /**
+   * Get roll angle
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Roll angle
+   */
+  @Override
+  public Measure<Angle> getRollAngle() {
+    return m_rollAngle.mut_replace(m_inputs.rollAngleDegrees, Units.Degrees);
+  }
+
+  /**
+   * Get yaw rate, clockwise positive
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Yaw rate, clockwise positive
+   */
+  @Override
+  public Measure<Velocity<Angle>> getYawRate() {
+    return m_yawRate.mut_replace(m_inputs.yawRateDegreesPerSecond, Units.DegreesPerSecond);
+  }
+
+  /**
+   * Get latency compensated yaw angle, clockwise positive
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Latency compensated yaw angle, clockwise positive
+   */
+  public Measure<Angle> getCompensatedYawAngle() {
+    return m_compensatedYawAngle.mut_replace(m_inputs.compensatedYawAngleDegrees, Units.Degrees);
+  }
+
+  /**
+   * Returns the heading of the robot as a {@link Rotation2d}.
+   * <p>
+   * The angle increases as the Pigeon 2 turns counterclockwise when
+   * looked at from the top. This follows the NWU axis convention.
+   * <p>
+   * Only allocates a new {@link Rotation2d} when the angle has changed since the last call
+   * @return Heading of the robot as a {@link Rotation2d}, counterclockwise positive
+   */
+  @Override
+  public Rotation2d getRotation2d() {
+    if (m_inputs.yawAngleDegrees != m_rotation2dAngle) {
+      m_rotation2dAngle = m_inputs.yawAngleDegrees;
+      m_rotation2d = Rotation2d.fromDegrees(-m_rotation2dAngle);
+    }
+    return m_rotation2d;
+  }
+
+  /**
+   * Returns the latency compensated heading of the robot as a {@link Rotation2d}.
+   * <p>
+   * Suitable for odometry and heading control, as it is extrapolated to the time inputs were updated.
+   * <p>
+   * Only allocates a new {@link Rotation2d} when the angle has changed since the last call
+   * @return Latency compensated heading of the robot as a {@link Rotation2d}, counterclockwise positive
+   */
+  public Rotation2d getCompensatedRotation2d() {
+    if (m_inputs.compensatedYawAngleDegrees != m_compensatedRotation2dAngle) {
+      m_compensatedRotation2dAngle = m_inputs.compensatedYawAngleDegrees;
+      m_compensatedRotation2d = Rotation2d.fromDegrees(-m_compensatedRotation2dAngle);
+    }
+    return m_compensatedRotation2d;
+  }
+
+  /**
+   * Get time the latest yaw input was measured
+   * @return FPGA timestamp in seconds
+   */
+  @Override
+  public double getYawTimestamp() {
+    return m_inputs.yawTimestampSeconds;
+  }
+
+  /**
+   * Get number of values in a sample
+   * @return Sample size
+   */
+  @Override
+  public int getSampleSize() {
+    return SAMPLE_SIZE;
+  }
+
+  /**
+   * Get latest sample
+   * <p>
+   * Samples are recorded on a sampling thread for every yaw update, and indexed by the SAMPLE_ constants in {@link IMU}
+   * @param sample Array of at least {@link Pidgeon2#getSampleSize()} values to copy sample into
+   * @return FPGA timestamp of sample in seconds, NaN if no samples have been recorded
+   */
+  @Override
+  public double getLatestSample(double[] sample) {
+    return m_samples.getLatest(sample);
+  }
+
+  /**
+   * Get sample at timestamp, interpolated between recorded samples
+   * @param timestamp FPGA timestamp in seconds
+   * @param sample Array of at least {@link Pidgeon2#getSampleSize()} values to copy sample into
+   * @return True if sample is available, false if timestamp is older than retained samples
+   */
+  @Override
+  public boolean getSampleAt(double timestamp, double[] sample) {
+    return m_samples.getAt(timestamp, sample);
+  }
+
+  /**
+   * Pass every sample recorded after timestamp to consumer, oldest first
+   * @param timestamp FPGA timestamp of last sample already consumed, in seconds
+   * @param consumer Sample consumer
+   * @return Timestamp of newest sample consumed, to pass into the next call
+   */
+  @Override
+  public double drainSamplesSince(double timestamp, TimestampedRingBuffer.SampleConsumer consumer) {
+    return m_samples.drainSince(timestamp, consumer);
+  }
+
   /**
    * Get device ID
    * @return Device ID
@@ -209,28 +474,80 @@ public class Pidgeon2 implements LoggableHardware, AutoCloseable {
   public StatusCode setStatusFramePeriod(PigeonStatusFrame statusFrame, int frequencyHz) {
     switch (statusFrame) {
       case PITCH:
-        return m_pidgeon.getPitch().setUpdateFrequency(frequencyHz);
+        return m_pitchSignal.setUpdateFrequency(frequencyHz);
       case YAW:
-        return m_pidgeon.getYaw().setUpdateFrequency(frequencyHz);
+        return setYawUpdateFrequency(frequencyHz);
       case ROLL:
-        return m_pidgeon.getRoll().setUpdateFrequency(frequencyHz);
+        return m_rollSignal.setUpdateFrequency(frequencyHz);
       default:
         return StatusCode.OK;
     }
   }
 
+  /**
+   * Set update frequency of yaw and yaw rate together, so latency compensation uses matching samples
+   * <p>
+   * Frequency is limited to {@value Pidgeon2#MAX_RIO_UPDATE_FREQUENCY} Hz on the roboRIO bus and
+   * {@value Pidgeon2#MAX_CANIVORE_UPDATE_FREQUENCY} Hz on a CANivore
+   * @param frequencyHz Desired frequency in Hz
+   * @return Status Code generated by function. 0 indicates no error.
+   */
+  public StatusCode setYawUpdateFrequency(int frequencyHz) {
+    int maxFrequency = m_id.bus.equals(PhoenixCANBus.CANIVORE) ? MAX_CANIVORE_UPDATE_FREQUENCY : MAX_RIO_UPDATE_FREQUENCY;
+    int frequency = MathUtil.clamp(frequencyHz, 0, maxFrequency);
+
+    // Sample history follows yaw updates
+    if (frequency > 0) m_sampler.startPeriodic(1.0 / frequency);
+    else m_sampler.stop();
+
+    return BaseStatusSignal.setUpdateFrequencyForAll(frequency, m_yawSignal, m_yawRateSignal);
+  }
+
+  /**
+   * Set period at which yaw and yaw rate are updated
+   * @param period Update period, limited as in {@link Pidgeon2#setYawUpdateFrequency(int)}
+   */
+  @Override
+  public void setUpdatePeriod(Measure<Time> period) {
+    setYawUpdateFrequency((int)Math.round(1 / period.in(Units.Seconds)));
+  }
+
   /**
    * Resets the Pigeon 2 to a heading of zero.
    * <p>
    * This can be used if there is significant drift in the gyro,
    * and it needs to be recalibrated after it has been running.
    */
+  @Override
   public void reset() {
     m_pidgeon.reset();
+    m_simAngle = 0.0;
+  }
+
+  /**
+   * Set yaw angle for simulator
+   * @param angle Angle to set in degrees, clockwise positive
+   */
+  @Override
+  public void setSimAngle(double angle) {
+    m_simAngle = angle;
+    m_pidgeon.getSimState().setRawYaw(-angle);
+  }
+
+  /**
+   * Get yaw angle for simulator
+   * @return Simulated angle that was set
+   */
+  @Override
+  public double getSimAngle() {
+    return m_simAngle;
   }
 
   @Override
   public void close() {
+    m_sampler.close();
+    HardwareManager.getInstance().unregister(this);
+    PhoenixSignalRefresher.getInstance().unregister(m_id.bus, m_signals);
     m_pidgeon.close();
   }
 }
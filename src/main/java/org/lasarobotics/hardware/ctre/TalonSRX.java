@@ -4,7 +4,10 @@
 
 package org.lasarobotics.hardware.ctre;
 
+import org.lasarobotics.hardware.HardwareManager;
+import org.lasarobotics.hardware.LogKeys;
 import org.lasarobotics.hardware.LoggableHardware;
+import org.lasarobotics.hardware.OutputCommitStage;
 import org.littletonrobotics.junction.AutoLog;
 import org.littletonrobotics.junction.Logger;
 
@@ -52,6 +55,11 @@ public class TalonSRX implements LoggableHardware, AutoCloseable {
   private com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX m_talon;
 
   private ID m_id;
+  private LogKeys m_logKeys;
+  private Runnable m_commitTask;
+  private ControlMode m_pendingMode;
+  private double m_pendingValue;
+  private boolean m_hasPendingOutput;
   private TalonSRXInputsAutoLogged m_inputs;
 
   private TalonPIDConfig m_config;
@@ -62,12 +70,19 @@ public class TalonSRX implements LoggableHardware, AutoCloseable {
    */
   public TalonSRX(TalonSRX.ID id)  {
     this.m_id = id;
+    this.m_logKeys = new LogKeys(m_id.name, VALUE_LOG_ENTRY, MODE_LOG_ENTRY, CURRENT_LOG_ENTRY);
     this.m_talon = new com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX(id.deviceID);
     this.m_inputs = new TalonSRXInputsAutoLogged();
+    this.m_commitTask = this::commitOutput;
+    this.m_hasPendingOutput = false;
 
     // Disable motor safety
     m_talon.setSafetyEnabled(false);
 
+    // Register with hardware manager and for deferred output
+    HardwareManager.getInstance().register(m_id.name, this);
+    OutputCommitStage.getInstance().register(m_id.name, m_commitTask);
+
     periodic();
   }
 
@@ -77,9 +92,9 @@ public class TalonSRX implements LoggableHardware, AutoCloseable {
    * @param mode The output mode to apply
    */
   private void logOutputs(ControlMode mode, double value) {
-    Logger.recordOutput(m_id.name + VALUE_LOG_ENTRY, value);
-    Logger.recordOutput(m_id.name + MODE_LOG_ENTRY, mode.toString());
-    Logger.recordOutput(m_id.name + CURRENT_LOG_ENTRY, m_talon.getStatorCurrent());
+    Logger.recordOutput(m_logKeys.get(VALUE_LOG_ENTRY), value);
+    Logger.recordOutput(m_logKeys.get(MODE_LOG_ENTRY), LogKeys.toString(mode));
+    Logger.recordOutput(m_logKeys.get(CURRENT_LOG_ENTRY), m_talon.getStatorCurrent());
   }
 
   /**
@@ -212,7 +227,6 @@ public class TalonSRX implements LoggableHardware, AutoCloseable {
    */
   public void set(double speed) {
     set(ControlMode.PercentOutput, speed);
-    logOutputs(ControlMode.PercentOutput, speed);
   }
 
   /**
@@ -229,10 +243,32 @@ public class TalonSRX implements LoggableHardware, AutoCloseable {
    * @param value The setpoint value, as described above.
    */
   public void set(ControlMode mode, double value) {
+    // Only record output if outputs are deferred
+    OutputCommitStage stage = OutputCommitStage.getInstance();
+    if (stage.isEnabled()) {
+      if (m_hasPendingOutput) stage.recordSuperseded();
+      m_pendingMode = mode;
+      m_pendingValue = value;
+      m_hasPendingOutput = true;
+      return;
+    }
+
     m_talon.set(mode, value);
     logOutputs(mode, value);
   }
 
+  /**
+   * Send output recorded while outputs are deferred, if any
+   */
+  private void commitOutput() {
+    if (!m_hasPendingOutput) return;
+
+    m_hasPendingOutput = false;
+    m_talon.set(m_pendingMode, m_pendingValue);
+    logOutputs(m_pendingMode, m_pendingValue);
+    OutputCommitStage.getInstance().recordCommitted();
+  }
+
   /**
    * Common interface for inverting direction of a speed controller.
    *
@@ -323,6 +359,7 @@ public class TalonSRX implements LoggableHardware, AutoCloseable {
    * Common interface to stop the motor until Set is called again.
    */
   public void stopMotor() {
+    m_hasPendingOutput = false;
     m_talon.stopMotor();
     logOutputs(ControlMode.PercentOutput, 0.0);
   }
@@ -332,6 +369,8 @@ public class TalonSRX implements LoggableHardware, AutoCloseable {
    */
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
+    OutputCommitStage.getInstance().unregister(m_commitTask);
     m_talon.close();
   }
 }
@@ -4,6 +4,7 @@
 
 package org.lasarobotics.hardware.generic;
 
+import org.lasarobotics.hardware.HardwareManager;
 import org.lasarobotics.hardware.LoggableHardware;
 import org.littletonrobotics.junction.AutoLog;
 import org.littletonrobotics.junction.Logger;
@@ -55,6 +56,9 @@ public class Analog implements LoggableHardware, AutoCloseable {
     this.m_analogInput = new AnalogInput(id.port);
     this.m_inputs = new AnalogInputsAutoLogged();
 
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
+
     periodic();
   }
 
@@ -85,6 +89,7 @@ public class Analog implements LoggableHardware, AutoCloseable {
 
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
     m_analogInput.close();
   }
 
@@ -4,6 +4,7 @@
 
 package org.lasarobotics.hardware.generic;
 
+import org.lasarobotics.hardware.HardwareManager;
 import org.lasarobotics.hardware.LoggableHardware;
 import org.littletonrobotics.junction.AutoLog;
 
@@ -52,6 +53,9 @@ public class Compressor implements LoggableHardware, AutoCloseable {
     this.m_compressor = new edu.wpi.first.wpilibj.Compressor(module, m_id.moduleType);
     this.m_inputs = new CompressorInputsAutoLogged();
 
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
+
     periodic();
   }
 
@@ -62,6 +66,10 @@ public class Compressor implements LoggableHardware, AutoCloseable {
   public Compressor(Compressor.ID id) {
     this.m_id = id;
     this.m_compressor = new edu.wpi.first.wpilibj.Compressor(m_id.moduleType);
+    this.m_inputs = new CompressorInputsAutoLogged();
+
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
   }
 
   /**
@@ -173,6 +181,7 @@ public class Compressor implements LoggableHardware, AutoCloseable {
 
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
     m_compressor.close();
   }
 }
@@ -4,6 +4,8 @@
 
 package org.lasarobotics.hardware.generic;
 
+import org.lasarobotics.hardware.HardwareManager;
+import org.lasarobotics.hardware.LogKeys;
 import org.lasarobotics.hardware.LoggableHardware;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.inputs.LoggableInputs;
@@ -39,6 +41,7 @@ public class DoubleSolenoid implements LoggableHardware, AutoCloseable {
   private edu.wpi.first.wpilibj.DoubleSolenoid m_doubleSolenoid;
 
   private ID m_id;
+  private LogKeys m_logKeys;
 
   /**
    * Create a DoubleSolenoid object with built-in logging
@@ -47,8 +50,12 @@ public class DoubleSolenoid implements LoggableHardware, AutoCloseable {
    */
   public DoubleSolenoid(DoubleSolenoid.ID id, int module) {
     this.m_id = id;
+    this.m_logKeys = new LogKeys(m_id.name, VALUE_LOG_ENTRY);
     this.m_doubleSolenoid = new edu.wpi.first.wpilibj.DoubleSolenoid(module, m_id.moduleType, m_id.forwardChannel, m_id.reverseChannel);
 
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
+
     periodic();
   }
 
@@ -58,11 +65,15 @@ public class DoubleSolenoid implements LoggableHardware, AutoCloseable {
    */
   public DoubleSolenoid(DoubleSolenoid.ID id) {
     this.m_id = id;
+    this.m_logKeys = new LogKeys(m_id.name, VALUE_LOG_ENTRY);
     this.m_doubleSolenoid = new edu.wpi.first.wpilibj.DoubleSolenoid(m_id.moduleType, m_id.forwardChannel, m_id.reverseChannel);
+
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
   }
 
   private void logOutputs(String value) {
-    Logger.recordOutput(m_id.name + VALUE_LOG_ENTRY, value);
+    Logger.recordOutput(m_logKeys.get(VALUE_LOG_ENTRY), value);
   }
 
   @Override
@@ -85,6 +96,7 @@ public class DoubleSolenoid implements LoggableHardware, AutoCloseable {
 
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
     m_doubleSolenoid.close();
   }
 }
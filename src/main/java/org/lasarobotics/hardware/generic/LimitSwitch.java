@@ -4,6 +4,7 @@
 
 package org.lasarobotics.hardware.generic;
 
+import org.lasarobotics.hardware.HardwareManager;
 import org.lasarobotics.hardware.LoggableHardware;
 import org.littletonrobotics.junction.AutoLog;
 import org.littletonrobotics.junction.Logger;
@@ -71,6 +72,9 @@ public class LimitSwitch implements LoggableHardware, AutoCloseable {
     this.m_limitSwitch = new DigitalInput(m_id.port);
     this.m_inputs = new LimitSwitchInputsAutoLogged();
 
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
+
     periodic();
   }
 
@@ -101,6 +105,7 @@ public class LimitSwitch implements LoggableHardware, AutoCloseable {
 
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
     m_limitSwitch.close();
   }
 }
@@ -4,6 +4,8 @@
 
 package org.lasarobotics.hardware.generic;
 
+import org.lasarobotics.hardware.HardwareManager;
+import org.lasarobotics.hardware.LogKeys;
 import org.lasarobotics.hardware.LoggableHardware;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.inputs.LoggableInputs;
@@ -31,6 +33,7 @@ public class Servo implements LoggableHardware {
   private edu.wpi.first.wpilibj.Servo m_servo;
 
   private ID m_id;
+  private LogKeys m_logKeys;
   private double m_conversionFactor;
 
   /**
@@ -40,8 +43,12 @@ public class Servo implements LoggableHardware {
    */
   public Servo(Servo.ID id, double conversionFactor) {
     this.m_id = id;
+    this.m_logKeys = new LogKeys(m_id.name, VALUE_LOG_ENTRY);
     this.m_conversionFactor = conversionFactor;
     this.m_servo = new edu.wpi.first.wpilibj.Servo(m_id.port);
+
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
   }
 
   /**
@@ -53,7 +60,7 @@ public class Servo implements LoggableHardware {
   }
 
   private void logOutputs(double value) {
-    Logger.recordOutput(m_id.name + VALUE_LOG_ENTRY, value);
+    Logger.recordOutput(m_logKeys.get(VALUE_LOG_ENTRY), value);
   }
 
   @Override
@@ -4,6 +4,8 @@
 
 package org.lasarobotics.hardware.generic;
 
+import org.lasarobotics.hardware.HardwareManager;
+import org.lasarobotics.hardware.LogKeys;
 import org.lasarobotics.hardware.LoggableHardware;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.inputs.LoggableInputs;
@@ -36,6 +38,7 @@ public class Solenoid implements LoggableHardware, AutoCloseable {
   private edu.wpi.first.wpilibj.Solenoid m_solenoid;
 
   private ID m_id;
+  private LogKeys m_logKeys;
 
   /**
    * Create a Solenoid object with built-in logging
@@ -44,7 +47,11 @@ public class Solenoid implements LoggableHardware, AutoCloseable {
    */
   public Solenoid(Solenoid.ID id, int module) {
     this.m_id = id;
+    this.m_logKeys = new LogKeys(m_id.name, VALUE_LOG_ENTRY);
     this.m_solenoid = new edu.wpi.first.wpilibj.Solenoid(module, m_id.moduleType, m_id.channel);
+
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
   }
 
   /**
@@ -53,11 +60,15 @@ public class Solenoid implements LoggableHardware, AutoCloseable {
    */
   public Solenoid(Solenoid.ID id) {
     this.m_id = id;
+    this.m_logKeys = new LogKeys(m_id.name, VALUE_LOG_ENTRY);
     this.m_solenoid = new edu.wpi.first.wpilibj.Solenoid(m_id.moduleType, m_id.channel);
+
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_id.name, this);
   }
 
   private void logOutputs(boolean value) {
-    Logger.recordOutput(m_id.name + VALUE_LOG_ENTRY, value);
+    Logger.recordOutput(m_logKeys.get(VALUE_LOG_ENTRY), value);
   }
 
   @Override
@@ -91,6 +102,7 @@ public class Solenoid implements LoggableHardware, AutoCloseable {
 
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
     m_solenoid.close();
   }
 }
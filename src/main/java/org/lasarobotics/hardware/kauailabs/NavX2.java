@@ -4,12 +4,16 @@
 
 package org.lasarobotics.hardware.kauailabs;
 
-import org.lasarobotics.hardware.LoggableHardware;
+import org.lasarobotics.hardware.HardwareManager;
+import org.lasarobotics.hardware.IMU;
 import org.lasarobotics.utils.GlobalConstants;
+import org.lasarobotics.utils.TimestampedRingBuffer;
 import org.littletonrobotics.junction.AutoLog;
 import org.littletonrobotics.junction.Logger;
 
+import com.kauailabs.navx.AHRSProtocol.AHRSUpdateBase;
 import com.kauailabs.navx.frc.AHRS;
+import com.kauailabs.navx.frc.ITimestampedDataSubscriber;
 
 import edu.wpi.first.hal.SimDouble;
 import edu.wpi.first.hal.simulation.SimDeviceDataJNI;
@@ -17,12 +21,15 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.units.Angle;
 import edu.wpi.first.units.Distance;
 import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.MutableMeasure;
+import edu.wpi.first.units.Time;
 import edu.wpi.first.units.Units;
 import edu.wpi.first.units.Velocity;
 import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.Timer;
 
 /** NavX2 */
-public class NavX2 implements LoggableHardware, AutoCloseable {
+public class NavX2 implements IMU, AutoCloseable {
   /** NavX2 ID */
   public static class ID {
     public final String name;
@@ -41,21 +48,65 @@ public class NavX2 implements LoggableHardware, AutoCloseable {
    */
   @AutoLog
   public static class NavX2Inputs {
+    public double pitchAngleDegrees = 0.0;
+    public double yawAngleDegrees = 0.0;
+    public double rollAngleDegrees = 0.0;
+    public double xVelocityMetersPerSecond = 0.0;
+    public double yVelocityMetersPerSecond = 0.0;
+    public double yawRateDegreesPerSecond = 0.0;
+    public double yawTimestampSeconds = 0.0;
+    /** @deprecated Use {@link #pitchAngleDegrees}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Angle> pitchAngle = Units.Radians.of(0.0);
+    /** @deprecated Use {@link #yawAngleDegrees}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Angle> yawAngle = Units.Radians.of(0.0);
+    /** @deprecated Use {@link #rollAngleDegrees}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Angle> rollAngle = Units.Radians.of(0.0);
+    /** @deprecated Use {@link #xVelocityMetersPerSecond}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Velocity<Distance>> xVelocity = Units.MetersPerSecond.of(0.0);
+    /** @deprecated Use {@link #yVelocityMetersPerSecond}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Velocity<Distance>> yVelocity = Units.MetersPerSecond.of(0.0);
+    /** @deprecated Use {@link #yawRateDegreesPerSecond}, holds a reused measure updated every loop */
+    @Deprecated
     public Measure<Velocity<Angle>> yawRate = Units.RadiansPerSecond.of(0.0);
-    public Rotation2d rotation2d = GlobalConstants.ROTATION_ZERO;
   }
 
+  /** Index of X velocity in meters per second in a sample */
+  public static final int SAMPLE_X_VELOCITY = IMU.SAMPLE_SIZE;
+  /** Index of Y velocity in meters per second in a sample */
+  public static final int SAMPLE_Y_VELOCITY = IMU.SAMPLE_SIZE + 1;
+
+  private static final int NAVX_SAMPLE_SIZE = IMU.SAMPLE_SIZE + 2;
+  private static final double SAMPLE_HISTORY = 0.5;
+  private static final double MILLISECONDS_PER_SECOND = 1000.0;
+
   private AHRS m_navx;
   private SimDouble m_simNavXYaw;
+  private ITimestampedDataSubscriber m_sampleSubscriber;
+  private TimestampedRingBuffer m_samples;
+  private double[] m_sample;
+  private double[] m_latestSample;
+  private double m_timestampOffset;
+  private double m_lastSensorTimestamp;
+  private double m_lastRawYaw;
+  private volatile boolean m_isSampleResetRequested;
 
   private String m_name;
   private NavX2InputsAutoLogged m_inputs;
 
+  private MutableMeasure<Angle> m_pitchAngle;
+  private MutableMeasure<Angle> m_yawAngle;
+  private MutableMeasure<Angle> m_rollAngle;
+  private MutableMeasure<Velocity<Distance>> m_xVelocity;
+  private MutableMeasure<Velocity<Distance>> m_yVelocity;
+  private MutableMeasure<Velocity<Angle>> m_yawRate;
+  private Rotation2d m_rotation2d;
+  private double m_rotation2dAngle;
+
   /**
    * Create a NavX2 object with built-in logging
    * @param id NavX2 ID
@@ -65,12 +116,70 @@ public class NavX2 implements LoggableHardware, AutoCloseable {
     this.m_name = id.name;
     this.m_navx = new AHRS(SPI.Port.kMXP, (byte)updateRate);
     this.m_inputs = new NavX2InputsAutoLogged();
+    this.m_pitchAngle = MutableMeasure.zero(Units.Degrees);
+    this.m_yawAngle = MutableMeasure.zero(Units.Degrees);
+    this.m_rollAngle = MutableMeasure.zero(Units.Degrees);
+    this.m_xVelocity = MutableMeasure.zero(Units.MetersPerSecond);
+    this.m_yVelocity = MutableMeasure.zero(Units.MetersPerSecond);
+    this.m_yawRate = MutableMeasure.zero(Units.DegreesPerSecond);
+    this.m_rotation2d = GlobalConstants.ROTATION_ZERO;
+    this.m_rotation2dAngle = 0.0;
     this.m_simNavXYaw = new SimDouble(SimDeviceDataJNI.getSimValueHandle(SimDeviceDataJNI.getSimDeviceHandle("navX-Sensor[0]"), "Yaw"));
+    this.m_samples = new TimestampedRingBuffer((int)Math.ceil(updateRate * SAMPLE_HISTORY), NAVX_SAMPLE_SIZE);
+    this.m_sample = new double[NAVX_SAMPLE_SIZE];
+    this.m_latestSample = new double[NAVX_SAMPLE_SIZE];
+    this.m_sampleSubscriber = this::addSample;
+    this.m_isSampleResetRequested = true;
+    m_navx.registerCallback(m_sampleSubscriber, null);
     System.out.println();
 
+    // Register with hardware manager
+    HardwareManager.getInstance().register(m_name, this);
+
     periodic();
   }
 
+  /**
+   * Record sample received from sensor
+   * <p>
+   * Called from the NavX IO thread for every update. Sensor timestamps are mapped to FPGA time using the smallest
+   * observed difference between receive and sensor time, which removes transport jitter.
+   * @param systemTimestamp FPGA time the sample was received, in milliseconds
+   * @param sensorTimestamp Sensor time the sample was measured, in milliseconds
+   * @param data Sensor data
+   * @param context Unused
+   */
+  private void addSample(long systemTimestamp, long sensorTimestamp, AHRSUpdateBase data, Object context) {
+    double sensorTime = sensorTimestamp / MILLISECONDS_PER_SECOND;
+    double offset = systemTimestamp / MILLISECONDS_PER_SECOND - sensorTime;
+    // Yaw follows the same clockwise positive convention as getAngle()
+    double rawYaw = data.yaw;
+
+    if (m_isSampleResetRequested || sensorTime < m_lastSensorTimestamp) {
+      m_isSampleResetRequested = false;
+      m_samples.clear();
+      m_timestampOffset = offset;
+      m_sample[SAMPLE_YAW_ANGLE] = rawYaw;
+      m_sample[SAMPLE_YAW_RATE] = 0.0;
+    } else {
+      double dt = sensorTime - m_lastSensorTimestamp;
+      if (dt <= 0.0) return;
+
+      double deltaYaw = Math.IEEEremainder(rawYaw - m_lastRawYaw, 360.0);
+      m_timestampOffset = Math.min(m_timestampOffset, offset);
+      m_sample[SAMPLE_YAW_ANGLE] += deltaYaw;
+      m_sample[SAMPLE_YAW_RATE] = deltaYaw / dt;
+    }
+    m_sample[SAMPLE_PITCH_ANGLE] = data.pitch;
+    m_sample[SAMPLE_ROLL_ANGLE] = data.roll;
+    m_sample[SAMPLE_X_VELOCITY] = m_navx.getVelocityX();
+    m_sample[SAMPLE_Y_VELOCITY] = m_navx.getVelocityY();
+    m_lastSensorTimestamp = sensorTime;
+    m_lastRawYaw = rawYaw;
+
+    m_samples.add(sensorTime + m_timestampOffset, m_sample);
+  }
+
   /**
    * Returns the current pitch value (in degrees, from -180 to 180)
    * reported by the sensor.  Pitch is a measure of rotation around
@@ -147,34 +256,33 @@ public class NavX2 implements LoggableHardware, AutoCloseable {
   }
 
   /**
-   * Return the heading of the robot as a {@link edu.wpi.first.math.geometry.Rotation2d}.
-   *
-   * <p>The angle is continuous, that is it will continue from 360 to 361 degrees. This allows
-   * algorithms that wouldn't want to see a discontinuity in the gyro output as it sweeps past from
-   * 360 to 0 on the second time around.
-   *
-   * <p>The angle is expected to increase as the gyro turns counterclockwise when looked at from the
-   * top. It needs to follow the NWU axis convention.
-   *
-   * <p>This heading is based on integration of the returned rate from the gyro.
-   *
-   * @return the current heading of the robot as a {@link edu.wpi.first.math.geometry.Rotation2d}.
+   * Update NavX input readings
    */
-  private Rotation2d getRotation2d() {
-    return Rotation2d.fromDegrees(-getAngle());
+  private void updateInputs() {
+    m_inputs.pitchAngleDegrees = getPitch();
+    m_inputs.yawAngleDegrees = getAngle();
+    m_inputs.rollAngleDegrees = getRoll();
+    m_inputs.xVelocityMetersPerSecond = getVelocityX();
+    m_inputs.yVelocityMetersPerSecond = getVelocityY();
+    m_inputs.yawRateDegreesPerSecond = getRate();
+
+    // Use time of latest sample from sensor, if any have been received
+    double timestamp = m_samples.getLatest(m_latestSample);
+    m_inputs.yawTimestampSeconds = Double.isNaN(timestamp) ? Timer.getFPGATimestamp() : timestamp;
+    updateDeprecatedInputs();
   }
 
   /**
-   * Update NavX input readings
+   * Point deprecated unit-typed inputs at reused measures holding the latest readings, without allocating
    */
-  private void updateInputs() {
-    m_inputs.pitchAngle = Units.Degrees.of(getPitch());
-    m_inputs.yawAngle = Units.Degrees.of(getAngle());
-    m_inputs.rollAngle = Units.Degrees.of(getRoll());
-    m_inputs.xVelocity = Units.MetersPerSecond.of(getVelocityX());
-    m_inputs.yVelocity = Units.MetersPerSecond.of(getVelocityY());
-    m_inputs.yawRate = Units.DegreesPerSecond.of(getRate());
-    m_inputs.rotation2d = getRotation2d();
+  @SuppressWarnings("deprecation")
+  private void updateDeprecatedInputs() {
+    m_inputs.pitchAngle = getPitchAngle();
+    m_inputs.yawAngle = getYawAngle();
+    m_inputs.rollAngle = getRollAngle();
+    m_inputs.xVelocity = getXVelocity();
+    m_inputs.yVelocity = getYVelocity();
+    m_inputs.yawRate = getYawRate();
   }
 
   /**
@@ -195,6 +303,140 @@ public class NavX2 implements LoggableHardware, AutoCloseable {
     return m_inputs;
   }
 
+  /**
+   * Get pitch angle
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Pitch angle
+   */
+  @Override
+  public Measure<Angle> getPitchAngle() {
+    return m_pitchAngle.mut_replace(m_inputs.pitchAngleDegrees, Units.Degrees);
+  }
+
+  /**
+   * Get yaw angle, clockwise positive
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Yaw angle, clockwise positive
+   */
+  @Override
+  public Measure<Angle> getYawAngle() {
+    return m_yawAngle.mut_replace(m_inputs.yawAngleDegrees, Units.Degrees);
+  }
+
+  /**
+   * Get roll angle
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Roll angle
+   */
+  @Override
+  public Measure<Angle> getRollAngle() {
+    return m_rollAngle.mut_replace(m_inputs.rollAngleDegrees, Units.Degrees);
+  }
+
+  /**
+   * Get X velocity
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return X velocity
+   */
+  public Measure<Velocity<Distance>> getXVelocity() {
+    return m_xVelocity.mut_replace(m_inputs.xVelocityMetersPerSecond, Units.MetersPerSecond);
+  }
+
+  /**
+   * Get Y velocity
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Y velocity
+   */
+  public Measure<Velocity<Distance>> getYVelocity() {
+    return m_yVelocity.mut_replace(m_inputs.yVelocityMetersPerSecond, Units.MetersPerSecond);
+  }
+
+  /**
+   * Get yaw rate, clockwise positive
+   * <p>
+   * The returned measure is reused and updated by later calls
+   * @return Yaw rate, clockwise positive
+   */
+  @Override
+  public Measure<Velocity<Angle>> getYawRate() {
+    return m_yawRate.mut_replace(m_inputs.yawRateDegreesPerSecond, Units.DegreesPerSecond);
+  }
+
+  /**
+   * Return the heading of the robot as a {@link Rotation2d}.
+   * <p>
+   * The angle is expected to increase as the gyro turns counterclockwise when looked at from the
+   * top. It needs to follow the NWU axis convention.
+   * <p>
+   * Only allocates a new {@link Rotation2d} when the angle has changed since the last call
+   * @return Heading of the robot as a {@link Rotation2d}, counterclockwise positive
+   */
+  @Override
+  public Rotation2d getRotation2d() {
+    if (m_inputs.yawAngleDegrees != m_rotation2dAngle) {
+      m_rotation2dAngle = m_inputs.yawAngleDegrees;
+      m_rotation2d = Rotation2d.fromDegrees(-m_rotation2dAngle);
+    }
+    return m_rotation2d;
+  }
+
+  /**
+   * Get time the latest yaw input was measured
+   * @return FPGA timestamp in seconds
+   */
+  @Override
+  public double getYawTimestamp() {
+    return m_inputs.yawTimestampSeconds;
+  }
+
+  /**
+   * Get number of values in a NavX sample, including X and Y velocity
+   * @return Sample size
+   */
+  @Override
+  public int getSampleSize() {
+    return NAVX_SAMPLE_SIZE;
+  }
+
+  /**
+   * Get latest sample received from sensor
+   * <p>
+   * Samples are indexed by the SAMPLE_ constants in {@link IMU} and this class
+   * @param sample Array of at least {@link NavX2#getSampleSize()} values to copy sample into
+   * @return FPGA timestamp of sample in seconds, NaN if no samples have been received
+   */
+  @Override
+  public double getLatestSample(double[] sample) {
+    return m_samples.getLatest(sample);
+  }
+
+  /**
+   * Get sample at timestamp, interpolated between received samples
+   * @param timestamp FPGA timestamp in seconds
+   * @param sample Array of at least {@link NavX2#getSampleSize()} values to copy sample into
+   * @return True if sample is available, false if timestamp is older than retained samples
+   */
+  @Override
+  public boolean getSampleAt(double timestamp, double[] sample) {
+    return m_samples.getAt(timestamp, sample);
+  }
+
+  /**
+   * Pass every sample received after timestamp to consumer, oldest first
+   * @param timestamp FPGA timestamp of last sample already consumed, in seconds
+   * @param consumer Sample consumer
+   * @return Timestamp of newest sample consumed, to pass into the next call
+   */
+  @Override
+  public double drainSamplesSince(double timestamp, TimestampedRingBuffer.SampleConsumer consumer) {
+    return m_samples.drainSince(timestamp, consumer);
+  }
+
   /**
    * Returns true if the sensor is currently performing automatic
    * gyro/accelerometer calibration. Automatic calibration occurs when the
@@ -212,6 +454,13 @@ public class NavX2 implements LoggableHardware, AutoCloseable {
     return m_navx.isCalibrating();
   }
 
+  /**
+   * NavX update rate can only be set on construction, this does nothing
+   * @param period Update period
+   */
+  @Override
+  public void setUpdatePeriod(Measure<Time> period) {}
+
   /**
    * Reset the Yaw gyro.
    * <p>
@@ -219,15 +468,18 @@ public class NavX2 implements LoggableHardware, AutoCloseable {
    * there is significant drift in the gyro and it needs to be recalibrated
    * after it has been running.
    */
+  @Override
   public void reset() {
     m_navx.reset();
     m_simNavXYaw.set(0.0);
+    m_isSampleResetRequested = true;
   }
 
   /**
    * Set yaw angle for simulator
    * @param angle Angle to set in degrees
    */
+  @Override
   public void setSimAngle(double angle) {
     m_simNavXYaw.set(angle);
   }
@@ -236,6 +488,7 @@ public class NavX2 implements LoggableHardware, AutoCloseable {
    * Get yaw angle for simulator
    * @return Simulated angle that was set
    */
+  @Override
   public double getSimAngle() {
     return m_simNavXYaw.get();
   }
@@ -245,6 +498,8 @@ public class NavX2 implements LoggableHardware, AutoCloseable {
    */
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
+    m_navx.deregisterCallback(m_sampleSubscriber);
     m_navx = null;
   }
 }
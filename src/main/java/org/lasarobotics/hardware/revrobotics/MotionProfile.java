@@ -0,0 +1,67 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+/**
+ * Mutable motion profile, stepped in place towards a goal
+ */
+public interface MotionProfile {
+  /**
+   * Reset profile state
+   * @param position Current position
+   * @param velocity Current velocity
+   */
+  public void reset(double position, double velocity);
+
+  /**
+   * Set profile goal, keeping current profile state
+   * @param position Goal position
+   * @param velocity Goal velocity
+   */
+  public void setGoal(double position, double velocity);
+
+  /**
+   * Advance profile state towards goal
+   * @param dt Time step in seconds
+   */
+  public void calculate(double dt);
+
+  /**
+   * Copy current profile state into existing state object
+   * @param state State to update
+   * @return Updated state
+   */
+  public default TrapezoidProfile.State getState(TrapezoidProfile.State state) {
+    state.position = getPosition();
+    state.velocity = getVelocity();
+    return state;
+  }
+
+  /**
+   * Get current profile position
+   * @return Profile position
+   */
+  public double getPosition();
+
+  /**
+   * Get current profile velocity
+   * @return Profile velocity
+   */
+  public double getVelocity();
+
+  /**
+   * Get goal position
+   * @return Goal position
+   */
+  public double getGoalPosition();
+
+  /**
+   * Check if profile has reached its goal
+   * @return True if profile state is at goal
+   */
+  public boolean isFinished();
+}
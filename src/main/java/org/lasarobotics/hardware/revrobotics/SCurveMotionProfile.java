@@ -0,0 +1,427 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+/**
+ * Mutable jerk-limited (S-curve) motion profile
+ * <p>
+ * Double S velocity profile from Biagiotti and Melchiorri, "Trajectory Planning for Automatic Machines and Robots",
+ * section 3.4. Segment boundaries are planned once whenever the goal, constraints or state are changed, after which each
+ * step is evaluated in constant time without allocating. Plans assume zero acceleration at the start, so retargeting
+ * mid-motion keeps position and velocity continuous but not acceleration. Goals that move every loop are better served
+ * by {@link TrapezoidMotionProfile}.
+ */
+public class SCurveMotionProfile implements MotionProfile {
+  /** S-curve profile constraints */
+  public static class Constraints {
+    public final double maxVelocity;
+    public final double maxAcceleration;
+    public final double maxJerk;
+
+    /**
+     * S-curve profile constraints
+     * @param maxVelocity Maximum velocity
+     * @param maxAcceleration Maximum acceleration
+     * @param maxJerk Maximum jerk
+     */
+    public Constraints(double maxVelocity, double maxAcceleration, double maxJerk) {
+      this.maxVelocity = Math.abs(maxVelocity);
+      this.maxAcceleration = Math.abs(maxAcceleration);
+      this.maxJerk = Math.abs(maxJerk);
+    }
+  }
+
+  /** Planned double S segment, solved in the direction of travel starting at zero */
+  private static class Segment {
+    private double m_origin;
+    private double m_direction;
+    private double m_distance;
+    private double m_initialVelocity;
+    private double m_finalVelocity;
+    private double m_limitVelocity;
+    private double m_accelerationLimit;
+    private double m_decelerationLimit;
+    private double m_jerk;
+    private double m_accelerationJerkTime;
+    private double m_accelerationTime;
+    private double m_constantVelocityTime;
+    private double m_decelerationJerkTime;
+    private double m_decelerationTime;
+    private double m_duration;
+
+    /**
+     * Plan segment from state to goal
+     * @return False if goal cannot be reached without overshooting
+     */
+    private boolean plan(double position, double velocity, double goalPosition, double goalVelocity,
+                         double maxVelocity, double maxAcceleration, double maxJerk) {
+      double h = goalPosition - position;
+      m_origin = position;
+      m_direction = h >= 0.0 ? +1.0 : -1.0;
+      m_distance = Math.abs(h);
+      m_jerk = maxJerk;
+      double v0 = clamp(velocity * m_direction, maxVelocity);
+      double v1 = clamp(goalVelocity * m_direction, maxVelocity);
+      m_initialVelocity = v0;
+      m_finalVelocity = v1;
+
+      // Already at goal
+      if (m_distance < EPSILON && Math.abs(v0) < EPSILON && Math.abs(v1) < EPSILON) {
+        setTimes(0.0, 0.0, 0.0, 0.0, 0.0);
+        return true;
+      }
+
+      // Check if goal can be reached without overshooting
+      double minJerkTime = Math.min(Math.sqrt(Math.abs(v1 - v0) / maxJerk), maxAcceleration / maxJerk);
+      boolean isFeasible = minJerkTime < maxAcceleration / maxJerk
+        ? m_distance > minJerkTime * (v0 + v1)
+        : m_distance > 0.5 * (v0 + v1) * (minJerkTime + Math.abs(v1 - v0) / maxAcceleration);
+      if (!isFeasible) return false;
+
+      double a = maxAcceleration;
+      for (int i = 0; i < MAX_ITERATIONS; i++) {
+        // Assume maximum velocity is reached
+        double tj1, ta, tj2, td;
+        if ((maxVelocity - v0) * maxJerk < a * a) {
+          tj1 = Math.sqrt((maxVelocity - v0) / maxJerk);
+          ta = 2 * tj1;
+        } else {
+          tj1 = a / maxJerk;
+          ta = tj1 + (maxVelocity - v0) / a;
+        }
+        if ((maxVelocity - v1) * maxJerk < a * a) {
+          tj2 = Math.sqrt((maxVelocity - v1) / maxJerk);
+          td = 2 * tj2;
+        } else {
+          tj2 = a / maxJerk;
+          td = tj2 + (maxVelocity - v1) / a;
+        }
+        double tv = m_distance / maxVelocity - ta / 2 * (1 + v0 / maxVelocity) - td / 2 * (1 + v1 / maxVelocity);
+        if (tv > 0.0) {
+          setTimes(tj1, ta, tv, tj2, td);
+          return true;
+        }
+
+        // Maximum velocity is not reached
+        double tj = a / maxJerk;
+        double delta = Math.pow(a, 4) / (maxJerk * maxJerk) + 2 * (v0 * v0 + v1 * v1)
+                       + a * (4 * m_distance - 2 * a / maxJerk * (v0 + v1));
+        ta = (a * a / maxJerk - 2 * v0 + Math.sqrt(delta)) / (2 * a);
+        td = (a * a / maxJerk - 2 * v1 + Math.sqrt(delta)) / (2 * a);
+        if (ta < 0.0) {
+          // Deceleration only
+          td = 2 * m_distance / (v1 + v0);
+          tj2 = (maxJerk * m_distance - Math.sqrt(maxJerk * (maxJerk * m_distance * m_distance + (v1 + v0) * (v1 + v0) * (v1 - v0))))
+                / (maxJerk * (v1 + v0));
+          setTimes(0.0, 0.0, 0.0, tj2, td);
+          return true;
+        }
+        if (td < 0.0) {
+          // Acceleration only
+          ta = 2 * m_distance / (v1 + v0);
+          tj1 = (maxJerk * m_distance - Math.sqrt(maxJerk * (maxJerk * m_distance * m_distance - (v1 + v0) * (v1 + v0) * (v1 - v0))))
+                / (maxJerk * (v1 + v0));
+          setTimes(tj1, ta, 0.0, 0.0, 0.0);
+          return true;
+        }
+        if ((ta >= 2 * tj && td >= 2 * tj) || i == MAX_ITERATIONS - 1) {
+          setTimes(tj, ta, 0.0, tj, td);
+          return true;
+        }
+
+        // Maximum acceleration is not reached either, retry with lower acceleration
+        a *= ACCELERATION_REDUCTION;
+      }
+
+      return true;
+    }
+
+    /**
+     * Plan jerk-limited stop from current velocity
+     */
+    private void planStop(double position, double velocity, double maxAcceleration, double maxJerk) {
+      double v0 = Math.abs(velocity);
+      double tj2, td;
+      if (v0 * maxJerk < maxAcceleration * maxAcceleration) {
+        tj2 = Math.sqrt(v0 / maxJerk);
+        td = 2 * tj2;
+      } else {
+        tj2 = maxAcceleration / maxJerk;
+        td = tj2 + v0 / maxAcceleration;
+      }
+
+      m_origin = position;
+      m_direction = velocity >= 0.0 ? +1.0 : -1.0;
+      m_distance = v0 * td / 2;
+      m_jerk = maxJerk;
+      m_initialVelocity = v0;
+      m_finalVelocity = 0.0;
+      setTimes(0.0, 0.0, 0.0, tj2, td);
+    }
+
+    /**
+     * Set segment phase durations and derived limits
+     */
+    private void setTimes(double tj1, double ta, double tv, double tj2, double td) {
+      m_accelerationJerkTime = tj1;
+      m_accelerationTime = ta;
+      m_constantVelocityTime = tv;
+      m_decelerationJerkTime = tj2;
+      m_decelerationTime = td;
+      m_duration = ta + tv + td;
+      m_accelerationLimit = m_jerk * tj1;
+      m_decelerationLimit = -m_jerk * tj2;
+      m_limitVelocity = ta > 0.0
+        ? m_initialVelocity + (ta - tj1) * m_accelerationLimit
+        : m_initialVelocity;
+    }
+
+    /**
+     * Get end position of segment
+     */
+    private double getEndPosition() {
+      return m_origin + m_direction * m_distance;
+    }
+
+    /**
+     * Evaluate segment position at time
+     */
+    private double getPosition(double t) {
+      double v0 = m_initialVelocity, v1 = m_finalVelocity, vlim = m_limitVelocity, j = m_jerk;
+      double tj1 = m_accelerationJerkTime, ta = m_accelerationTime, tj2 = m_decelerationJerkTime, td = m_decelerationTime;
+      double q;
+      if (t >= m_duration) {
+        q = m_distance;
+      } else if (t < tj1) {
+        q = v0 * t + j * t * t * t / 6;
+      } else if (t < ta - tj1) {
+        q = v0 * t + m_accelerationLimit / 6 * (3 * t * t - 3 * tj1 * t + tj1 * tj1);
+      } else if (t < ta) {
+        double tr = ta - t;
+        q = (vlim + v0) * ta / 2 - vlim * tr + j * tr * tr * tr / 6;
+      } else if (t < ta + m_constantVelocityTime) {
+        q = (vlim + v0) * ta / 2 + vlim * (t - ta);
+      } else {
+        double tp = t - m_duration + td;
+        if (tp < tj2) {
+          q = m_distance - (vlim + v1) * td / 2 + vlim * tp - j * tp * tp * tp / 6;
+        } else if (tp < td - tj2) {
+          q = m_distance - (vlim + v1) * td / 2 + vlim * tp
+              + m_decelerationLimit / 6 * (3 * tp * tp - 3 * tj2 * tp + tj2 * tj2);
+        } else {
+          double tr = m_duration - t;
+          q = m_distance - v1 * tr - j * tr * tr * tr / 6;
+        }
+      }
+
+      return m_origin + m_direction * q;
+    }
+
+    /**
+     * Evaluate segment velocity at time
+     */
+    private double getVelocity(double t) {
+      double v0 = m_initialVelocity, v1 = m_finalVelocity, vlim = m_limitVelocity, j = m_jerk;
+      double tj1 = m_accelerationJerkTime, ta = m_accelerationTime, tj2 = m_decelerationJerkTime, td = m_decelerationTime;
+      double v;
+      if (t >= m_duration) {
+        v = v1;
+      } else if (t < tj1) {
+        v = v0 + j * t * t / 2;
+      } else if (t < ta - tj1) {
+        v = v0 + m_accelerationLimit * (t - tj1 / 2);
+      } else if (t < ta) {
+        double tr = ta - t;
+        v = vlim - j * tr * tr / 2;
+      } else if (t < ta + m_constantVelocityTime) {
+        v = vlim;
+      } else {
+        double tp = t - m_duration + td;
+        if (tp < tj2) {
+          v = vlim - j * tp * tp / 2;
+        } else if (tp < td - tj2) {
+          v = vlim + m_decelerationLimit * (tp - tj2 / 2);
+        } else {
+          double tr = m_duration - t;
+          v = v1 + j * tr * tr / 2;
+        }
+      }
+
+      return m_direction * v;
+    }
+
+    private static double clamp(double velocity, double maxVelocity) {
+      return Math.max(-maxVelocity, Math.min(velocity, maxVelocity));
+    }
+  }
+
+  private static final int MAX_ITERATIONS = 100;
+  private static final double ACCELERATION_REDUCTION = 0.95;
+  private static final double EPSILON = 1e-9;
+
+  private double m_maxVelocity;
+  private double m_maxAcceleration;
+  private double m_maxJerk;
+  private double m_position;
+  private double m_velocity;
+  private double m_goalPosition;
+  private double m_goalVelocity;
+  private double m_time;
+  private boolean m_isPlanned;
+  private boolean m_isStopping;
+  private boolean m_isFinished;
+  private Segment m_stop;
+  private Segment m_move;
+
+  /**
+   * Create an S-curve motion profile
+   * @param maxVelocity Maximum velocity
+   * @param maxAcceleration Maximum acceleration
+   * @param maxJerk Maximum jerk
+   */
+  public SCurveMotionProfile(double maxVelocity, double maxAcceleration, double maxJerk) {
+    this.m_stop = new Segment();
+    this.m_move = new Segment();
+    this.m_isFinished = true;
+    setConstraints(maxVelocity, maxAcceleration, maxJerk);
+  }
+
+  /**
+   * Create an S-curve motion profile with no constraints set
+   */
+  public SCurveMotionProfile() {
+    this(0.0, 0.0, 0.0);
+  }
+
+  /**
+   * Set profile constraints, replanning from the current state if changed
+   * @param maxVelocity Maximum velocity
+   * @param maxAcceleration Maximum acceleration
+   * @param maxJerk Maximum jerk
+   */
+  public void setConstraints(double maxVelocity, double maxAcceleration, double maxJerk) {
+    maxVelocity = Math.abs(maxVelocity);
+    maxAcceleration = Math.abs(maxAcceleration);
+    maxJerk = Math.abs(maxJerk);
+    if (maxVelocity == m_maxVelocity && maxAcceleration == m_maxAcceleration && maxJerk == m_maxJerk) return;
+
+    m_maxVelocity = maxVelocity;
+    m_maxAcceleration = maxAcceleration;
+    m_maxJerk = maxJerk;
+    m_isPlanned = false;
+  }
+
+  /**
+   * Set profile constraints, replanning from the current state if changed
+   * @param constraints Profile constraints
+   */
+  public void setConstraints(Constraints constraints) {
+    setConstraints(constraints.maxVelocity, constraints.maxAcceleration, constraints.maxJerk);
+  }
+
+  @Override
+  public void reset(double position, double velocity) {
+    m_position = position;
+    m_velocity = velocity;
+    m_isPlanned = false;
+    m_isFinished = false;
+  }
+
+  /**
+   * Set profile goal, replanning from the current state if changed
+   * @param position Goal position
+   * @param velocity Goal velocity
+   */
+  @Override
+  public void setGoal(double position, double velocity) {
+    if (position == m_goalPosition && velocity == m_goalVelocity && m_isPlanned) {
+      m_isFinished = false;
+      return;
+    }
+
+    m_goalPosition = position;
+    m_goalVelocity = velocity;
+    m_isPlanned = false;
+    m_isFinished = false;
+  }
+
+  /**
+   * Plan segments from current state to goal
+   */
+  private void plan() {
+    m_time = 0.0;
+    m_isPlanned = true;
+    m_isStopping = false;
+
+    if (m_move.plan(m_position, m_velocity, m_goalPosition, m_goalVelocity, m_maxVelocity, m_maxAcceleration, m_maxJerk))
+      return;
+
+    // Goal would be overshot, stop first then move to goal from rest
+    m_isStopping = true;
+    m_stop.planStop(m_position, m_velocity, m_maxAcceleration, m_maxJerk);
+    if (m_move.plan(m_stop.getEndPosition(), 0.0, m_goalPosition, m_goalVelocity, m_maxVelocity, m_maxAcceleration, m_maxJerk))
+      return;
+    m_move.plan(m_stop.getEndPosition(), 0.0, m_goalPosition, 0.0, m_maxVelocity, m_maxAcceleration, m_maxJerk);
+  }
+
+  @Override
+  public void calculate(double dt) {
+    if (m_isFinished) return;
+    if (m_maxVelocity <= 0.0 || m_maxAcceleration <= 0.0 || m_maxJerk <= 0.0) {
+      m_position = m_goalPosition;
+      m_velocity = m_goalVelocity;
+      m_isFinished = true;
+      return;
+    }
+    if (!m_isPlanned) plan();
+
+    m_time += dt;
+    double t = m_time;
+    if (m_isStopping) {
+      if (t < m_stop.m_duration) {
+        m_position = m_stop.getPosition(t);
+        m_velocity = m_stop.getVelocity(t);
+        return;
+      }
+      t -= m_stop.m_duration;
+    }
+
+    m_position = m_move.getPosition(t);
+    m_velocity = m_move.getVelocity(t);
+    if (t >= m_move.m_duration) {
+      m_position = m_goalPosition;
+      m_isFinished = true;
+    }
+  }
+
+  /**
+   * Get total duration of current plan, including any stop required before moving to goal
+   * @return Duration in seconds
+   */
+  public double getDuration() {
+    if (!m_isPlanned) plan();
+    return (m_isStopping ? m_stop.m_duration : 0.0) + m_move.m_duration;
+  }
+
+  @Override
+  public double getPosition() {
+    return m_position;
+  }
+
+  @Override
+  public double getVelocity() {
+    return m_velocity;
+  }
+
+  @Override
+  public double getGoalPosition() {
+    return m_goalPosition;
+  }
+
+  @Override
+  public boolean isFinished() {
+    return m_isFinished;
+  }
+}
@@ -0,0 +1,122 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import java.util.ArrayList;
+import java.util.function.DoubleConsumer;
+
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.units.Units;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Smooth motion executor
+ * <p>
+ * Steps all active smooth motion profiles from one shared thread at a fixed rate, independent of the robot loop
+ */
+public class SmoothMotionExecutor {
+  private static SmoothMotionExecutor m_executor;
+
+  private static final String THREAD_NAME = "SmoothMotion";
+  private static final double MAX_DT = 0.1;
+
+  private ArrayList<DoubleConsumer> m_tasks;
+  private Notifier m_thread;
+  private double m_period;
+  private double m_lastTimestamp;
+  private volatile boolean m_isRunning;
+
+  private SmoothMotionExecutor() {
+    this.m_tasks = new ArrayList<>();
+    this.m_period = 0.0;
+    this.m_lastTimestamp = Double.NaN;
+    this.m_isRunning = false;
+  }
+
+  /**
+   * Get instance of smooth motion executor
+   * @return Smooth motion executor instance
+   */
+  public static synchronized SmoothMotionExecutor getInstance() {
+    if (m_executor == null) m_executor = new SmoothMotionExecutor();
+    return m_executor;
+  }
+
+  /**
+   * Step all active profiles
+   * @param timestamp Current time in seconds
+   */
+  synchronized void run(double timestamp) {
+    // Use measured time step, nominal period after a long stall
+    double dt = timestamp - m_lastTimestamp;
+    if (Double.isNaN(m_lastTimestamp)) dt = 0.0;
+    else if (!(dt >= 0.0 && dt < MAX_DT)) dt = m_period;
+    m_lastTimestamp = timestamp;
+
+    for (int i = 0; i < m_tasks.size(); i++) m_tasks.get(i).accept(dt);
+  }
+
+  /**
+   * Add profile to be stepped
+   * @param task Task that steps profile by given time step
+   */
+  synchronized void add(DoubleConsumer task) {
+    if (!m_tasks.contains(task)) m_tasks.add(task);
+  }
+
+  /**
+   * Remove profile from executor
+   * @param task Task to remove
+   */
+  synchronized void remove(DoubleConsumer task) {
+    m_tasks.remove(task);
+  }
+
+  /**
+   * Set nominal period and restart time step measurement
+   * @param period Nominal period
+   */
+  synchronized void setPeriod(Measure<Time> period) {
+    m_period = period.in(Units.Seconds);
+    m_lastTimestamp = Double.NaN;
+  }
+
+  /**
+   * Start stepping smooth motion profiles at a fixed rate
+   * <p>
+   * Once started, every Spark sends smooth motion setpoints from the executor thread instead of its periodic method,
+   * so feed forward functions passed to {@link Spark#smoothMotion} must be thread-safe
+   * @param period Period to step profiles at
+   */
+  public synchronized void start(Measure<Time> period) {
+    if (m_thread == null) {
+      m_thread = new Notifier(() -> run(RobotController.getFPGATime() / 1e6));
+      m_thread.setName(THREAD_NAME);
+    }
+
+    setPeriod(period);
+    m_thread.startPeriodic(m_period);
+    m_isRunning = true;
+  }
+
+  /**
+   * Stop stepping smooth motion profiles, returning to stepping in each Spark's periodic method
+   */
+  public synchronized void stop() {
+    if (m_thread != null) m_thread.stop();
+    m_tasks.clear();
+    m_isRunning = false;
+  }
+
+  /**
+   * Check if executor is running
+   * @return True if running
+   */
+  public boolean isRunning() {
+    return m_isRunning;
+  }
+}
@@ -4,12 +4,35 @@
 
 package org.lasarobotics.hardware.revrobotics;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BooleanSupplier;
-import java.util.function.Function;
+import java.util.function.DoubleConsumer;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.zip.CRC32;
 
 import org.apache.commons.math3.util.Precision;
+import org.lasarobotics.hardware.CircuitBreaker;
+import org.lasarobotics.hardware.HardwareManager;
+import org.lasarobotics.hardware.LogKeys;
 import org.lasarobotics.hardware.LoggableHardware;
+import org.lasarobotics.hardware.OutputCommitStage;
 import org.lasarobotics.utils.GlobalConstants;
 import org.littletonrobotics.junction.AutoLog;
 import org.littletonrobotics.junction.Logger;
@@ -22,10 +45,10 @@ import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkBase.SoftLimitDirection;
 import com.revrobotics.CANSparkFlex;
 import com.revrobotics.CANSparkLowLevel.MotorType;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.MotorFeedbackSensor;
 import com.revrobotics.REVLibError;
-import com.revrobotics.REVPhysicsSim;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkAbsoluteEncoder;
 import com.revrobotics.SparkAnalogSensor;
@@ -93,6 +116,14 @@ public class Spark implements LoggableHardware, AutoCloseable {
     NEO_ENCODER, ANALOG, THROUGH_BORE_ENCODER;
   }
 
+  /** Smooth motion backend */
+  public enum SmoothMotionBackend {
+    /** Profile is computed on the roboRIO and sent as position setpoints */
+    ROBORIO,
+    /** Profile is computed by the Spark using Smart Motion, only the goal is sent */
+    SPARK;
+  }
+
   /**
    * Spark sensor inputs
    */
@@ -100,52 +131,129 @@ public class Spark implements LoggableHardware, AutoCloseable {
   public static class SparkInputs {
     public double encoderPosition = 0.0;
     public double encoderVelocity = 0.0;
+    public double encoderAcceleration = 0.0;
+    public double encoderTimestamp = 0.0;
     public double analogPosition = 0.0;
     public double analogVelocity = 0.0;
+    public double analogTimestamp = 0.0;
     public double absoluteEncoderPosition = 0.0;
     public double absoluteEncoderVelocity = 0.0;
+    public double absoluteEncoderTimestamp = 0.0;
     public boolean forwardLimitSwitch = false;
     public boolean reverseLimitSwitch = false;
+    public double limitSwitchTimestamp = 0.0;
   }
 
   private static final int CAN_TIMEOUT_MS = 50;
+  private static final int RUNTIME_CAN_TIMEOUT_MS = 0;
+  private static final int BREAKER_FAILURE_THRESHOLD = 5;
+  private static final double BREAKER_PROBE_PERIOD = 1.0;
   private static final int PID_SLOT = 0;
   private static final int MAX_ATTEMPTS = 20;
   private static final int SPARK_MAX_MEASUREMENT_PERIOD = 16;
   private static final int SPARK_FLEX_MEASUREMENT_PERIOD = 32;
   private static final int SPARK_MAX_AVERAGE_DEPTH = 2;
   private static final int SPARK_FLEX_AVERAGE_DEPTH = 8;
+  private static final double SECONDS_PER_MINUTE = 60.0;
+  private static final int FAST_STATUS_FRAME_PERIOD = 10;
+  private static final int DEFAULT_STATUS_FRAME_PERIOD = 20;
+  private static final int DISABLED_STATUS_FRAME_PERIOD = 65535;
   private static final double EPSILON = 2e-8;
   private static final double MAX_VOLTAGE = 12.0;
+  private static final int NOT_SIMULATED = -1;
   private static final double BURN_FLASH_WAIT_TIME = 0.5;
   private static final double APPLY_PARAMETER_WAIT_TIME = 0.1;
   private static final double SMOOTH_MOTION_DEBOUNCE_TIME = 0.1;
+  private static final double DEFAULT_SETPOINT_EPSILON = 1e-6;
+  private static final double DEFAULT_SETPOINT_REFRESH_PERIOD = 0.1;
+  private static final double DEFAULT_STALE_THRESHOLD = 0.1;
   private static final String VALUE_LOG_ENTRY = "/OutputValue";
   private static final String MODE_LOG_ENTRY = "/OutputMode";
   private static final String CURRENT_LOG_ENTRY = "/Current";
   private static final String TEMPERATURE_LOG_ENTRY = "/Temperature";
   private static final String MOTION_LOG_ENTRY = "/SmoothMotion";
-
+  private static final String MOTION_ERROR_LOG_ENTRY = "/SmoothMotionError";
+  private static final String SETPOINTS_SENT_LOG_ENTRY = "/SetpointsSent";
+  private static final String SETPOINTS_SUPPRESSED_LOG_ENTRY = "/SetpointsSuppressed";
+  private static final String INPUT_AGE_LOG_ENTRY = "/InputAge";
+  private static final String INPUT_STALE_LOG_ENTRY = "/InputStale";
+  private static final String CIRCUIT_BREAKER_LOG_ENTRY = "/CircuitBreaker";
+  private static final String PARAMETER_THREAD_NAME = "SparkParameters";
+  private static final String CONFIGURATION_FILE_FORMAT = "spark-%d-config.txt";
+
+  private static final ExecutorService PARAMETER_EXECUTOR = Executors.newCachedThreadPool((runnable) -> {
+    Thread thread = new Thread(runnable, PARAMETER_THREAD_NAME);
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final Set<CompletableFuture<REVLibError>> PENDING_PARAMETERS = ConcurrentHashMap.newKeySet();
+  private static final Set<Spark> UNCOMMITTED_SPARKS = ConcurrentHashMap.newKeySet();
 
   private CANSparkBase m_spark;
 
   private ID m_id;
+  private LogKeys m_logKeys;
   private MotorKind m_kind;
   private SparkInputsAutoLogged m_inputs;
+  private int m_simIndex;
 
   private boolean m_isSmoothMotionEnabled;
   private Debouncer m_smoothMotionFinishedDebouncer;
   private TrapezoidProfile.State m_desiredState;
   private TrapezoidProfile.State m_smoothMotionState;
-  private Supplier<TrapezoidProfile.State> m_currentStateSupplier;
-  private Function<TrapezoidProfile.State, Double> m_feedforwardSupplier;
-
-  private TrapezoidProfile m_motionProfile;
-  private TrapezoidProfile.Constraints m_motionConstraint;
+  private TrapezoidProfile.State m_currentState;
+  private ToDoubleFunction<TrapezoidProfile.State> m_feedforwardSupplier;
+
+  private TrapezoidMotionProfile m_trapezoidProfile;
+  private SCurveMotionProfile m_sCurveProfile;
+  private MotionProfile m_motionProfile;
+  private SmoothMotionBackend m_smoothMotionBackend;
+  private double m_smartMotionMaxVelocity;
+  private double m_smartMotionMaxAcceleration;
+  private DoubleConsumer m_smoothMotionTask;
+  private Object m_smoothMotionLock;
   private SparkPIDConfig m_config;
   private FeedbackSensor m_feedbackSensor;
   private SparkLimitSwitch.Type m_limitSwitchType = SparkLimitSwitch.Type.kNormallyOpen;
   private RelativeEncoder m_encoder;
+  private VelocityEstimator m_velocityEstimator;
+  private double m_encoderPositionConversionFactor;
+  private double m_encoderVelocityConversionFactor;
+  private boolean m_isForwardLimitSwitchEnabled;
+  private boolean m_isReverseLimitSwitchEnabled;
+  private boolean m_isLeader;
+  private int[] m_statusFramePeriods;
+  private int m_sensorStatusFramePeriod;
+  private double m_setpointEpsilon;
+  private double m_setpointRefreshPeriod;
+  private double m_inputAge;
+  private double m_staleThreshold;
+  private boolean m_isStaleStopEnabled;
+  private volatile boolean m_isStale;
+  private boolean m_isInputReadFailed;
+  private CircuitBreaker m_circuitBreaker;
+  private Runnable m_commitTask;
+  private double m_pendingValue;
+  private ControlType m_pendingControlType;
+  private double m_pendingArbFeedforward;
+  private SparkPIDController.ArbFFUnits m_pendingArbFFUnits;
+  private boolean m_hasPendingOutput;
+  private double m_lastReferenceValue;
+  private ControlType m_lastReferenceControlType;
+  private double m_lastReferenceArbFeedforward;
+  private SparkPIDController.ArbFFUnits m_lastReferenceArbFFUnits;
+  private double m_lastReferenceTimestamp;
+  private long m_setpointsSent;
+  private long m_setpointsSuppressed;
+  private CompletableFuture<REVLibError> m_parameterQueue;
+  private CompletableFuture<REVLibError> m_configurationGate;
+  private Map<String, String> m_configuration;
+  private String m_configurationOutputPath;
+  private volatile boolean m_isConfigurationCurrent;
+  private volatile boolean m_isConfigurationDirty;
+  private volatile boolean m_isConfigurationFailed;
+  private volatile boolean m_isRuntimeCANTimeout;
+  private boolean m_isConstructed;
 
   /**
    * Create a Spark that is unit-testing friendly with built-in logging
@@ -160,20 +268,75 @@ public class Spark implements LoggableHardware, AutoCloseable {
     } else {
       this.m_spark = new CANSparkMax(id.deviceID, kind.type);
       this.m_encoder = m_spark.getEncoder(SparkRelativeEncoder.Type.kHallSensor, GlobalConstants.NEO_ENCODER_TICKS_PER_ROTATION);
-      REVPhysicsSim.getInstance().addSparkMax((CANSparkMax)m_spark, kind.motor);
     }
     this.m_id = id;
+    this.m_logKeys = new LogKeys(
+      m_id.name,
+      VALUE_LOG_ENTRY, MODE_LOG_ENTRY, CURRENT_LOG_ENTRY, TEMPERATURE_LOG_ENTRY, MOTION_LOG_ENTRY, MOTION_ERROR_LOG_ENTRY,
+      SETPOINTS_SENT_LOG_ENTRY, SETPOINTS_SUPPRESSED_LOG_ENTRY, INPUT_AGE_LOG_ENTRY, INPUT_STALE_LOG_ENTRY,
+      CIRCUIT_BREAKER_LOG_ENTRY
+    );
     this.m_kind = kind;
     this.m_inputs = new SparkInputsAutoLogged();
+    this.m_simIndex = RobotBase.isSimulation() ? SparkSim.getInstance().add(kind.motor, m_inputs) : NOT_SIMULATED;
     this.m_isSmoothMotionEnabled = false;
+    this.m_smoothMotionFinishedDebouncer = new Debouncer(SMOOTH_MOTION_DEBOUNCE_TIME);
+    this.m_desiredState = new TrapezoidProfile.State();
+    this.m_smoothMotionState = new TrapezoidProfile.State();
+    this.m_currentState = new TrapezoidProfile.State();
+    this.m_feedforwardSupplier = (motionProfileState) -> 0.0;
+    this.m_trapezoidProfile = new TrapezoidMotionProfile();
+    this.m_sCurveProfile = new SCurveMotionProfile();
+    this.m_motionProfile = m_trapezoidProfile;
+    this.m_smoothMotionBackend = SmoothMotionBackend.ROBORIO;
+    this.m_smartMotionMaxVelocity = Double.NaN;
+    this.m_smartMotionMaxAcceleration = Double.NaN;
+    this.m_smoothMotionTask = this::stepSmoothMotion;
+    this.m_smoothMotionLock = new Object();
     this.m_limitSwitchType = limitSwitchType;
-
-    // Set CAN timeout
+    this.m_feedbackSensor = FeedbackSensor.NEO_ENCODER;
+    this.m_velocityEstimator = null;
+    this.m_encoderPositionConversionFactor = 1.0;
+    this.m_encoderVelocityConversionFactor = 1.0;
+    this.m_isForwardLimitSwitchEnabled = false;
+    this.m_isReverseLimitSwitchEnabled = false;
+    this.m_isLeader = false;
+    this.m_statusFramePeriods = new int[PeriodicFrame.values().length];
+    this.m_sensorStatusFramePeriod = FAST_STATUS_FRAME_PERIOD;
+    this.m_setpointEpsilon = DEFAULT_SETPOINT_EPSILON;
+    this.m_setpointRefreshPeriod = DEFAULT_SETPOINT_REFRESH_PERIOD;
+    this.m_inputAge = 0.0;
+    this.m_staleThreshold = DEFAULT_STALE_THRESHOLD;
+    this.m_isStaleStopEnabled = false;
+    this.m_isStale = false;
+    this.m_isInputReadFailed = false;
+    this.m_circuitBreaker = new CircuitBreaker(BREAKER_FAILURE_THRESHOLD, BREAKER_PROBE_PERIOD);
+    this.m_commitTask = this::commitOutput;
+    this.m_hasPendingOutput = false;
+    this.m_lastReferenceControlType = null;
+    this.m_setpointsSent = 0;
+    this.m_setpointsSuppressed = 0;
+    this.m_configurationGate = new CompletableFuture<>();
+    this.m_parameterQueue = RobotBase.isSimulation() ? CompletableFuture.completedFuture(REVLibError.kOk) : m_configurationGate;
+    this.m_configuration = new TreeMap<>();
+    this.m_configurationOutputPath = String.format(CONFIGURATION_FILE_FORMAT, id.deviceID);
+    this.m_isConfigurationCurrent = false;
+    this.m_isConfigurationDirty = true;
+    this.m_isConfigurationFailed = false;
+    this.m_isRuntimeCANTimeout = false;
+    this.m_isConstructed = false;
+    recordConfiguration("LimitSwitchType", limitSwitchType);
+    UNCOMMITTED_SPARKS.add(this);
+
+    // Block on CAN while configuring, lowered to non-blocking once the configuration batch is applied
     m_spark.setCANTimeout(CAN_TIMEOUT_MS);
 
-    // Restore defaults
-    m_spark.restoreFactoryDefaults();
-    m_spark.enableVoltageCompensation(MAX_VOLTAGE);
+    // Restore defaults, unless the controller already holds the desired configuration
+    queueTask(() -> {
+      if (m_isConfigurationCurrent) return REVLibError.kOk;
+      return applyParameter(() -> m_spark.restoreFactoryDefaults(), "Restore factory defaults failure!");
+    });
+    enableVoltageCompensation();
 
     // Fix velocity measurements
     if (getMotorType() == MotorType.kBrushless) {
@@ -181,8 +344,16 @@ public class Spark implements LoggableHardware, AutoCloseable {
       setAverageDepth();
     }
 
+    // Only stream status frames that are used
+    applyStatusFrameProfile();
+
+    // Register with hardware manager and for deferred output
+    HardwareManager.getInstance().register(m_id.name, this);
+    OutputCommitStage.getInstance().register(m_id.name, m_commitTask);
+
     // Refresh inputs on initialization
     periodic();
+    m_isConstructed = true;
   }
 
   /**
@@ -208,11 +379,6 @@ public class Spark implements LoggableHardware, AutoCloseable {
     this(id, kind);
 
     this.m_config = config;
-    this.m_smoothMotionFinishedDebouncer = new Debouncer(SMOOTH_MOTION_DEBOUNCE_TIME);
-    this.m_desiredState = new TrapezoidProfile.State();
-    this.m_smoothMotionState = new TrapezoidProfile.State();
-    this.m_feedforwardSupplier = (motionProfileState) -> 0.0;
-    this.m_currentStateSupplier = () -> new TrapezoidProfile.State(getInputs().encoderPosition, getInputs().encoderVelocity);
     initializeSparkPID(m_config, feedbackSensor);
   }
 
@@ -231,41 +397,262 @@ public class Spark implements LoggableHardware, AutoCloseable {
 
   /**
    * Attempt to apply parameter and check if specified parameter is set correctly
+   * <p>
+   * Blocks until the parameter is verified or all attempts are exhausted, only call from the parameter thread
    * @param parameterSetter Method to set desired parameter
    * @param parameterCheckSupplier Method to check for parameter in question
    * @return {@link REVLibError#kOk} if successful
    */
   private REVLibError applyParameter(Supplier<REVLibError> parameterSetter, BooleanSupplier parameterCheckSupplier, String errorMessage) {
-    if (RobotBase.isSimulation()) return parameterSetter.get();
-    if (parameterCheckSupplier.getAsBoolean()) return REVLibError.kOk;
-
-    REVLibError status = REVLibError.kError;
-    for (int i = 0; i < MAX_ATTEMPTS; i++) {
-      status = parameterSetter.get();
-      if (parameterCheckSupplier.getAsBoolean() && status == REVLibError.kOk) break;
-      Timer.delay(APPLY_PARAMETER_WAIT_TIME);
+    return withBlockingCANTimeout(() -> {
+      if (parameterCheckSupplier.getAsBoolean()) return REVLibError.kOk;
+
+      REVLibError status = REVLibError.kError;
+      for (int i = 0; i < MAX_ATTEMPTS; i++) {
+        status = parameterSetter.get();
+        if (parameterCheckSupplier.getAsBoolean() && status == REVLibError.kOk) return status;
+        Timer.delay(APPLY_PARAMETER_WAIT_TIME);
+      }
+
+      // Parameter could not be verified
+      if (status == REVLibError.kOk) status = REVLibError.kError;
+      checkStatus(status, errorMessage);
+      return status;
+    });
+  }
+
+  /**
+   * Attempt to apply parameter that cannot be read back, retrying until the controller acknowledges it
+   * <p>
+   * Blocks until the parameter is acknowledged or all attempts are exhausted, only call from the parameter thread
+   * @param parameterSetter Method to set desired parameter
+   * @return {@link REVLibError#kOk} if successful
+   */
+  private REVLibError applyParameter(Supplier<REVLibError> parameterSetter, String errorMessage) {
+    return withBlockingCANTimeout(() -> {
+      REVLibError status = REVLibError.kError;
+      for (int i = 0; i < MAX_ATTEMPTS; i++) {
+        status = parameterSetter.get();
+        if (status == REVLibError.kOk) return status;
+        Timer.delay(APPLY_PARAMETER_WAIT_TIME);
+      }
+
+      checkStatus(status, errorMessage);
+      return status;
+    });
+  }
+
+  /**
+   * Run parameter task with the blocking CAN timeout, so that writes are acknowledged and read backs are answered
+   * <p>
+   * Once the device is lowered to the non-blocking runtime CAN timeout, the timeout is only raised for the duration of
+   * the task, only call from the parameter thread
+   * @param task Parameter task to run
+   * @return Result of parameter task
+   */
+  private REVLibError withBlockingCANTimeout(Supplier<REVLibError> task) {
+    if (!m_isRuntimeCANTimeout) return task.get();
+
+    m_spark.setCANTimeout(CAN_TIMEOUT_MS);
+    try {
+      return task.get();
+    } finally {
+      m_spark.setCANTimeout(RUNTIME_CAN_TIMEOUT_MS);
     }
+  }
 
-    checkStatus(status, errorMessage);
-    return status;
+  /**
+   * Queue a task on this device's parameter queue
+   * <p>
+   * Tasks for a single device run in order, tasks for different devices run concurrently on a background thread
+   * @param task Task to run
+   * @return Future that completes with the result of the task
+   */
+  private synchronized CompletableFuture<REVLibError> queueTask(Supplier<REVLibError> task) {
+    if (RobotBase.isSimulation()) return CompletableFuture.completedFuture(task.get());
+
+    // Keep the queue running even if a previous task failed
+    m_parameterQueue = m_parameterQueue.handleAsync((previousStatus, exception) -> task.get(), PARAMETER_EXECUTOR);
+
+    CompletableFuture<REVLibError> future = m_parameterQueue;
+    PENDING_PARAMETERS.add(future);
+    future.whenComplete((status, exception) -> {
+      PENDING_PARAMETERS.remove(future);
+      if (exception != null) System.err.println(String.join(" ", m_id.name, "Parameter task failure!", exception.toString()));
+    });
+
+    return future;
+  }
+
+  /**
+   * Queue return to non-blocking CAN timeout, so that an absent device cannot stall the robot loop
+   * <p>
+   * The CAN timeout applies to the whole device, so later parameter tasks raise it only while they run
+   * @return Future that completes with {@link REVLibError#kOk} if successful
+   */
+  private CompletableFuture<REVLibError> queueRuntimeCANTimeout() {
+    return queueTask(() -> {
+      REVLibError status = m_spark.setCANTimeout(RUNTIME_CAN_TIMEOUT_MS);
+      m_isRuntimeCANTimeout = status == REVLibError.kOk;
+      return status;
+    });
+  }
+
+
+  /**
+   * Queue parameter to be applied and verified in the background
+   * @param parameterSetter Method to set desired parameter
+   * @param parameterCheckSupplier Method to check for parameter in question
+   * @return Future that completes with {@link REVLibError#kOk} if successful
+   */
+  private CompletableFuture<REVLibError> queueParameter(Supplier<REVLibError> parameterSetter, BooleanSupplier parameterCheckSupplier, String errorMessage) {
+    if (RobotBase.isSimulation()) return CompletableFuture.completedFuture(parameterSetter.get());
+    return queueTask(() -> applyParameter(parameterSetter, parameterCheckSupplier, errorMessage));
   }
 
   /**
-   * Attempt to apply parameter and check if specified parameter is set correctly, for void setters
+   * Queue parameter to be applied and verified in the background, for void setters
    * @param parameterSetter Method to set desired parameter
    * @param parameterCheckSupplier Method to check for parameter in question
+   * @return Future that completes with {@link REVLibError#kOk} if successful
    */
-  private void applyParameter(Runnable parameterSetter, BooleanSupplier parameterCheckSupplier, String errorMessage) {
-    if (RobotBase.isSimulation()) return;
-    if (parameterCheckSupplier.getAsBoolean()) return;
+  private CompletableFuture<REVLibError> queueParameter(Runnable parameterSetter, BooleanSupplier parameterCheckSupplier, String errorMessage) {
+    if (RobotBase.isSimulation()) return CompletableFuture.completedFuture(REVLibError.kOk);
+    return queueParameter(() -> {
+      parameterSetter.run();
+      return REVLibError.kOk;
+    }, parameterCheckSupplier, errorMessage);
+  }
 
-    for (int i = 0; i < MAX_ATTEMPTS; i++) {
+  /**
+   * Queue parameter that cannot be read back to be applied in the background
+   * @param parameterSetter Method to set desired parameter
+   * @return Future that completes with {@link REVLibError#kOk} if successful
+   */
+  private CompletableFuture<REVLibError> queueParameter(Supplier<REVLibError> parameterSetter, String errorMessage) {
+    if (RobotBase.isSimulation()) return CompletableFuture.completedFuture(parameterSetter.get());
+    return queueTask(() -> applyParameter(parameterSetter, errorMessage));
+  }
+
+  /**
+   * Record persistent parameter in configuration snapshot and queue it to be applied in the background
+   * <p>
+   * The parameter is only written if the controller does not already hold the desired value. Once the configuration
+   * is committed, the parameter is applied as a runtime change instead, which is not recorded in the configuration
+   * snapshot and does not mark the configuration to be burned to flash.
+   * @param name Name of parameter in configuration snapshot
+   * @param value Desired value of parameter
+   * @param parameterSetter Method to set desired parameter
+   * @param parameterCheckSupplier Method to check for parameter in question
+   * @return Future that completes with {@link REVLibError#kOk} if successful
+   */
+  private CompletableFuture<REVLibError> queueConfiguration(String name, Object value,
+                                                            Supplier<REVLibError> parameterSetter,
+                                                            BooleanSupplier parameterCheckSupplier,
+                                                            String errorMessage) {
+    if (m_configurationGate.isDone()) return queueParameter(parameterSetter, parameterCheckSupplier, errorMessage);
+
+    recordConfiguration(name, value);
+    if (RobotBase.isSimulation()) return CompletableFuture.completedFuture(parameterSetter.get());
+    return queueTask(() -> {
+      if (parameterCheckSupplier.getAsBoolean()) return REVLibError.kOk;
+
+      m_isConfigurationDirty = true;
+      REVLibError status = applyParameter(parameterSetter, parameterCheckSupplier, errorMessage);
+      if (status != REVLibError.kOk) m_isConfigurationFailed = true;
+      return status;
+    });
+  }
+
+  /**
+   * Record persistent parameter in configuration snapshot and queue it to be applied in the background, for void setters
+   * @param name Name of parameter in configuration snapshot
+   * @param value Desired value of parameter
+   * @param parameterSetter Method to set desired parameter
+   * @param parameterCheckSupplier Method to check for parameter in question
+   * @return Future that completes with {@link REVLibError#kOk} if successful
+   */
+  private CompletableFuture<REVLibError> queueConfiguration(String name, Object value,
+                                                            Runnable parameterSetter,
+                                                            BooleanSupplier parameterCheckSupplier,
+                                                            String errorMessage) {
+    return queueConfiguration(name, value, () -> {
       parameterSetter.run();
-      if (parameterCheckSupplier.getAsBoolean()) return;
-      Timer.delay(APPLY_PARAMETER_WAIT_TIME);
+      return REVLibError.kOk;
+    }, parameterCheckSupplier, errorMessage);
+  }
+
+  /**
+   * Record persistent parameter that cannot be read back in configuration snapshot and queue it to be applied in the background
+   * <p>
+   * Parameters that cannot be read back are always written. Once the configuration is committed, the parameter is
+   * applied as a runtime change instead, which is not recorded in the configuration snapshot.
+   * @param name Name of parameter in configuration snapshot
+   * @param value Desired value of parameter
+   * @param parameterSetter Method to set desired parameter
+   * @return Future that completes with {@link REVLibError#kOk} if successful
+   */
+  private CompletableFuture<REVLibError> queueConfiguration(String name, Object value,
+                                                            Supplier<REVLibError> parameterSetter,
+                                                            String errorMessage) {
+    if (m_configurationGate.isDone()) return queueParameter(parameterSetter, errorMessage);
+
+    recordConfiguration(name, value);
+    if (RobotBase.isSimulation()) return CompletableFuture.completedFuture(parameterSetter.get());
+    return queueTask(() -> {
+      REVLibError status = applyParameter(parameterSetter, errorMessage);
+      if (status != REVLibError.kOk) m_isConfigurationFailed = true;
+      return status;
+    });
+  }
+
+  /**
+   * Record desired value of persistent parameter in configuration snapshot
+   * @param name Name of parameter
+   * @param value Desired value of parameter
+   */
+  private synchronized void recordConfiguration(String name, Object value) {
+    m_configuration.put(name, String.valueOf(value));
+  }
+
+  /**
+   * Get fingerprint of desired configuration
+   * @return CRC32 of configuration snapshot as hex string
+   */
+  private synchronized String getConfigurationFingerprint() {
+    CRC32 crc = new CRC32();
+    crc.update(m_kind.name().getBytes(StandardCharsets.UTF_8));
+    for (Map.Entry<String, String> entry : m_configuration.entrySet())
+      crc.update(String.join("=", entry.getKey(), entry.getValue()).concat("\n").getBytes(StandardCharsets.UTF_8));
+
+    return Long.toHexString(crc.getValue());
+  }
+
+  /**
+   * Read fingerprint of configuration last burned to flash
+   * @return Persisted fingerprint, empty if none exists
+   */
+  private String readConfigurationFingerprint() {
+    if (!new File(m_configurationOutputPath).exists()) return "";
+    try {
+      return new String(Files.readAllBytes(Paths.get(m_configurationOutputPath)), StandardCharsets.UTF_8).trim();
+    } catch (IOException e) {
+      System.err.println(String.join(" ", m_id.name, "Failed to read configuration fingerprint!"));
+      return "";
     }
+  }
 
-    System.err.println(String.join(" ", m_id.name, errorMessage));
+  /**
+   * Persist fingerprint of configuration burned to flash
+   * @param fingerprint Fingerprint to persist, empty to clear
+   */
+  private void writeConfigurationFingerprint(String fingerprint) {
+    try {
+      if (fingerprint.isEmpty()) Files.deleteIfExists(Paths.get(m_configurationOutputPath));
+      else Files.write(Paths.get(m_configurationOutputPath), fingerprint.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      System.err.println(String.join(" ", m_id.name, "Failed to write configuration fingerprint!"));
+    }
   }
 
   /**
@@ -284,8 +671,51 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param ctrl Control mode that was used
    */
   private void logOutputs(double value, ControlType ctrl) {
-    Logger.recordOutput(m_id.name + VALUE_LOG_ENTRY, value);
-    Logger.recordOutput(m_id.name + MODE_LOG_ENTRY, ctrl.toString());
+    Logger.recordOutput(m_logKeys.get(VALUE_LOG_ENTRY), value);
+    Logger.recordOutput(m_logKeys.get(MODE_LOG_ENTRY), LogKeys.toString(ctrl));
+  }
+
+  /**
+   * Send reference to Spark PID controller, unless it matches the last reference sent
+   * <p>
+   * A matching reference is still sent if the last one is older than the refresh period
+   * @param value Value to set
+   * @param ctrl Desired control mode
+   * @param arbFeedforward Feed forward value
+   * @param arbFFUnits Feed forward units
+   */
+  private void setReference(double value, ControlType ctrl, double arbFeedforward, SparkPIDController.ArbFFUnits arbFFUnits) {
+    // May be called from smooth motion executor thread
+    synchronized (m_smoothMotionLock) {
+      // Refuse closed loop references while inputs are stale
+      if (m_isStale && m_isStaleStopEnabled && isClosedLoop(ctrl)) {
+        if (m_lastReferenceControlType != null) m_spark.stopMotor();
+        m_lastReferenceControlType = null;
+        m_setpointsSuppressed++;
+        return;
+      }
+
+      double timestamp = Timer.getFPGATimestamp();
+      if (ctrl == m_lastReferenceControlType
+          && arbFFUnits == m_lastReferenceArbFFUnits
+          && Precision.equals(value, m_lastReferenceValue, m_setpointEpsilon)
+          && Precision.equals(arbFeedforward, m_lastReferenceArbFeedforward, m_setpointEpsilon)
+          && timestamp - m_lastReferenceTimestamp < m_setpointRefreshPeriod) {
+        m_setpointsSuppressed++;
+        return;
+      }
+
+      REVLibError status = m_spark.getPIDController().setReference(value, ctrl, PID_SLOT, arbFeedforward, arbFFUnits);
+      if (isSimulated()) SparkSim.getInstance().setReference(m_simIndex, value, ctrl, arbFeedforward, arbFFUnits);
+      m_setpointsSent++;
+
+      // Retry on next call if reference was not accepted
+      m_lastReferenceControlType = status == REVLibError.kOk ? ctrl : null;
+      m_lastReferenceValue = value;
+      m_lastReferenceArbFeedforward = arbFeedforward;
+      m_lastReferenceArbFFUnits = arbFFUnits;
+      m_lastReferenceTimestamp = timestamp;
+    }
   }
 
   /**
@@ -398,10 +828,11 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Sets to {@value Spark#SPARK_MAX_MEASUREMENT_PERIOD} for Spark Max, {@value Spark#SPARK_FLEX_MEASUREMENT_PERIOD} for Spark Flex
    * @return {@link REVLibError#kOk} if successful
    */
-  private REVLibError setMeasurementPeriod() {
-    REVLibError status;
+  private CompletableFuture<REVLibError> setMeasurementPeriod() {
+    CompletableFuture<REVLibError> status;
     int period = getKind().equals(MotorKind.NEO_VORTEX) ? SPARK_FLEX_MEASUREMENT_PERIOD : SPARK_MAX_MEASUREMENT_PERIOD;
-    status = applyParameter(
+    status = queueConfiguration(
+      "MeasurementPeriod", period,
       () -> getEncoder().setMeasurementPeriod(period),
       () -> getEncoder().getMeasurementPeriod() == period,
       "Set encoder measurement period failure!"
@@ -415,10 +846,11 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Sets to {@value Spark#SPARK_MAX_AVERAGE_DEPTH} for Spark Max, {@value Spark#SPARK_FLEX_AVERAGE_DEPTH} for Spark Flex
    * @return {@link REVLibError#kOk} if successful
    */
-  private REVLibError setAverageDepth() {
-    REVLibError status;
+  private CompletableFuture<REVLibError> setAverageDepth() {
+    CompletableFuture<REVLibError> status;
     int averageDepth = getKind().equals(MotorKind.NEO_VORTEX) ? SPARK_FLEX_AVERAGE_DEPTH : SPARK_MAX_AVERAGE_DEPTH;
-    status = applyParameter(
+    status = queueConfiguration(
+      "AverageDepth", averageDepth,
       () -> getEncoder().setAverageDepth(averageDepth),
       () -> getEncoder().getAverageDepth() == averageDepth,
       "Set encoder average depth failure!"
@@ -427,19 +859,246 @@ public class Spark implements LoggableHardware, AutoCloseable {
   }
 
   /**
-   * Update sensor input readings
+   * Enable voltage compensation at {@value Spark#MAX_VOLTAGE} volts
+   * @return {@link REVLibError#kOk} if successful
+   */
+  private CompletableFuture<REVLibError> enableVoltageCompensation() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "VoltageCompensation", MAX_VOLTAGE,
+      () -> m_spark.enableVoltageCompensation(MAX_VOLTAGE),
+      () -> Precision.equals(m_spark.getVoltageCompensationNominalVoltage(), MAX_VOLTAGE, EPSILON),
+      "Enable voltage compensation failure!"
+    );
+    return status;
+  }
+
+  /**
+   * Get status frame period required by current configuration
+   * <p>
+   * The frame feeding the active feedback sensor is sped up, frames for unused sensors are disabled
+   * @param frame Status frame
+   * @return Status frame period in milliseconds
+   */
+  private int getStatusFramePeriod(PeriodicFrame frame) {
+    boolean isNEOEncoder = m_feedbackSensor.equals(FeedbackSensor.NEO_ENCODER);
+    switch (frame) {
+      case kStatus0:
+        // Applied output, faults and limit switches, followers rely on this frame from their leader
+        // Never slowed down, as stale input and fault detection rely on it
+        return (m_isLeader || m_isForwardLimitSwitchEnabled || m_isReverseLimitSwitchEnabled)
+          ? FAST_STATUS_FRAME_PERIOD
+          : DEFAULT_STATUS_FRAME_PERIOD;
+      case kStatus1:
+        // Velocity, temperature, voltage and current
+        return isNEOEncoder ? FAST_STATUS_FRAME_PERIOD : DEFAULT_STATUS_FRAME_PERIOD;
+      case kStatus2:
+        // Position
+        return isNEOEncoder ? m_sensorStatusFramePeriod : DEFAULT_STATUS_FRAME_PERIOD;
+      case kStatus3:
+        // Analog sensor
+        return m_feedbackSensor.equals(FeedbackSensor.ANALOG) ? m_sensorStatusFramePeriod : DISABLED_STATUS_FRAME_PERIOD;
+      case kStatus5:
+        // Duty cycle absolute encoder position
+        return m_feedbackSensor.equals(FeedbackSensor.THROUGH_BORE_ENCODER) ? m_sensorStatusFramePeriod : DISABLED_STATUS_FRAME_PERIOD;
+      case kStatus6:
+        // Duty cycle absolute encoder velocity
+        return m_feedbackSensor.equals(FeedbackSensor.THROUGH_BORE_ENCODER) ? FAST_STATUS_FRAME_PERIOD : DISABLED_STATUS_FRAME_PERIOD;
+      case kStatus4:
+        // Alternate encoder, not supported
+      default:
+        return DISABLED_STATUS_FRAME_PERIOD;
+    }
+  }
+
+  /**
+   * Apply status frame period required by current configuration, if changed
+   * <p>
+   * Status frame periods are not saved to flash, so they are not part of the configuration snapshot
+   * @param frame Status frame
+   * @return {@link REVLibError#kOk} if successful
    */
-  private void updateInputs() {
-    m_inputs.analogPosition = getAnalogPosition();
-    m_inputs.analogVelocity = getAnalogVelocity();
-    m_inputs.absoluteEncoderPosition = getAbsoluteEncoderPosition();
-    m_inputs.absoluteEncoderVelocity = getAbsoluteEncoderVelocity();
-    m_inputs.forwardLimitSwitch = getForwardLimitSwitch().isPressed();
-    m_inputs.reverseLimitSwitch = getReverseLimitSwitch().isPressed();
+  private CompletableFuture<REVLibError> applyStatusFrame(PeriodicFrame frame) {
+    int period = getStatusFramePeriod(frame);
+    if (m_statusFramePeriods[frame.ordinal()] == period) return CompletableFuture.completedFuture(REVLibError.kOk);
+    m_statusFramePeriods[frame.ordinal()] = period;
+
+    CompletableFuture<REVLibError> status;
+    status = queueParameter(
+      () -> m_spark.setPeriodicFramePeriod(frame, period),
+      "Set status frame period failure!"
+    );
+    return status;
+  }
+
+  /**
+   * Update sensor input readings and input age
+   * <p>
+   * Inputs are not read while the circuit breaker is open, except for an occasional probe
+   * @param timestamp Current timestamp
+   */
+  private void updateInputs(double timestamp) {
+    // Stop polling absent device, probing occasionally
+    if (m_circuitBreaker.allowRequest(timestamp)) {
+      m_isInputReadFailed = false;
+      readInputs(timestamp);
+      if (!m_isInputReadFailed && m_circuitBreaker.recordSuccess())
+        System.out.println(String.join(" ", m_id.name, "Device responding, polling resumed"));
+      if (m_isInputReadFailed && m_circuitBreaker.recordFailure(timestamp))
+        System.err.println(String.join(" ", m_id.name, "Device not responding, polling stopped!"));
+    }
+
+    m_inputAge = timestamp - getOldestInputTimestamp(timestamp);
+    m_isStale = m_inputAge > m_staleThreshold;
+  }
+
+  /**
+   * Read sensor inputs
+   * <p>
+   * Only sensors enabled by the status frame profile are read
+   * @param timestamp Current timestamp
+   */
+  private void readInputs(double timestamp) {
+    // Feedback sensor inputs are written by simulation
+    switch (m_feedbackSensor) {
+      case ANALOG:
+        if (isSimulated()) {
+          m_inputs.analogTimestamp = timestamp;
+          break;
+        }
+        m_inputs.analogPosition = getAnalogPosition();
+        m_inputs.analogVelocity = getAnalogVelocity();
+        m_inputs.analogTimestamp = getReceiveTimestamp(timestamp, m_inputs.analogTimestamp);
+        break;
+      case THROUGH_BORE_ENCODER:
+        if (isSimulated()) {
+          m_inputs.absoluteEncoderTimestamp = timestamp;
+          break;
+        }
+        m_inputs.absoluteEncoderPosition = getAbsoluteEncoderPosition();
+        m_inputs.absoluteEncoderVelocity = getAbsoluteEncoderVelocity();
+        m_inputs.absoluteEncoderTimestamp = getReceiveTimestamp(timestamp, m_inputs.absoluteEncoderTimestamp);
+        break;
+      default:
+        break;
+    }
+    if (m_isForwardLimitSwitchEnabled || m_isReverseLimitSwitchEnabled) {
+      if (m_isForwardLimitSwitchEnabled) m_inputs.forwardLimitSwitch = getForwardLimitSwitch().isPressed();
+      if (m_isReverseLimitSwitchEnabled) m_inputs.reverseLimitSwitch = getReverseLimitSwitch().isPressed();
+      m_inputs.limitSwitchTimestamp = getReceiveTimestamp(timestamp, m_inputs.limitSwitchTimestamp);
+    }
 
     if (getMotorType() == MotorType.kBrushed) return;
-    m_inputs.encoderPosition = getEncoderPosition();
-    m_inputs.encoderVelocity = getEncoderVelocity();
+    // Built-in encoder inputs are written by simulation
+    if (!isSimulated()) {
+      m_inputs.encoderPosition = getEncoderPosition();
+      m_inputs.encoderVelocity = getEncoderVelocity();
+      m_inputs.encoderTimestamp = getReceiveTimestamp(timestamp, m_inputs.encoderTimestamp);
+    } else m_inputs.encoderTimestamp = timestamp;
+    if (m_velocityEstimator != null) estimateVelocity();
+  }
+
+  /**
+   * Get receive timestamp of oldest input group that is read
+   * @param timestamp Current timestamp
+   * @return Oldest receive timestamp
+   */
+  private double getOldestInputTimestamp(double timestamp) {
+    double oldestTimestamp = timestamp;
+    if (m_feedbackSensor == FeedbackSensor.ANALOG)
+      oldestTimestamp = Math.min(oldestTimestamp, m_inputs.analogTimestamp);
+    if (m_feedbackSensor == FeedbackSensor.THROUGH_BORE_ENCODER)
+      oldestTimestamp = Math.min(oldestTimestamp, m_inputs.absoluteEncoderTimestamp);
+    if (m_isForwardLimitSwitchEnabled || m_isReverseLimitSwitchEnabled)
+      oldestTimestamp = Math.min(oldestTimestamp, m_inputs.limitSwitchTimestamp);
+    if (getMotorType() != MotorType.kBrushed)
+      oldestTimestamp = Math.min(oldestTimestamp, m_inputs.encoderTimestamp);
+
+    return oldestTimestamp;
+  }
+
+  /**
+   * Get receive timestamp of input group that was just read
+   * @param timestamp Current timestamp
+   * @param lastTimestamp Last receive timestamp of input group
+   * @return Current timestamp if read succeeded, otherwise last receive timestamp
+   */
+  private double getReceiveTimestamp(double timestamp, double lastTimestamp) {
+    if (m_spark.getLastError() == REVLibError.kOk) return timestamp;
+
+    m_isInputReadFailed = true;
+    return lastTimestamp;
+  }
+
+  /**
+   * Stop closed loop output while inputs are stale, if enabled
+   */
+  private void handleStaleInputs() {
+    if (!m_isStale || !m_isStaleStopEnabled) return;
+
+    synchronized (m_smoothMotionLock) {
+      if (!m_isSmoothMotionEnabled && !isClosedLoop(m_lastReferenceControlType)) return;
+    }
+    System.err.println(String.join(" ", m_id.name, "Inputs stale, closed loop output stopped!"));
+    stopMotor();
+  }
+
+  /**
+   * Check if control mode uses feedback sensor
+   * @param ctrl Control mode
+   * @return True if closed loop
+   */
+  private static boolean isClosedLoop(ControlType ctrl) {
+    return ctrl == ControlType.kPosition || ctrl == ControlType.kVelocity
+           || ctrl == ControlType.kSmartMotion || ctrl == ControlType.kSmartVelocity;
+  }
+
+  /**
+   * Replace built-in encoder velocity with host-side estimate
+   * <p>
+   * Samples whose receive timestamp did not advance are ignored by the estimator
+   */
+  private void estimateVelocity() {
+    m_velocityEstimator.addSample(m_inputs.encoderTimestamp, m_inputs.encoderPosition);
+
+    // Convert from position units per second to velocity conversion factor units
+    double scale = SECONDS_PER_MINUTE * m_encoderVelocityConversionFactor / m_encoderPositionConversionFactor;
+    m_inputs.encoderVelocity = m_velocityEstimator.getVelocity() * scale;
+    m_inputs.encoderAcceleration = m_velocityEstimator.getAcceleration() * scale;
+  }
+
+  /**
+   * Check if Spark is stepped by {@link SparkSim}
+   * <p>
+   * Inputs of a simulated Spark are written by {@link SparkSim}, and should not be overwritten
+   * @return True if simulated
+   */
+  public boolean isSimulated() {
+    return m_simIndex != NOT_SIMULATED;
+  }
+
+  /**
+   * Update measured state of feedback sensor in place
+   * @return Measured state
+   */
+  private TrapezoidProfile.State updateCurrentState() {
+    switch (m_feedbackSensor) {
+      case ANALOG:
+        m_currentState.position = m_inputs.analogPosition;
+        m_currentState.velocity = m_inputs.analogVelocity;
+        break;
+      case THROUGH_BORE_ENCODER:
+        m_currentState.position = m_inputs.absoluteEncoderPosition;
+        m_currentState.velocity = m_inputs.absoluteEncoderVelocity;
+        break;
+      case NEO_ENCODER:
+      default:
+        m_currentState.position = m_inputs.encoderPosition;
+        m_currentState.velocity = m_inputs.encoderVelocity;
+        break;
+    }
+
+    return m_currentState;
   }
 
   /**
@@ -448,27 +1107,261 @@ public class Spark implements LoggableHardware, AutoCloseable {
   private void handleSmoothMotion() {
     if (!m_isSmoothMotionEnabled) return;
 
-    m_smoothMotionState = m_motionProfile.calculate(GlobalConstants.ROBOT_LOOP_PERIOD, m_smoothMotionState, m_desiredState);
-    set(
-      m_smoothMotionState.position,
-      ControlType.kPosition,
-      m_feedforwardSupplier.apply(m_smoothMotionState),
-      SparkPIDController.ArbFFUnits.kVoltage
+    SmoothMotionExecutor executor = SmoothMotionExecutor.getInstance();
+    double setpoint;
+    ControlType ctrl;
+    if (m_smoothMotionBackend.equals(SmoothMotionBackend.SPARK)) {
+      // Profile is computed by Spark, send goal with feed forward at measured state
+      synchronized (m_smoothMotionLock) {
+        updateCurrentState();
+        m_smoothMotionState.position = m_currentState.position;
+        m_smoothMotionState.velocity = m_currentState.velocity;
+        setpoint = m_desiredState.position;
+        ctrl = ControlType.kSmartMotion;
+        setReference(setpoint, ctrl, m_feedforwardSupplier.applyAsDouble(m_smoothMotionState), SparkPIDController.ArbFFUnits.kVoltage);
+      }
+    } else if (executor.isRunning()) {
+      // Profile is stepped by executor thread, only log latest setpoint
+      executor.add(m_smoothMotionTask);
+      synchronized (m_smoothMotionLock) { setpoint = m_smoothMotionState.position; }
+      ctrl = ControlType.kPosition;
+    } else {
+      stepSmoothMotion(GlobalConstants.ROBOT_LOOP_PERIOD);
+      setpoint = m_smoothMotionState.position;
+      ctrl = ControlType.kPosition;
+    }
+    logOutputs(setpoint, ctrl);
+    Logger.recordOutput(m_logKeys.get(MOTION_ERROR_LOG_ENTRY), setpoint - updateCurrentState().position);
+
+    boolean isFinished = isSmoothMotionFinished();
+    synchronized (m_smoothMotionLock) { m_isSmoothMotionEnabled = !isFinished; }
+    if (isFinished) executor.remove(m_smoothMotionTask);
+  }
+
+  /**
+   * Step smooth motion profile and send setpoint
+   * @param dt Time step in seconds
+   */
+  private void stepSmoothMotion(double dt) {
+    synchronized (m_smoothMotionLock) {
+      if (!m_isSmoothMotionEnabled) return;
+
+      m_motionProfile.calculate(dt);
+      m_motionProfile.getState(m_smoothMotionState);
+      setReference(
+        m_smoothMotionState.position,
+        ControlType.kPosition,
+        m_feedforwardSupplier.applyAsDouble(m_smoothMotionState),
+        SparkPIDController.ArbFFUnits.kVoltage
+      );
+    }
+  }
+
+  /**
+   * Configure Smart Motion constraints on the Spark, if changed
+   * @param maxVelocity Maximum velocity in velocity conversion factor units
+   * @param maxAcceleration Maximum acceleration in velocity conversion factor units per second
+   */
+  private void configureSmartMotion(double maxVelocity, double maxAcceleration) {
+    if (maxVelocity == m_smartMotionMaxVelocity && maxAcceleration == m_smartMotionMaxAcceleration) return;
+    m_smartMotionMaxVelocity = maxVelocity;
+    m_smartMotionMaxAcceleration = maxAcceleration;
+
+    double allowedError = m_config != null ? m_config.getTolerance() : 0.0;
+    queueConfiguration(
+      "SmartMotionMaxVelocity", maxVelocity,
+      () -> m_spark.getPIDController().setSmartMotionMaxVelocity(maxVelocity, PID_SLOT),
+      () -> Precision.equals(m_spark.getPIDController().getSmartMotionMaxVelocity(PID_SLOT), maxVelocity, EPSILON),
+      "Set Smart Motion max velocity failure!"
+    );
+    queueConfiguration(
+      "SmartMotionMaxAcceleration", maxAcceleration,
+      () -> m_spark.getPIDController().setSmartMotionMaxAccel(maxAcceleration, PID_SLOT),
+      () -> Precision.equals(m_spark.getPIDController().getSmartMotionMaxAccel(PID_SLOT), maxAcceleration, EPSILON),
+      "Set Smart Motion max acceleration failure!"
+    );
+    queueConfiguration(
+      "SmartMotionAllowedError", allowedError,
+      () -> m_spark.getPIDController().setSmartMotionAllowedClosedLoopError(allowedError, PID_SLOT),
+      () -> Precision.equals(m_spark.getPIDController().getSmartMotionAllowedClosedLoopError(PID_SLOT), allowedError, EPSILON),
+      "Set Smart Motion allowed error failure!"
     );
+  }
+
+  /**
+   * Select where smooth motion profiles are computed
+   * <p>
+   * With {@link SmoothMotionBackend#SPARK}, the Spark's Smart Motion is configured with the motion constraints and only
+   * the goal and feed forward are sent. Feed forward is evaluated at the measured state. Smart Motion constraints are in
+   * velocity conversion factor units, so the velocity conversion factor should be the position conversion factor / 60.
+   * {@link Spark#isSmoothMotionFinished()} behaves the same for both backends.
+   * @param backend Smooth motion backend
+   */
+  public void setSmoothMotionBackend(SmoothMotionBackend backend) {
+    synchronized (m_smoothMotionLock) {
+      if (m_smoothMotionBackend.equals(backend)) return;
+      m_smoothMotionBackend = backend;
+      m_isSmoothMotionEnabled = false;
+    }
+    SmoothMotionExecutor.getInstance().remove(m_smoothMotionTask);
+  }
+
+  /**
+   * Get selected smooth motion backend
+   * @return Smooth motion backend
+   */
+  public SmoothMotionBackend getSmoothMotionBackend() {
+    return m_smoothMotionBackend;
+  }
+
+  /**
+   * Step all active smooth motion profiles from a shared thread instead of each Spark's periodic method
+   * <p>
+   * Setpoints are sent at the given rate using measured time steps, rather than in
+   * {@value GlobalConstants#ROBOT_LOOP_PERIOD}s steps. Feed forward functions passed to
+   * {@link Spark#smoothMotion(double, TrapezoidProfile.Constraints, ToDoubleFunction)} must be thread-safe.
+   * @param period Period to step profiles at, for example 5ms for 200Hz
+   */
+  public static void enableSmoothMotionExecutor(Measure<Time> period) {
+    SmoothMotionExecutor.getInstance().start(period);
+  }
+
+  /**
+   * Return to stepping smooth motion profiles in each Spark's periodic method
+   */
+  public static void disableSmoothMotionExecutor() {
+    SmoothMotionExecutor.getInstance().stop();
+  }
+
+  /**
+   * Estimate built-in encoder velocity on the roboRIO from timestamped position samples
+   * <p>
+   * Replaces the Spark's moving-window velocity in {@link SparkInputs#encoderVelocity}, which lags by tens of
+   * milliseconds, with a {@link VelocityEstimator} fit. {@link SparkInputs#encoderAcceleration} is also filled in. Only
+   * consumers of the inputs, such as swerve traction control, see the estimate; the Spark's own velocity PID still uses
+   * the firmware velocity. Samples are stamped with the receive timestamp of the encoder inputs, so a failed read adds
+   * no sample. The window should span at least three periods of the status frame carrying position.
+   * @param window Time window of position samples to fit
+   */
+  public void enableVelocityEstimator(Measure<Time> window) {
+    m_velocityEstimator = new VelocityEstimator(window);
+  }
+
+  /**
+   * Return to reporting the Spark's built-in encoder velocity
+   */
+  public void disableVelocityEstimator() {
+    m_velocityEstimator = null;
+    m_inputs.encoderAcceleration = 0.0;
+  }
+
+  /**
+   * Wait for all queued parameters on every Spark to be applied
+   * <p>
+   * Parameters for different devices are applied concurrently, so this takes about as long as the slowest device.
+   * Configuration of any Spark that has not been committed yet is committed first, as its parameters would otherwise
+   * never be applied, so only call this once every Spark is fully configured.
+   * @param timeout Maximum time to wait
+   * @return True if all parameters were applied before the timeout
+   */
+  public static boolean waitForParameters(Measure<Time> timeout) {
+    for (Spark spark : UNCOMMITTED_SPARKS.toArray(new Spark[0])) spark.commitConfiguration();
+
+    try {
+      CompletableFuture.allOf(PENDING_PARAMETERS.toArray(new CompletableFuture<?>[0]))
+        .get((long)timeout.in(Units.Milliseconds), TimeUnit.MILLISECONDS);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException | TimeoutException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Check if any Spark still has parameters waiting to be applied
+   * @return True if parameters are pending
+   */
+  public static boolean hasPendingParameters() {
+    return !PENDING_PARAMETERS.isEmpty();
+  }
 
-    m_isSmoothMotionEnabled = !isSmoothMotionFinished();
+  /**
+   * Release queued parameters to be applied to the controller
+   * <p>
+   * Parameters are held until the configuration is committed, so that the desired configuration can be compared
+   * against the fingerprint of the configuration last burned to flash. If they match, the factory reset is skipped and
+   * only parameters that differ are written. Called automatically by {@link Spark#burnFlash()} and on the first call
+   * to {@link Spark#periodic()} after construction. Once the configuration batch is applied, the device is lowered to a
+   * non-blocking CAN timeout for the rest of runtime. Parameters set after this are runtime changes, such as toggling
+   * idle mode, and do not alter the configuration fingerprint.
+   */
+  public synchronized void commitConfiguration() {
+    if (releaseConfiguration()) queueRuntimeCANTimeout();
+  }
+
+  /**
+   * Release configuration batch held by the configuration gate
+   * @return True if the configuration batch was released by this call
+   */
+  private synchronized boolean releaseConfiguration() {
+    if (m_configurationGate.isDone()) return false;
+
+    m_isConfigurationCurrent = !RobotBase.isSimulation() && getConfigurationFingerprint().equals(readConfigurationFingerprint());
+    m_isConfigurationDirty = !m_isConfigurationCurrent;
+    m_configurationGate.complete(REVLibError.kOk);
+    UNCOMMITTED_SPARKS.remove(this);
+    return true;
+  }
+
+  /**
+   * Print error if a parameter task did not succeed
+   * <p>
+   * Parameter tasks complete in the background, so pass this to the returned future, for example
+   * {@code spark.burnFlash().whenComplete((status, exception) -> spark.checkParameterStatus(status, exception, "..."))}
+   * @param status Result of parameter task
+   * @param exception Exception thrown by parameter task, null if none
+   * @param errorMessage Error message to print
+   */
+  public void checkParameterStatus(REVLibError status, Throwable exception, String errorMessage) {
+    if (exception == null && status == REVLibError.kOk) return;
+    System.err.println(String.join(" ", m_id.name, errorMessage, "-",
+                                   exception != null ? exception.toString() : String.valueOf(status)));
   }
 
   /**
    * Writes all settings to flash
+   * <p>
+   * Runs after all previously queued parameters for this device have been applied. Skipped if the controller already
+   * held the desired configuration and no parameters had to be written.
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError burnFlash() {
-    if (RobotBase.isSimulation()) return REVLibError.kOk;
+  public synchronized CompletableFuture<REVLibError> burnFlash() {
+    // Burn flash ends the configuration batch if it releases it, otherwise the device is already non-blocking
+    boolean isConfiguring = releaseConfiguration();
+    if (RobotBase.isSimulation()) return CompletableFuture.completedFuture(REVLibError.kOk);
+
+    String fingerprint = getConfigurationFingerprint();
+    CompletableFuture<REVLibError> status = queueTask(() -> {
+      if (!m_isConfigurationDirty) {
+        System.out.println(String.join(" ", m_id.name, "Configuration unchanged, skipping burn flash!"));
+        return REVLibError.kOk;
+      }
+
+      Timer.delay(BURN_FLASH_WAIT_TIME);
+      REVLibError burnStatus = withBlockingCANTimeout(m_spark::burnFlash);
+      Timer.delay(BURN_FLASH_WAIT_TIME);
+
+      checkStatus(burnStatus, "Burn flash failure!");
 
-    Timer.delay(BURN_FLASH_WAIT_TIME);
-    REVLibError status = m_spark.burnFlash();
-    Timer.delay(BURN_FLASH_WAIT_TIME);
+      // Only trust the flash contents on the next boot if every parameter was applied
+      boolean isBurned = burnStatus == REVLibError.kOk && !m_isConfigurationFailed;
+      m_isConfigurationDirty = !isBurned;
+      writeConfigurationFingerprint(isBurned ? fingerprint : "");
+      return burnStatus;
+    });
+    if (isConfiguring) queueRuntimeCANTimeout();
 
     return status;
   }
@@ -477,32 +1370,112 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Restore motor controller parameters to factory defaults until the next controller reboot
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError restoreFactoryDefaults() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> restoreFactoryDefaults() {
+    CompletableFuture<REVLibError> status;
+    status = queueParameter(
       () -> m_spark.restoreFactoryDefaults(),
-      () -> true,
       "Restore factory defaults failure!"
     );
+    m_isConfigurationDirty = true;
 
     return status;
   }
 
+  /**
+   * Apply status frame profile derived from the configured feedback sensor and limit switches
+   * <p>
+   * The status frame carrying the active feedback sensor is sped up to {@value Spark#FAST_STATUS_FRAME_PERIOD}ms,
+   * frames for unused sensors are effectively disabled, and sensor inputs for disabled frames are no longer read.
+   * Called automatically on construction, on PID initialization and when limit switches are enabled or disabled.
+   * @return {@link REVLibError#kOk} if successful
+   */
+  public CompletableFuture<REVLibError> applyStatusFrameProfile() {
+    List<CompletableFuture<REVLibError>> statuses = new ArrayList<>();
+    for (PeriodicFrame frame : PeriodicFrame.values()) statuses.add(applyStatusFrame(frame));
+
+    return CompletableFuture.allOf(statuses.toArray(new CompletableFuture<?>[0])).thenApply((ignored) ->
+      statuses.stream()
+        .map(CompletableFuture::join)
+        .filter((status) -> status != REVLibError.kOk)
+        .findFirst()
+        .orElse(REVLibError.kOk)
+    );
+  }
+
+  /**
+   * Set status frame period of active feedback sensor position
+   * <p>
+   * Use this to match the position frame to a high-rate sampler. Defaults to {@value Spark#FAST_STATUS_FRAME_PERIOD}ms.
+   * @param period Status frame period
+   * @return {@link REVLibError#kOk} if successful
+   */
+  public CompletableFuture<REVLibError> setSensorStatusFramePeriod(Measure<Time> period) {
+    m_sensorStatusFramePeriod = Math.max((int)Math.round(period.in(Units.Milliseconds)), 1);
+    return applyStatusFrameProfile();
+  }
+
+  /**
+   * Read position of built-in encoder directly from the latest status frame, bypassing cached inputs
+   * <p>
+   * Safe to call from another thread, such as a high-rate odometry sampler. In simulation, the cached input is returned.
+   * @return Encoder position, in configured units
+   */
+  public double sampleEncoderPosition() {
+    return isSimulated() ? m_inputs.encoderPosition : getEncoderPosition();
+  }
+
+  /**
+   * Read position of absolute encoder directly from the latest status frame, bypassing cached inputs
+   * <p>
+   * Safe to call from another thread, such as a high-rate odometry sampler. In simulation, the cached input is returned.
+   * @return Absolute encoder position, in configured units
+   */
+  public double sampleAbsoluteEncoderPosition() {
+    return isSimulated() ? m_inputs.absoluteEncoderPosition : getAbsoluteEncoderPosition();
+  }
+
+  /**
+   * Update sensor inputs, called by {@link HardwareManager} at the start of the loop
+   * <p>
+   * While the hardware manager is running, {@link Spark#periodic()} no longer reads inputs, so that inputs are read
+   * once per loop and outputs are only sent from {@link Spark#periodic()}
+   * @param timestamp Timestamp of acquisition phase
+   */
+  @Override
+  public void acquireInputs(double timestamp) {
+    if (m_isConstructed) commitConfiguration();
+    updateInputs(timestamp);
+    Logger.processInputs(m_id.name, m_inputs);
+  }
+
   /**
    * Call this method periodically
+   * <p>
+   * Inputs are read here only if the {@link HardwareManager} is not already reading them
    */
   @Override
   public void periodic() {
-    updateInputs();
-    Logger.processInputs(m_id.name, m_inputs);
+    if (!HardwareManager.getInstance().isRunning()) acquireInputs(Timer.getFPGATimestamp());
 
+    handleStaleInputs();
     handleSmoothMotion();
 
-    Logger.recordOutput(m_id.name + CURRENT_LOG_ENTRY, m_spark.getOutputCurrent());
-    Logger.recordOutput(m_id.name + MOTION_LOG_ENTRY, m_isSmoothMotionEnabled);
+    Logger.recordOutput(
+      m_logKeys.get(CURRENT_LOG_ENTRY),
+      isSimulated() ? SparkSim.getInstance().getCurrent(m_simIndex) : m_spark.getOutputCurrent()
+    );
+    Logger.recordOutput(m_logKeys.get(MOTION_LOG_ENTRY), m_isSmoothMotionEnabled);
+    Logger.recordOutput(m_logKeys.get(SETPOINTS_SENT_LOG_ENTRY), m_setpointsSent);
+    Logger.recordOutput(m_logKeys.get(SETPOINTS_SUPPRESSED_LOG_ENTRY), m_setpointsSuppressed);
+    Logger.recordOutput(m_logKeys.get(INPUT_AGE_LOG_ENTRY), m_inputAge);
+    Logger.recordOutput(m_logKeys.get(INPUT_STALE_LOG_ENTRY), m_isStale);
+    Logger.recordOutput(m_logKeys.get(CIRCUIT_BREAKER_LOG_ENTRY), LogKeys.toString(m_circuitBreaker.getState()));
 
     if (getMotorType() == MotorType.kBrushed) return;
-    Logger.recordOutput(m_id.name + TEMPERATURE_LOG_ENTRY, m_spark.getMotorTemperature());
+    Logger.recordOutput(
+      m_logKeys.get(TEMPERATURE_LOG_ENTRY),
+      isSimulated() ? SparkSim.getInstance().getTemperature(m_simIndex) : m_spark.getMotorTemperature()
+    );
   }
 
   /**
@@ -544,7 +1517,7 @@ public class Spark implements LoggableHardware, AutoCloseable {
    */
   public boolean isSmoothMotionFinished() {
     return m_smoothMotionFinishedDebouncer.calculate(
-      Precision.equals(m_currentStateSupplier.get().position, m_desiredState.position, m_config.getTolerance())
+      Precision.equals(updateCurrentState().position, m_desiredState.position, m_config.getTolerance())
     );
   }
 
@@ -562,32 +1535,31 @@ public class Spark implements LoggableHardware, AutoCloseable {
 
     m_config = config;
     m_feedbackSensor = feedbackSensor;
-    m_smoothMotionFinishedDebouncer = new Debouncer(SMOOTH_MOTION_DEBOUNCE_TIME);
-    m_desiredState = new TrapezoidProfile.State();
-    m_smoothMotionState = new TrapezoidProfile.State();
-    m_feedforwardSupplier = (motionProfileState) -> 0.0;
 
     MotorFeedbackSensor selectedSensor;
     switch (m_feedbackSensor) {
       case ANALOG:
         selectedSensor = getAnalog();
-        m_currentStateSupplier = () -> new TrapezoidProfile.State(getInputs().analogPosition, getInputs().analogVelocity);
         break;
       case THROUGH_BORE_ENCODER:
         selectedSensor = getAbsoluteEncoder();
-        m_currentStateSupplier = () -> new TrapezoidProfile.State(getInputs().absoluteEncoderPosition, getInputs().absoluteEncoderVelocity);
         break;
       case NEO_ENCODER:
       default:
         selectedSensor = getEncoder();
-        m_currentStateSupplier = () -> new TrapezoidProfile.State(getInputs().encoderPosition, getInputs().encoderVelocity);
         break;
     }
 
     // Configure feedback sensor and set sensor phase
-    m_spark.getPIDController().setFeedbackDevice(selectedSensor);
+    if (isSimulated()) SparkSim.getInstance().setFeedbackSensor(m_simIndex, m_feedbackSensor, m_config.getSensorPhase());
+    queueConfiguration(
+      "FeedbackDevice", m_feedbackSensor,
+      () -> m_spark.getPIDController().setFeedbackDevice(selectedSensor),
+      "Set feedback device failure!"
+    );
     if (!m_feedbackSensor.equals(FeedbackSensor.NEO_ENCODER)) {
-      applyParameter(
+      queueConfiguration(
+        "SensorPhase", m_config.getSensorPhase(),
         () -> selectedSensor.setInverted(m_config.getSensorPhase()),
         () -> selectedSensor.getInverted() == m_config.getSensorPhase(),
       "Set sensor phase failure!"
@@ -615,6 +1587,9 @@ public class Spark implements LoggableHardware, AutoCloseable {
     setD(config.getD());
     setF(config.getF());
     setIZone(config.getIZone());
+
+    // Stream status frames for selected feedback sensor
+    applyStatusFrameProfile();
   }
 
   /**
@@ -634,9 +1609,12 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param invert Set slave to output opposite of the master
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError follow(Spark master, boolean invert) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> follow(Spark master, boolean invert) {
+    CompletableFuture<REVLibError> status;
+    master.m_isLeader = true;
+    master.applyStatusFrame(PeriodicFrame.kStatus0);
+    status = queueConfiguration(
+      "Follow", master.getID().deviceID + "," + invert,
       () -> m_spark.follow(ExternalFollower.kFollowerSpark, master.getID().deviceID, invert),
       () -> m_spark.isFollower(),
       "Set motor master failure!"
@@ -660,8 +1638,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    *
    * @param isInverted The state of inversion, true is inverted.
    */
-  public void setInverted(boolean isInverted) {
-    applyParameter(
+  public CompletableFuture<REVLibError> setInverted(boolean isInverted) {
+    if (isSimulated()) SparkSim.getInstance().setInverted(m_simIndex, isInverted);
+    return queueConfiguration(
+      "Inverted", isInverted,
       () -> m_spark.setInverted(isInverted),
       () -> m_spark.getInverted() == isInverted,
       "Set motor inverted failure!"
@@ -682,8 +1662,7 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param ctrl Desired control mode
    */
   public void set(double value, ControlType ctrl) {
-    m_spark.getPIDController().setReference(value, ctrl);
-    logOutputs(value, ctrl);
+    set(value, ctrl, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
   }
 
   /**
@@ -694,10 +1673,97 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param arbFFUnits Feed forward units
    */
   public void set(double value, ControlType ctrl, double arbFeedforward, SparkPIDController.ArbFFUnits arbFFUnits) {
-    m_spark.getPIDController().setReference(value, ctrl, PID_SLOT, arbFeedforward, arbFFUnits);
+    // Only record output if outputs are deferred
+    OutputCommitStage stage = OutputCommitStage.getInstance();
+    if (stage.isEnabled()) {
+      if (m_hasPendingOutput) stage.recordSuperseded();
+      m_pendingValue = value;
+      m_pendingControlType = ctrl;
+      m_pendingArbFeedforward = arbFeedforward;
+      m_pendingArbFFUnits = arbFFUnits;
+      m_hasPendingOutput = true;
+      return;
+    }
+
+    setReference(value, ctrl, arbFeedforward, arbFFUnits);
     logOutputs(value, ctrl);
   }
 
+  /**
+   * Send output recorded while outputs are deferred, if any
+   * <p>
+   * Smooth motion setpoints are never deferred
+   */
+  private void commitOutput() {
+    if (!m_hasPendingOutput) return;
+
+    m_hasPendingOutput = false;
+    setReference(m_pendingValue, m_pendingControlType, m_pendingArbFeedforward, m_pendingArbFFUnits);
+    logOutputs(m_pendingValue, m_pendingControlType);
+    OutputCommitStage.getInstance().recordCommitted();
+  }
+
+  /**
+   * Configure setpoint deduplication
+   * <p>
+   * Setpoints within epsilon of the last setpoint sent, with the same control mode and feed forward, are not sent
+   * again until the refresh period has passed. Defaults to {@value Spark#DEFAULT_SETPOINT_EPSILON} and
+   * {@value Spark#DEFAULT_SETPOINT_REFRESH_PERIOD}s.
+   * @param epsilon Maximum difference for setpoints to be considered equal
+   * @param refreshPeriod Maximum time between sending setpoints, zero sends every setpoint
+   */
+  public void setSetpointDeduplication(double epsilon, Measure<Time> refreshPeriod) {
+    m_setpointEpsilon = epsilon;
+    m_setpointRefreshPeriod = refreshPeriod.in(Units.Seconds);
+  }
+
+  /**
+   * Get number of setpoints sent to the Spark
+   * @return Number of setpoints sent
+   */
+  public long getSetpointsSent() {
+    return m_setpointsSent;
+  }
+
+  /**
+   * Get number of setpoints not sent to the Spark because they matched the last setpoint
+   * @return Number of setpoints suppressed
+   */
+  public long getSetpointsSuppressed() {
+    return m_setpointsSuppressed;
+  }
+
+  /**
+   * Configure input staleness detection
+   * <p>
+   * Inputs are stale when the oldest input group read each loop was last received successfully longer ago than the
+   * threshold, for example when the Spark drops off the bus. Each group's receive time is recorded in
+   * {@link SparkInputs}, so consumers can also compensate for sample age. Defaults to
+   * {@value Spark#DEFAULT_STALE_THRESHOLD}s without stopping output.
+   * @param threshold Input age above which inputs are stale
+   * @param stopClosedLoop True to stop closed loop output and smooth motion while inputs are stale
+   */
+  public void setStaleThreshold(Measure<Time> threshold, boolean stopClosedLoop) {
+    m_staleThreshold = threshold.in(Units.Seconds);
+    m_isStaleStopEnabled = stopClosedLoop;
+  }
+
+  /**
+   * Get age of oldest input group read in the last update
+   * @return Time since oldest input was received
+   */
+  public Measure<Time> getInputAge() {
+    return Units.Seconds.of(m_inputAge);
+  }
+
+  /**
+   * Check if inputs are stale
+   * @return True if input age exceeds stale threshold
+   */
+  public boolean isStale() {
+    return m_isStale;
+  }
+
   /**
    * Set the conversion factor for position of the encoder. Multiplied by the native output units to
    * give you position.
@@ -705,12 +1771,13 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param factor The conversion factor to multiply the native units by
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setPositionConversionFactor(FeedbackSensor sensor, double factor) {
-    REVLibError status;
+  public CompletableFuture<REVLibError> setPositionConversionFactor(FeedbackSensor sensor, double factor) {
+    CompletableFuture<REVLibError> status;
     Supplier<REVLibError> parameterSetter;
     BooleanSupplier parameterCheckSupplier;
     switch (sensor) {
       case NEO_ENCODER:
+        m_encoderPositionConversionFactor = factor;
         parameterSetter = () -> getEncoder().setPositionConversionFactor(factor);
         parameterCheckSupplier = () -> Precision.equals(getEncoder().getPositionConversionFactor(), factor, EPSILON);
         break;
@@ -728,7 +1795,8 @@ public class Spark implements LoggableHardware, AutoCloseable {
         break;
     }
 
-    status = applyParameter(parameterSetter, parameterCheckSupplier, "Set position conversion factor failure!");
+    if (isSimulated()) SparkSim.getInstance().setPositionConversionFactor(m_simIndex, sensor, factor);
+    status = queueConfiguration("PositionConversionFactor/" + sensor, factor, parameterSetter, parameterCheckSupplier, "Set position conversion factor failure!");
     return status;
   }
 
@@ -739,12 +1807,13 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param factor The conversion factor to multiply the native units by
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setVelocityConversionFactor(FeedbackSensor sensor, double factor) {
-    REVLibError status;
+  public CompletableFuture<REVLibError> setVelocityConversionFactor(FeedbackSensor sensor, double factor) {
+    CompletableFuture<REVLibError> status;
     Supplier<REVLibError> parameterSetter;
     BooleanSupplier parameterCheckSupplier;
     switch (sensor) {
       case NEO_ENCODER:
+        m_encoderVelocityConversionFactor = factor;
         parameterSetter = () -> getEncoder().setVelocityConversionFactor(factor);
         parameterCheckSupplier = () -> Precision.equals(getEncoder().getVelocityConversionFactor(), factor, EPSILON);
         break;
@@ -762,7 +1831,8 @@ public class Spark implements LoggableHardware, AutoCloseable {
         break;
     }
 
-    status = applyParameter(parameterSetter, parameterCheckSupplier, "Set velocity conversion factor failure!");
+    if (isSimulated()) SparkSim.getInstance().setVelocityConversionFactor(m_simIndex, sensor, factor);
+    status = queueConfiguration("VelocityConversionFactor/" + sensor, factor, parameterSetter, parameterCheckSupplier, "Set velocity conversion factor failure!");
     return status;
   }
 
@@ -771,9 +1841,11 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param value Value to set
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setP(double value) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setP(double value) {
+    if (isSimulated()) SparkSim.getInstance().setP(m_simIndex, value);
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "kP", value,
       () -> m_spark.getPIDController().setP(value),
       () -> Precision.equals(m_spark.getPIDController().getP(), value, EPSILON),
       "Set kP failure!"
@@ -786,9 +1858,11 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param value Value to set
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setI(double value) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setI(double value) {
+    if (isSimulated()) SparkSim.getInstance().setI(m_simIndex, value);
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "kI", value,
       () -> m_spark.getPIDController().setI(value),
       () -> Precision.equals(m_spark.getPIDController().getI(), value, EPSILON),
       "Set kI failure!"
@@ -801,9 +1875,11 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param value Value to set
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setD(double value) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setD(double value) {
+    if (isSimulated()) SparkSim.getInstance().setD(m_simIndex, value);
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "kD", value,
       () -> m_spark.getPIDController().setD(value),
       () -> Precision.equals(m_spark.getPIDController().getD(), value, EPSILON),
       "Set kD failure!"
@@ -816,9 +1892,11 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param value Value to set
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setF(double value) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setF(double value) {
+    if (isSimulated()) SparkSim.getInstance().setF(m_simIndex, value);
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "kF", value,
       () -> m_spark.getPIDController().setFF(value),
       () -> Precision.equals(m_spark.getPIDController().getFF(), value, EPSILON),
       "Set kF failure!"
@@ -833,9 +1911,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param value Value to set
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setIZone(double value) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setIZone(double value) {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "IZone", value,
       () -> m_spark.getPIDController().setIZone(value),
       () -> Precision.equals(m_spark.getPIDController().getIZone(), value, EPSILON),
       "Set IZone failure!"
@@ -845,17 +1924,25 @@ public class Spark implements LoggableHardware, AutoCloseable {
 
   /**
    * Execute a smooth motion to desired position
+   * <p>
+   * If a smooth motion is already in progress, the goal and constraints are changed in place and the profile continues
+   * from its current state, keeping velocity continuous. Safe to call every loop with a moving goal.
+   * <p>
+   * The feed forward function returns a primitive so that it does not box every loop. Lambdas need no change, a
+   * {@code Function<TrapezoidProfile.State, Double>} variable can be passed as {@code feedforward::apply}.
    * @param value The target value for the motor
    * @param motionConstraint The constraints for the motor
    * @param feedforwardSupplier Lambda function to calculate feed forward
    */
-  public void smoothMotion(double value, TrapezoidProfile.Constraints motionConstraint, Function<TrapezoidProfile.State, Double> feedforwardSupplier) {
-    m_isSmoothMotionEnabled = true;
-    m_feedforwardSupplier = feedforwardSupplier;
-    m_motionConstraint = motionConstraint;
-    m_desiredState = new TrapezoidProfile.State(value, 0.0);
-    m_motionProfile = new TrapezoidProfile(m_motionConstraint);
-    m_smoothMotionState = m_currentStateSupplier.get();
+  public void smoothMotion(double value, TrapezoidProfile.Constraints motionConstraint, ToDoubleFunction<TrapezoidProfile.State> feedforwardSupplier) {
+    synchronized (m_smoothMotionLock) {
+      startSmoothMotion(m_trapezoidProfile);
+      m_trapezoidProfile.setConstraints(motionConstraint.maxVelocity, motionConstraint.maxAcceleration);
+      setSmoothMotionGoal(value, feedforwardSupplier);
+    }
+
+    if (m_smoothMotionBackend.equals(SmoothMotionBackend.SPARK))
+      configureSmartMotion(motionConstraint.maxVelocity, motionConstraint.maxAcceleration);
 
     handleSmoothMotion();
   }
@@ -869,31 +1956,103 @@ public class Spark implements LoggableHardware, AutoCloseable {
     smoothMotion(value, motionConstraint, (motionProfileState) -> 0.0);
   }
 
+  /**
+   * Execute a jerk-limited smooth motion to desired position
+   * <p>
+   * Limiting jerk reduces current spikes and mechanism shock at the start and end of each acceleration phase, at the
+   * cost of a slightly longer move. The profile is replanned only when the goal or constraints change, so prefer the
+   * trapezoid profile for goals that move every loop. With {@link SmoothMotionBackend#SPARK}, the jerk limit is ignored.
+   * @param value The target value for the motor
+   * @param motionConstraint The constraints for the motor
+   * @param feedforwardSupplier Lambda function to calculate feed forward
+   */
+  public void smoothMotion(double value, SCurveMotionProfile.Constraints motionConstraint, ToDoubleFunction<TrapezoidProfile.State> feedforwardSupplier) {
+    synchronized (m_smoothMotionLock) {
+      startSmoothMotion(m_sCurveProfile);
+      m_sCurveProfile.setConstraints(motionConstraint);
+      setSmoothMotionGoal(value, feedforwardSupplier);
+    }
+
+    if (m_smoothMotionBackend.equals(SmoothMotionBackend.SPARK))
+      configureSmartMotion(motionConstraint.maxVelocity, motionConstraint.maxAcceleration);
+
+    handleSmoothMotion();
+  }
+
+  /**
+   * Execute a jerk-limited smooth motion to desired position
+   * @param value The target value for the motor
+   * @param motionConstraint The constraints for the motor
+   */
+  public void smoothMotion(double value, SCurveMotionProfile.Constraints motionConstraint) {
+    smoothMotion(value, motionConstraint, (motionProfileState) -> 0.0);
+  }
+
+  /**
+   * Select smooth motion profile, starting it from the measured state if no motion is active
+   * <p>
+   * Switching profile type mid-motion continues from the current profile state. Must hold smooth motion lock.
+   * @param motionProfile Motion profile to use
+   */
+  private void startSmoothMotion(MotionProfile motionProfile) {
+    if (!m_isSmoothMotionEnabled) {
+      // Start new profile from measured state
+      updateCurrentState();
+      motionProfile.reset(m_currentState.position, m_currentState.velocity);
+      motionProfile.getState(m_smoothMotionState);
+    } else if (motionProfile != m_motionProfile) {
+      motionProfile.reset(m_smoothMotionState.position, m_smoothMotionState.velocity);
+    }
+
+    m_motionProfile = motionProfile;
+  }
+
+  /**
+   * Set goal of selected smooth motion profile. Must hold smooth motion lock.
+   * @param value The target value for the motor
+   * @param feedforwardSupplier Lambda function to calculate feed forward
+   */
+  private void setSmoothMotionGoal(double value, ToDoubleFunction<TrapezoidProfile.State> feedforwardSupplier) {
+    m_isSmoothMotionEnabled = true;
+    m_feedforwardSupplier = feedforwardSupplier;
+    m_desiredState.position = value;
+    m_desiredState.velocity = 0.0;
+    m_motionProfile.setGoal(m_desiredState.position, m_desiredState.velocity);
+  }
+
   /**
    * Reset NEO built-in encoder
+   * <p>
+   * Sent immediately rather than queued behind pending parameters, so that inputs read in the same loop see the reset
+   * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError resetEncoder() {
-    REVLibError status;
-    status = applyParameter(
-      () -> getEncoder().setPosition(0.0),
-      () -> Precision.equals(getEncoderPosition(), 0.0, EPSILON),
-      "Reset encoder failure!"
-    );
+  public CompletableFuture<REVLibError> resetEncoder() {
+    if (isSimulated()) SparkSim.getInstance().resetPosition(m_simIndex);
+    REVLibError status = getEncoder().setPosition(0.0);
+    checkStatus(status, "Reset encoder failure!");
+    if (status != REVLibError.kOk) return CompletableFuture.completedFuture(status);
+
+    // Reflect reset in inputs until the next status frame arrives
+    m_inputs.encoderPosition = 0.0;
+    if (m_velocityEstimator != null) m_velocityEstimator.reset();
     System.out.println(String.join(" ", m_id.name, "Encoder reset!"));
-    return status;
+    return CompletableFuture.completedFuture(status);
   }
 
   /**
    * Disable forward limit switch
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError disableForwardLimitSwitch() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> disableForwardLimitSwitch() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ForwardLimitSwitch", false,
       () -> getForwardLimitSwitch().enableLimitSwitch(false),
       () -> getForwardLimitSwitch().isLimitSwitchEnabled() == false,
       "Disable forward limit switch failure!"
     );
+    m_isForwardLimitSwitchEnabled = false;
+    applyStatusFrame(PeriodicFrame.kStatus0);
     return status;
   }
 
@@ -901,13 +2060,16 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Enable forward limit switch
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError enableForwardLimitSwitch() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> enableForwardLimitSwitch() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ForwardLimitSwitch", true,
       () -> getForwardLimitSwitch().enableLimitSwitch(true),
       () -> getForwardLimitSwitch().isLimitSwitchEnabled() == true,
       "Enable forward limit switch failure!"
     );
+    m_isForwardLimitSwitchEnabled = true;
+    applyStatusFrame(PeriodicFrame.kStatus0);
     return status;
   }
 
@@ -915,13 +2077,16 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Disable reverse limit switch
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError disableReverseLimitSwitch() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> disableReverseLimitSwitch() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ReverseLimitSwitch", false,
       () -> getReverseLimitSwitch().enableLimitSwitch(false),
       () -> getReverseLimitSwitch().isLimitSwitchEnabled() == false,
       "Disable reverse limit switch failure!"
     );
+    m_isReverseLimitSwitchEnabled = false;
+    applyStatusFrame(PeriodicFrame.kStatus0);
     return status;
   }
 
@@ -929,13 +2094,16 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Enable reverse limit switch
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError enableReverseLimitSwitch() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> enableReverseLimitSwitch() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ReverseLimitSwitch", true,
       () -> getReverseLimitSwitch().enableLimitSwitch(true),
       () -> getReverseLimitSwitch().isLimitSwitchEnabled() == true,
       "Enable reverse limit switch failure!"
     );
+    m_isReverseLimitSwitchEnabled = true;
+    applyStatusFrame(PeriodicFrame.kStatus0);
     return status;
   }
 
@@ -944,9 +2112,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param limit Value to set
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setForwardSoftLimit(double limit) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setForwardSoftLimit(double limit) {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ForwardSoftLimit", (float)limit,
       () -> m_spark.setSoftLimit(SoftLimitDirection.kForward, (float)limit),
       () -> Precision.equals(m_spark.getSoftLimit(SoftLimitDirection.kForward), limit, EPSILON),
       "Set forward soft limit failure!"
@@ -959,9 +2128,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param limit Value to set
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setReverseSoftLimit(double limit) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setReverseSoftLimit(double limit) {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ReverseSoftLimit", (float)limit,
       () -> m_spark.setSoftLimit(SoftLimitDirection.kReverse, (float)limit),
       () -> Precision.equals(m_spark.getSoftLimit(SoftLimitDirection.kReverse), limit, EPSILON),
       "Set reverse soft limit failure!"
@@ -973,9 +2143,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Enable forward soft limit
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError enableForwardSoftLimit() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> enableForwardSoftLimit() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ForwardSoftLimitEnabled", true,
       () -> m_spark.enableSoftLimit(SoftLimitDirection.kForward, true),
       () -> m_spark.isSoftLimitEnabled(SoftLimitDirection.kForward) == true,
       "Enable forward soft limit failure!"
@@ -987,9 +2158,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Enable reverse soft limit
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError enableReverseSoftLimit() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> enableReverseSoftLimit() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ReverseSoftLimitEnabled", true,
       () -> m_spark.enableSoftLimit(SoftLimitDirection.kReverse, true),
       () -> m_spark.isSoftLimitEnabled(SoftLimitDirection.kReverse) == true,
       "Enable reverse soft limit failure!"
@@ -1001,9 +2173,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Disable forward soft limit
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError disableForwardSoftLimit() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> disableForwardSoftLimit() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ForwardSoftLimitEnabled", false,
       () -> m_spark.enableSoftLimit(SoftLimitDirection.kForward, false),
       () -> m_spark.isSoftLimitEnabled(SoftLimitDirection.kForward) == false,
       "Disable forward soft limit failure!"
@@ -1015,9 +2188,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Disable reverse soft limit
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError disableReverseSoftLimit() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> disableReverseSoftLimit() {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "ReverseSoftLimitEnabled", false,
       () -> m_spark.enableSoftLimit(SoftLimitDirection.kReverse, false),
       () -> m_spark.isSoftLimitEnabled(SoftLimitDirection.kReverse) == false,
       "Disable reverse soft limit failure!"
@@ -1031,8 +2205,9 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param maxInput Value of max input for position
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError enablePIDWrapping(double minInput, double maxInput) {
-    REVLibError status;
+  public CompletableFuture<REVLibError> enablePIDWrapping(double minInput, double maxInput) {
+    CompletableFuture<REVLibError> status;
+    if (isSimulated()) SparkSim.getInstance().setPIDWrapping(m_simIndex, true, minInput, maxInput);
     Supplier<REVLibError> parameterSetter = () -> {
       REVLibError s;
       s = m_spark.getPIDController().setPositionPIDWrappingEnabled(true);
@@ -1045,7 +2220,7 @@ public class Spark implements LoggableHardware, AutoCloseable {
       Precision.equals(m_spark.getPIDController().getPositionPIDWrappingMinInput(), minInput, EPSILON) &&
       Precision.equals(m_spark.getPIDController().getPositionPIDWrappingMaxInput(), maxInput, EPSILON);
 
-    status = applyParameter(parameterSetter, parameterCheckSupplier, "Enable position PID wrapping failure!");
+    status = queueConfiguration("PIDWrapping", minInput + "," + maxInput, parameterSetter, parameterCheckSupplier, "Enable position PID wrapping failure!");
     return status;
   }
 
@@ -1053,9 +2228,11 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * Disable PID wrapping for close loop position control
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError disablePIDWrapping() {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> disablePIDWrapping() {
+    CompletableFuture<REVLibError> status;
+    if (isSimulated()) SparkSim.getInstance().setPIDWrapping(m_simIndex, false, 0.0, 0.0);
+    status = queueConfiguration(
+      "PIDWrapping", false,
       () -> m_spark.getPIDController().setPositionPIDWrappingEnabled(false),
       () -> m_spark.getPIDController().getPositionPIDWrappingEnabled() == false,
       "Disable position PID wrapping failure!"
@@ -1068,9 +2245,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param mode Idle mode (coast or brake).
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setIdleMode(IdleMode mode) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setIdleMode(IdleMode mode) {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "IdleMode", mode,
       () -> m_spark.setIdleMode(mode),
       () -> m_spark.getIdleMode() == mode,
       "Set idle mode failure!"
@@ -1092,9 +2270,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    *
    * @param limit The desired current limit
    */
-  public REVLibError setSmartCurrentLimit(Measure<Current> limit) {
-    REVLibError status;
-    status = applyParameter(
+  public CompletableFuture<REVLibError> setSmartCurrentLimit(Measure<Current> limit) {
+    CompletableFuture<REVLibError> status;
+    status = queueConfiguration(
+      "SmartCurrentLimit", (int)limit.in(Units.Amps),
       () -> m_spark.setSmartCurrentLimit((int)limit.in(Units.Amps)),
       () -> SparkHelpers.getSmartCurrentLimit(m_spark) == (int)limit.in(Units.Amps),
       "Set current limit failure!"
@@ -1110,8 +2289,12 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param rampTime Time to go from 0 to full throttle.
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setOpenLoopRampRate(Measure<Time> rampTime) {
-    return m_spark.setOpenLoopRampRate(rampTime.in(Units.Seconds));
+  public CompletableFuture<REVLibError> setOpenLoopRampRate(Measure<Time> rampTime) {
+    return queueConfiguration(
+      "OpenLoopRampRate", rampTime.in(Units.Seconds),
+      () -> m_spark.setOpenLoopRampRate(rampTime.in(Units.Seconds)),
+      "Set open loop ramp rate failure!"
+    );
   }
 
   /**
@@ -1122,8 +2305,30 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * @param rampTime Time to go from 0 to full throttle.
    * @return {@link REVLibError#kOk} if successful
    */
-  public REVLibError setClosedLoopRampRate(Measure<Time> rampTime) {
-    return m_spark.setClosedLoopRampRate(rampTime.in(Units.Seconds));
+  public CompletableFuture<REVLibError> setClosedLoopRampRate(Measure<Time> rampTime) {
+    return queueConfiguration(
+      "ClosedLoopRampRate", rampTime.in(Units.Seconds),
+      () -> m_spark.setClosedLoopRampRate(rampTime.in(Units.Seconds)),
+      "Set closed loop ramp rate failure!"
+    );
+  }
+
+  /**
+   * Set load inertia used by {@link SparkSim}, has no effect on a real robot
+   * @param loadInertia Load inertia reflected to motor shaft in kg m^2
+   */
+  public void setSimulationLoadInertia(double loadInertia) {
+    if (isSimulated()) SparkSim.getInstance().setLoadInertia(m_simIndex, loadInertia);
+  }
+
+  /**
+   * Set ratio of motor rotations to external feedback sensor rotations used by {@link SparkSim}, has no effect on a real
+   * robot
+   * @param ratio Motor rotations per sensor rotation, or per volt for an analog sensor, negative if the sensor turns
+   * opposite to the motor
+   */
+  public void setSimulationSensorRatio(double ratio) {
+    if (isSimulated()) SparkSim.getInstance().setSensorRatio(m_simIndex, ratio);
   }
 
   /**
@@ -1131,7 +2336,15 @@ public class Spark implements LoggableHardware, AutoCloseable {
    * motor.
    */
   public void stopMotor() {
-    m_spark.stopMotor();
+    // Cancel smooth motion so that the executor thread does not command the motor again
+    synchronized (m_smoothMotionLock) {
+      m_isSmoothMotionEnabled = false;
+      m_hasPendingOutput = false;
+      m_spark.stopMotor();
+      if (isSimulated()) SparkSim.getInstance().setReference(m_simIndex, 0.0, ControlType.kDutyCycle, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
+      m_lastReferenceControlType = null;
+    }
+    SmoothMotionExecutor.getInstance().remove(m_smoothMotionTask);
     logOutputs(0.0, ControlType.kDutyCycle);
   }
 
@@ -1140,6 +2353,10 @@ public class Spark implements LoggableHardware, AutoCloseable {
    */
   @Override
   public void close() {
+    HardwareManager.getInstance().unregister(this);
+    UNCOMMITTED_SPARKS.remove(this);
+    OutputCommitStage.getInstance().unregister(m_commitTask);
+    if (isSimulated()) SparkSim.getInstance().remove(m_simIndex);
     m_spark.close();
   }
 }
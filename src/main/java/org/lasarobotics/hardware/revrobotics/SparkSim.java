@@ -0,0 +1,575 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import java.util.Arrays;
+
+import org.lasarobotics.hardware.revrobotics.Spark.FeedbackSensor;
+import org.lasarobotics.utils.GlobalConstants;
+
+import com.revrobotics.CANSparkBase.ControlType;
+import com.revrobotics.SparkPIDController;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.units.Units;
+
+/**
+ * Spark physics simulation
+ * <p>
+ * Holds every simulated Spark, including Spark Flex, in struct-of-arrays form and steps them all in one loop. Each
+ * motor is modelled with its {@link DCMotor} and a load inertia reflected to the motor shaft, solved exactly over each
+ * sub-step so that small inertias stay stable. Closed loop control is simulated from the last reference and gains sent
+ * to the Spark, measured by its selected feedback sensor, and results are written into the built-in encoder and
+ * selected feedback sensor fields of each Spark's inputs.
+ */
+public class SparkSim {
+  private static SparkSim m_sim;
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final double MAX_VOLTAGE = 12.0;
+  private static final double DEFAULT_LOAD_INERTIA = 0.001;
+  private static final double DEFAULT_SUB_STEP_PERIOD = 0.001;
+  private static final double AMBIENT_TEMPERATURE = 25.0;
+  // Rough lumped thermal model of a brushless motor, time constant of a few minutes
+  private static final double THERMAL_RESISTANCE = 1.2;
+  private static final double THERMAL_CAPACITANCE = 200.0;
+  private static final double RADIANS_PER_ROTATION = 2 * Math.PI;
+  private static final double SECONDS_PER_MINUTE = 60.0;
+
+  private int m_size;
+  private double m_subStepPeriod;
+
+  // Motor model
+  private double[] m_torqueConstant;
+  private double[] m_velocityConstant;
+  private double[] m_resistance;
+  private double[] m_frictionCoefficient;
+  private double[] m_loadInertia;
+
+  // Motor state
+  private double[] m_voltage;
+  private double[] m_current;
+  private double[] m_velocity;
+  private double[] m_position;
+  private double[] m_temperature;
+
+  // Controller state
+  private boolean[] m_isActive;
+  private ControlType[] m_controlType;
+  private double[] m_reference;
+  private double[] m_arbFeedforward;
+  private double[] m_kP;
+  private double[] m_kI;
+  private double[] m_kD;
+  private double[] m_kF;
+  private double[] m_integral;
+  private double[] m_lastError;
+  private boolean[] m_isWrappingEnabled;
+  private double[] m_wrappingMinInput;
+  private double[] m_wrappingMaxInput;
+
+  // Feedback sensors
+  private FeedbackSensor[] m_feedbackSensor;
+  private boolean[] m_isInverted;
+  private boolean[] m_isSensorInverted;
+  private double[] m_sensorRatio;
+  private double[] m_positionConversionFactor;
+  private double[] m_velocityConversionFactor;
+  private double[] m_analogPositionConversionFactor;
+  private double[] m_analogVelocityConversionFactor;
+  private double[] m_absolutePositionConversionFactor;
+  private double[] m_absoluteVelocityConversionFactor;
+  private Spark.SparkInputs[] m_inputs;
+
+  private SparkSim() {
+    this.m_size = 0;
+    this.m_subStepPeriod = DEFAULT_SUB_STEP_PERIOD;
+    resize(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Get instance of Spark simulation
+   * @return Spark simulation instance
+   */
+  public static synchronized SparkSim getInstance() {
+    if (m_sim == null) m_sim = new SparkSim();
+    return m_sim;
+  }
+
+  /**
+   * Resize all arrays to new capacity
+   * @param capacity New capacity
+   */
+  private void resize(int capacity) {
+    m_torqueConstant = resize(m_torqueConstant, capacity);
+    m_velocityConstant = resize(m_velocityConstant, capacity);
+    m_resistance = resize(m_resistance, capacity);
+    m_frictionCoefficient = resize(m_frictionCoefficient, capacity);
+    m_loadInertia = resize(m_loadInertia, capacity);
+    m_voltage = resize(m_voltage, capacity);
+    m_current = resize(m_current, capacity);
+    m_velocity = resize(m_velocity, capacity);
+    m_position = resize(m_position, capacity);
+    m_temperature = resize(m_temperature, capacity);
+    m_reference = resize(m_reference, capacity);
+    m_arbFeedforward = resize(m_arbFeedforward, capacity);
+    m_kP = resize(m_kP, capacity);
+    m_kI = resize(m_kI, capacity);
+    m_kD = resize(m_kD, capacity);
+    m_kF = resize(m_kF, capacity);
+    m_integral = resize(m_integral, capacity);
+    m_lastError = resize(m_lastError, capacity);
+    m_wrappingMinInput = resize(m_wrappingMinInput, capacity);
+    m_wrappingMaxInput = resize(m_wrappingMaxInput, capacity);
+    m_sensorRatio = resize(m_sensorRatio, capacity);
+    m_positionConversionFactor = resize(m_positionConversionFactor, capacity);
+    m_velocityConversionFactor = resize(m_velocityConversionFactor, capacity);
+    m_analogPositionConversionFactor = resize(m_analogPositionConversionFactor, capacity);
+    m_analogVelocityConversionFactor = resize(m_analogVelocityConversionFactor, capacity);
+    m_absolutePositionConversionFactor = resize(m_absolutePositionConversionFactor, capacity);
+    m_absoluteVelocityConversionFactor = resize(m_absoluteVelocityConversionFactor, capacity);
+    m_isActive = resize(m_isActive, capacity);
+    m_isWrappingEnabled = resize(m_isWrappingEnabled, capacity);
+    m_isInverted = resize(m_isInverted, capacity);
+    m_isSensorInverted = resize(m_isSensorInverted, capacity);
+    m_controlType = m_controlType == null ? new ControlType[capacity] : Arrays.copyOf(m_controlType, capacity);
+    m_feedbackSensor = m_feedbackSensor == null ? new FeedbackSensor[capacity] : Arrays.copyOf(m_feedbackSensor, capacity);
+    m_inputs = m_inputs == null ? new Spark.SparkInputs[capacity] : Arrays.copyOf(m_inputs, capacity);
+  }
+
+  private static double[] resize(double[] array, int capacity) {
+    return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+  }
+
+  private static boolean[] resize(boolean[] array, int capacity) {
+    return array == null ? new boolean[capacity] : Arrays.copyOf(array, capacity);
+  }
+
+  /**
+   * Add simulated Spark
+   * @param motor Motor model
+   * @param inputs Inputs to write simulation results into
+   * @return Index of simulated Spark
+   */
+  synchronized int add(DCMotor motor, Spark.SparkInputs inputs) {
+    if (m_size == m_isActive.length) resize(m_size * 2);
+
+    int index = m_size++;
+    m_torqueConstant[index] = motor.KtNMPerAmp;
+    m_velocityConstant[index] = motor.KvRadPerSecPerVolt;
+    m_resistance[index] = motor.rOhms;
+    // Free current as viscous friction, so that the motor spins at free speed at nominal voltage
+    m_frictionCoefficient[index] = motor.KtNMPerAmp * motor.freeCurrentAmps / motor.freeSpeedRadPerSec;
+    m_loadInertia[index] = DEFAULT_LOAD_INERTIA;
+    m_temperature[index] = AMBIENT_TEMPERATURE;
+    m_controlType[index] = ControlType.kDutyCycle;
+    m_isWrappingEnabled[index] = false;
+    m_feedbackSensor[index] = FeedbackSensor.NEO_ENCODER;
+    m_isInverted[index] = false;
+    m_isSensorInverted[index] = false;
+    m_sensorRatio[index] = 1.0;
+    m_positionConversionFactor[index] = 1.0;
+    m_velocityConversionFactor[index] = 1.0;
+    m_analogPositionConversionFactor[index] = 1.0;
+    m_analogVelocityConversionFactor[index] = 1.0;
+    m_absolutePositionConversionFactor[index] = 1.0;
+    m_absoluteVelocityConversionFactor[index] = 1.0;
+    m_inputs[index] = inputs;
+    m_isActive[index] = true;
+
+    return index;
+  }
+
+  /**
+   * Stop simulating Spark
+   * @param index Index of simulated Spark
+   */
+  synchronized void remove(int index) {
+    m_isActive[index] = false;
+    m_inputs[index] = null;
+  }
+
+  /**
+   * Set last reference sent to Spark
+   * @param index Index of simulated Spark
+   * @param value Reference value
+   * @param ctrl Control mode
+   * @param arbFeedforward Feed forward value
+   * @param arbFFUnits Feed forward units
+   */
+  synchronized void setReference(int index, double value, ControlType ctrl, double arbFeedforward, SparkPIDController.ArbFFUnits arbFFUnits) {
+    if (ctrl != m_controlType[index]) {
+      m_integral[index] = 0.0;
+      m_lastError[index] = 0.0;
+    }
+
+    m_controlType[index] = ctrl;
+    m_reference[index] = value;
+    m_arbFeedforward[index] = arbFFUnits == SparkPIDController.ArbFFUnits.kPercentOut
+      ? arbFeedforward * MAX_VOLTAGE
+      : arbFeedforward;
+  }
+
+  /**
+   * Set proportional gain of simulated Spark
+   * @param index Index of simulated Spark
+   * @param value Proportional gain
+   */
+  synchronized void setP(int index, double value) {
+    m_kP[index] = value;
+  }
+
+  /**
+   * Set integral gain of simulated Spark
+   * @param index Index of simulated Spark
+   * @param value Integral gain
+   */
+  synchronized void setI(int index, double value) {
+    m_kI[index] = value;
+  }
+
+  /**
+   * Set derivative gain of simulated Spark
+   * @param index Index of simulated Spark
+   * @param value Derivative gain
+   */
+  synchronized void setD(int index, double value) {
+    m_kD[index] = value;
+  }
+
+  /**
+   * Set feed forward gain of simulated Spark
+   * @param index Index of simulated Spark
+   * @param value Feed forward gain
+   */
+  synchronized void setF(int index, double value) {
+    m_kF[index] = value;
+  }
+
+  /**
+   * Set position conversion factor of a sensor on simulated Spark
+   * @param index Index of simulated Spark
+   * @param sensor Sensor to set conversion factor for
+   * @param factor Position conversion factor, in units per native sensor unit
+   */
+  synchronized void setPositionConversionFactor(int index, FeedbackSensor sensor, double factor) {
+    switch (sensor) {
+      case ANALOG:
+        m_analogPositionConversionFactor[index] = factor;
+        break;
+      case THROUGH_BORE_ENCODER:
+        m_absolutePositionConversionFactor[index] = factor;
+        break;
+      case NEO_ENCODER:
+      default:
+        m_positionConversionFactor[index] = factor;
+        break;
+    }
+  }
+
+  /**
+   * Set velocity conversion factor of a sensor on simulated Spark
+   * @param index Index of simulated Spark
+   * @param sensor Sensor to set conversion factor for
+   * @param factor Velocity conversion factor, in units per native sensor unit
+   */
+  synchronized void setVelocityConversionFactor(int index, FeedbackSensor sensor, double factor) {
+    switch (sensor) {
+      case ANALOG:
+        m_analogVelocityConversionFactor[index] = factor;
+        break;
+      case THROUGH_BORE_ENCODER:
+        m_absoluteVelocityConversionFactor[index] = factor;
+        break;
+      case NEO_ENCODER:
+      default:
+        m_velocityConversionFactor[index] = factor;
+        break;
+    }
+  }
+
+  /**
+   * Set feedback sensor used for closed loop control of simulated Spark
+   * @param index Index of simulated Spark
+   * @param sensor Feedback sensor
+   * @param isSensorInverted True if sensor phase is inverted, ignored for the built-in encoder
+   */
+  synchronized void setFeedbackSensor(int index, FeedbackSensor sensor, boolean isSensorInverted) {
+    m_feedbackSensor[index] = sensor;
+    m_isSensorInverted[index] = isSensorInverted;
+    m_integral[index] = 0.0;
+    m_lastError[index] = 0.0;
+  }
+
+  /**
+   * Set motor inversion of simulated Spark
+   * <p>
+   * Inverts motor output and the built-in encoder, but not external sensors
+   * @param index Index of simulated Spark
+   * @param isInverted True if motor is inverted
+   */
+  synchronized void setInverted(int index, boolean isInverted) {
+    m_isInverted[index] = isInverted;
+  }
+
+  /**
+   * Set ratio of motor rotations to external sensor rotations of simulated Spark
+   * @param index Index of simulated Spark
+   * @param ratio Motor rotations per sensor rotation, or per volt for an analog sensor, negative if the sensor turns
+   * opposite to the motor
+   */
+  synchronized void setSensorRatio(int index, double ratio) {
+    m_sensorRatio[index] = ratio;
+  }
+
+  /**
+   * Set position PID wrapping of simulated Spark
+   * @param index Index of simulated Spark
+   * @param isEnabled True to enable wrapping
+   * @param minInput Minimum input for wrapping
+   * @param maxInput Maximum input for wrapping
+   */
+  synchronized void setPIDWrapping(int index, boolean isEnabled, double minInput, double maxInput) {
+    m_isWrappingEnabled[index] = isEnabled;
+    m_wrappingMinInput[index] = minInput;
+    m_wrappingMaxInput[index] = maxInput;
+  }
+
+  /**
+   * Reset position of simulated Spark to zero
+   * @param index Index of simulated Spark
+   */
+  synchronized void resetPosition(int index) {
+    m_position[index] = 0.0;
+    m_integral[index] = 0.0;
+    m_lastError[index] = 0.0;
+  }
+
+  /**
+   * Set load inertia of simulated Spark
+   * @param index Index of simulated Spark
+   * @param loadInertia Load inertia reflected to motor shaft in kg m^2
+   */
+  synchronized void setLoadInertia(int index, double loadInertia) {
+    m_loadInertia[index] = Math.max(loadInertia, Double.MIN_NORMAL);
+  }
+
+  /**
+   * Get simulated motor current
+   * @param index Index of simulated Spark
+   * @return Current in amps
+   */
+  synchronized double getCurrent(int index) {
+    return m_current[index];
+  }
+
+  /**
+   * Get simulated motor temperature
+   * @param index Index of simulated Spark
+   * @return Temperature in degrees Celsius
+   */
+  synchronized double getTemperature(int index) {
+    return m_temperature[index];
+  }
+
+  /**
+   * Get simulated applied voltage
+   * @param index Index of simulated Spark
+   * @return Voltage in volts
+   */
+  synchronized double getVoltage(int index) {
+    return m_voltage[index];
+  }
+
+  /**
+   * Set sub-step period, defaults to 1ms to match the Spark's control loop
+   * @param period Sub-step period
+   */
+  public synchronized void setSubStepPeriod(Measure<Time> period) {
+    m_subStepPeriod = period.in(Units.Seconds);
+  }
+
+  /**
+   * Step all simulated Sparks by {@value GlobalConstants#ROBOT_LOOP_PERIOD}s
+   * <p>
+   * Call this from the robot's simulation periodic method
+   */
+  public void run() {
+    run(GlobalConstants.ROBOT_LOOP_PERIOD);
+  }
+
+  /**
+   * Step all simulated Sparks, splitting time step into sub-steps
+   * @param dt Time step in seconds
+   */
+  public synchronized void run(double dt) {
+    int subSteps = Math.max((int)Math.ceil(dt / m_subStepPeriod - 1e-9), 1);
+    double subStepPeriod = dt / subSteps;
+    for (int i = 0; i < subSteps; i++) step(subStepPeriod);
+    updateInputs();
+  }
+
+  /**
+   * Step all simulated Sparks once
+   * @param dt Time step in seconds
+   */
+  private void step(double dt) {
+    for (int i = 0; i < m_size; i++) {
+      if (!m_isActive[i]) continue;
+
+      double voltage = getDirection(i) * Math.max(-MAX_VOLTAGE, Math.min(getOutputVoltage(i), MAX_VOLTAGE));
+      double kt = m_torqueConstant[i], kv = m_velocityConstant[i], resistance = m_resistance[i];
+
+      // Linear motor dynamics, dw/dt = a * w + b, solved exactly over time step
+      double a = -(kt / (kv * resistance) + m_frictionCoefficient[i]) / m_loadInertia[i];
+      double b = kt * voltage / (resistance * m_loadInertia[i]);
+      double steadyVelocity = -b / a;
+      double decay = Math.exp(a * dt);
+      double velocity = m_velocity[i];
+      m_position[i] += steadyVelocity * dt + (velocity - steadyVelocity) * (decay - 1.0) / a;
+      m_velocity[i] = steadyVelocity + (velocity - steadyVelocity) * decay;
+      m_voltage[i] = voltage;
+      m_current[i] = (voltage - m_velocity[i] / kv) / resistance;
+
+      // Copper losses heat motor, which cools to ambient
+      double heat = m_current[i] * m_current[i] * resistance;
+      double cooling = (m_temperature[i] - AMBIENT_TEMPERATURE) / THERMAL_RESISTANCE;
+      m_temperature[i] += (heat - cooling) / THERMAL_CAPACITANCE * dt;
+    }
+  }
+
+  /**
+   * Calculate output voltage of simulated Spark from last reference
+   * <p>
+   * PIDF output is in duty cycle, integrated and differentiated per sub-step like the Spark's 1ms control loop. Output
+   * is in the Spark's frame, before motor inversion is applied.
+   * @param index Index of simulated Spark
+   * @return Output voltage
+   */
+  private double getOutputVoltage(int index) {
+    double measurement;
+    boolean isPosition = false;
+    switch (m_controlType[index]) {
+      case kDutyCycle:
+        return m_reference[index] * MAX_VOLTAGE;
+      case kVoltage:
+        return m_reference[index];
+      case kCurrent:
+        return m_reference[index] * m_resistance[index] + getDirection(index) * m_velocity[index] / m_velocityConstant[index];
+      case kVelocity:
+      case kSmartVelocity:
+        measurement = getSensorVelocity(index);
+        break;
+      case kPosition:
+      case kSmartMotion:
+      default:
+        measurement = getSensorPosition(index);
+        isPosition = true;
+        break;
+    }
+
+    double error = m_reference[index] - measurement;
+    if (isPosition && m_isWrappingEnabled[index]) {
+      double halfRange = (m_wrappingMaxInput[index] - m_wrappingMinInput[index]) / 2;
+      error = MathUtil.inputModulus(error, -halfRange, +halfRange);
+    }
+    m_integral[index] += error;
+    double output = m_kP[index] * error
+                    + m_kI[index] * m_integral[index]
+                    + m_kD[index] * (error - m_lastError[index])
+                    + m_kF[index] * m_reference[index];
+    m_lastError[index] = error;
+
+    return Math.max(-1.0, Math.min(output, +1.0)) * MAX_VOLTAGE + m_arbFeedforward[index];
+  }
+
+  /**
+   * Get direction of motor output relative to the Spark's frame
+   * @param index Index of simulated Spark
+   * @return -1.0 if motor is inverted, otherwise +1.0
+   */
+  private double getDirection(int index) {
+    return m_isInverted[index] ? -1.0 : +1.0;
+  }
+
+  /**
+   * Convert motor rotations to external sensor native units
+   * @param index Index of simulated Spark
+   * @param motorRotations Motor rotations
+   * @return Sensor native units, with sensor phase applied
+   */
+  private double toSensorUnits(int index, double motorRotations) {
+    return (m_isSensorInverted[index] ? -1.0 : +1.0) * motorRotations / m_sensorRatio[index];
+  }
+
+  /**
+   * Get position measured by selected feedback sensor
+   * <p>
+   * The built-in encoder follows motor inversion, external sensors see the motor's physical rotation
+   * @param index Index of simulated Spark
+   * @return Position, in configured units of selected sensor
+   */
+  private double getSensorPosition(int index) {
+    double rotations = m_position[index] / RADIANS_PER_ROTATION;
+    switch (m_feedbackSensor[index]) {
+      case ANALOG:
+        return toSensorUnits(index, rotations) * m_analogPositionConversionFactor[index];
+      case THROUGH_BORE_ENCODER:
+        // Absolute encoder wraps once per rotation
+        double sensorRotations = toSensorUnits(index, rotations);
+        return (sensorRotations - Math.floor(sensorRotations)) * m_absolutePositionConversionFactor[index];
+      case NEO_ENCODER:
+      default:
+        return getDirection(index) * rotations * m_positionConversionFactor[index];
+    }
+  }
+
+  /**
+   * Get velocity measured by selected feedback sensor
+   * <p>
+   * Native velocity units are per minute for encoders and per second for analog sensors, like the Spark
+   * @param index Index of simulated Spark
+   * @return Velocity, in configured units of selected sensor
+   */
+  private double getSensorVelocity(int index) {
+    double rotationsPerMinute = m_velocity[index] / RADIANS_PER_ROTATION * SECONDS_PER_MINUTE;
+    switch (m_feedbackSensor[index]) {
+      case ANALOG:
+        return toSensorUnits(index, rotationsPerMinute) / SECONDS_PER_MINUTE * m_analogVelocityConversionFactor[index];
+      case THROUGH_BORE_ENCODER:
+        return toSensorUnits(index, rotationsPerMinute) * m_absoluteVelocityConversionFactor[index];
+      case NEO_ENCODER:
+      default:
+        return getDirection(index) * rotationsPerMinute * m_velocityConversionFactor[index];
+    }
+  }
+
+  /**
+   * Write simulation results into inputs of each simulated Spark
+   */
+  private void updateInputs() {
+    for (int i = 0; i < m_size; i++) {
+      if (!m_isActive[i]) continue;
+      double direction = getDirection(i);
+      m_inputs[i].encoderPosition = direction * m_position[i] / RADIANS_PER_ROTATION * m_positionConversionFactor[i];
+      m_inputs[i].encoderVelocity = direction * m_velocity[i] / RADIANS_PER_ROTATION * SECONDS_PER_MINUTE * m_velocityConversionFactor[i];
+      switch (m_feedbackSensor[i]) {
+        case ANALOG:
+          m_inputs[i].analogPosition = getSensorPosition(i);
+          m_inputs[i].analogVelocity = getSensorVelocity(i);
+          break;
+        case THROUGH_BORE_ENCODER:
+          m_inputs[i].absoluteEncoderPosition = getSensorPosition(i);
+          m_inputs[i].absoluteEncoderVelocity = getSensorVelocity(i);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+}
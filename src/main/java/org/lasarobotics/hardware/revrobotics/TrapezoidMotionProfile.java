@@ -0,0 +1,183 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+/**
+ * Mutable trapezoid motion profile
+ * <p>
+ * Same motion as {@link TrapezoidProfile}, but the profile state is updated in place so that the goal and constraints
+ * can be changed every loop without allocating, while keeping the current velocity continuous
+ */
+public class TrapezoidMotionProfile implements MotionProfile {
+  private double m_maxVelocity;
+  private double m_maxAcceleration;
+  private double m_position;
+  private double m_velocity;
+  private double m_goalPosition;
+  private double m_goalVelocity;
+  private boolean m_isFinished;
+
+  /**
+   * Create a trapezoid motion profile
+   * @param maxVelocity Maximum velocity
+   * @param maxAcceleration Maximum acceleration
+   */
+  public TrapezoidMotionProfile(double maxVelocity, double maxAcceleration) {
+    setConstraints(maxVelocity, maxAcceleration);
+    this.m_isFinished = true;
+  }
+
+  /**
+   * Create a trapezoid motion profile with no constraints set
+   */
+  public TrapezoidMotionProfile() {
+    this(0.0, 0.0);
+  }
+
+  /**
+   * Set profile constraints, taking effect on the next step
+   * @param maxVelocity Maximum velocity
+   * @param maxAcceleration Maximum acceleration
+   */
+  public void setConstraints(double maxVelocity, double maxAcceleration) {
+    m_maxVelocity = Math.abs(maxVelocity);
+    m_maxAcceleration = Math.abs(maxAcceleration);
+  }
+
+  /**
+   * Reset profile state
+   * @param position Current position
+   * @param velocity Current velocity
+   */
+  @Override
+  public void reset(double position, double velocity) {
+    m_position = position;
+    m_velocity = velocity;
+    m_isFinished = false;
+  }
+
+  /**
+   * Set profile goal, keeping current profile state
+   * @param position Goal position
+   * @param velocity Goal velocity
+   */
+  @Override
+  public void setGoal(double position, double velocity) {
+    m_goalPosition = position;
+    m_goalVelocity = velocity;
+    m_isFinished = false;
+  }
+
+  /**
+   * Advance profile state towards goal
+   * @param dt Time step in seconds
+   */
+  @Override
+  public void calculate(double dt) {
+    if (m_isFinished) return;
+    if (m_maxVelocity <= 0.0 || m_maxAcceleration <= 0.0) {
+      m_position = m_goalPosition;
+      m_velocity = m_goalVelocity;
+      m_isFinished = true;
+      return;
+    }
+
+    // Solve profile in the direction of travel
+    double direction = m_position > m_goalPosition ? -1.0 : +1.0;
+    double position = m_position * direction;
+    double velocity = Math.min(m_velocity * direction, m_maxVelocity);
+    double goalPosition = m_goalPosition * direction;
+    double goalVelocity = m_goalVelocity * direction;
+
+    double cutoffBegin = velocity / m_maxAcceleration;
+    double cutoffDistBegin = cutoffBegin * cutoffBegin * m_maxAcceleration / 2.0;
+    double cutoffEnd = goalVelocity / m_maxAcceleration;
+    double cutoffDistEnd = cutoffEnd * cutoffEnd * m_maxAcceleration / 2.0;
+
+    double fullTrapezoidDist = cutoffDistBegin + (goalPosition - position) + cutoffDistEnd;
+    double accelerationTime = m_maxVelocity / m_maxAcceleration;
+    double fullSpeedDist = fullTrapezoidDist - accelerationTime * accelerationTime * m_maxAcceleration;
+
+    // Profile never reaches maximum velocity
+    if (fullSpeedDist < 0.0) {
+      accelerationTime = Math.sqrt(fullTrapezoidDist / m_maxAcceleration);
+      fullSpeedDist = 0.0;
+    }
+
+    double endAcceleration = accelerationTime - cutoffBegin;
+    double endFullSpeed = endAcceleration + fullSpeedDist / m_maxVelocity;
+    double endDeceleration = endFullSpeed + accelerationTime - cutoffEnd;
+
+    if (dt < endAcceleration) {
+      position += (velocity + dt * m_maxAcceleration / 2.0) * dt;
+      velocity += dt * m_maxAcceleration;
+    } else if (dt < endFullSpeed) {
+      position += (velocity + endAcceleration * m_maxAcceleration / 2.0) * endAcceleration
+                  + m_maxVelocity * (dt - endAcceleration);
+      velocity = m_maxVelocity;
+    } else if (dt <= endDeceleration) {
+      double timeLeft = endDeceleration - dt;
+      velocity = goalVelocity + timeLeft * m_maxAcceleration;
+      position = goalPosition - (goalVelocity + timeLeft * m_maxAcceleration / 2.0) * timeLeft;
+    } else {
+      position = goalPosition;
+      velocity = goalVelocity;
+      m_isFinished = true;
+    }
+
+    m_position = position * direction;
+    m_velocity = velocity * direction;
+  }
+
+  /**
+   * Copy current profile state into existing state object
+   * @param state State to update
+   * @return Updated state
+   */
+  @Override
+  public TrapezoidProfile.State getState(TrapezoidProfile.State state) {
+    state.position = m_position;
+    state.velocity = m_velocity;
+    return state;
+  }
+
+  /**
+   * Get current profile position
+   * @return Profile position
+   */
+  @Override
+  public double getPosition() {
+    return m_position;
+  }
+
+  /**
+   * Get current profile velocity
+   * @return Profile velocity
+   */
+  @Override
+  public double getVelocity() {
+    return m_velocity;
+  }
+
+  /**
+   * Get goal position
+   * @return Goal position
+   */
+  @Override
+  public double getGoalPosition() {
+    return m_goalPosition;
+  }
+
+  /**
+   * Check if profile has reached its goal
+   * @return True if profile state is at goal
+   */
+  @Override
+  public boolean isFinished() {
+    return m_isFinished;
+  }
+}
@@ -0,0 +1,128 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.units.Units;
+
+/**
+ * Velocity estimator
+ * <p>
+ * Estimates velocity and acceleration from timestamped position samples by fitting a quadratic to all samples within
+ * a time window and evaluating it at the latest sample. Unlike a moving-window difference, the estimate is not delayed
+ * by half the window, while the fit still averages out encoder quantization.
+ */
+public class VelocityEstimator {
+  private static final int CAPACITY = 32;
+  private static final double EPSILON = 1e-12;
+
+  private double m_window;
+  private double[] m_timestamps;
+  private double[] m_positions;
+  private int m_head;
+  private int m_size;
+  private double m_velocity;
+  private double m_acceleration;
+
+  /**
+   * Create a velocity estimator
+   * @param window Time window of samples to fit
+   */
+  public VelocityEstimator(Measure<Time> window) {
+    this.m_window = window.in(Units.Seconds);
+    this.m_timestamps = new double[CAPACITY];
+    this.m_positions = new double[CAPACITY];
+    reset();
+  }
+
+  /**
+   * Clear all samples
+   */
+  public void reset() {
+    m_head = 0;
+    m_size = 0;
+    m_velocity = 0.0;
+    m_acceleration = 0.0;
+  }
+
+  /**
+   * Add position sample and update estimate
+   * <p>
+   * Samples that are not newer than the latest sample are ignored
+   * @param timestamp Sample time in seconds
+   * @param position Measured position
+   */
+  public void addSample(double timestamp, double position) {
+    if (m_size > 0 && timestamp <= m_timestamps[m_head]) return;
+
+    m_head = (m_head + 1) % CAPACITY;
+    m_timestamps[m_head] = timestamp;
+    m_positions[m_head] = position;
+    m_size = Math.min(m_size + 1, CAPACITY);
+
+    update();
+  }
+
+  /**
+   * Fit quadratic to samples in window
+   * <p>
+   * Time is measured from the latest sample and normalized by the window length for numerical stability
+   */
+  private void update() {
+    double latestTimestamp = m_timestamps[m_head];
+    double latestPosition = m_positions[m_head];
+
+    double n = 0.0, st = 0.0, st2 = 0.0, st3 = 0.0, st4 = 0.0;
+    double sp = 0.0, stp = 0.0, st2p = 0.0;
+    for (int i = 0; i < m_size; i++) {
+      int index = (m_head - i + CAPACITY) % CAPACITY;
+      double t = (m_timestamps[index] - latestTimestamp) / m_window;
+      if (t < -1.0 - EPSILON) break;
+
+      double p = m_positions[index] - latestPosition;
+      double t2 = t * t;
+      n++;
+      st += t;
+      st2 += t2;
+      st3 += t2 * t;
+      st4 += t2 * t2;
+      sp += p;
+      stp += t * p;
+      st2p += t2 * p;
+    }
+
+    // Solve normal equations for quadratic fit
+    double determinant = n * (st2 * st4 - st3 * st3) - st * (st * st4 - st3 * st2) + st2 * (st * st3 - st2 * st2);
+    if (n >= 3 && Math.abs(determinant) > EPSILON) {
+      m_velocity = (n * (stp * st4 - st3 * st2p) - sp * (st * st4 - st3 * st2) + st2 * (st * st2p - stp * st2))
+                   / determinant / m_window;
+      m_acceleration = 2 * (n * (st2 * st2p - stp * st3) - st * (st * st2p - stp * st2) + sp * (st * st3 - st2 * st2))
+                       / determinant / (m_window * m_window);
+      return;
+    }
+
+    // Fall back to linear fit
+    determinant = n * st2 - st * st;
+    m_velocity = n >= 2 && Math.abs(determinant) > EPSILON ? (n * stp - st * sp) / determinant / m_window : 0.0;
+    m_acceleration = 0.0;
+  }
+
+  /**
+   * Get estimated velocity at latest sample
+   * @return Velocity in position units per second
+   */
+  public double getVelocity() {
+    return m_velocity;
+  }
+
+  /**
+   * Get estimated acceleration at latest sample
+   * @return Acceleration in position units per second squared
+   */
+  public double getAcceleration() {
+    return m_acceleration;
+  }
+}
@@ -0,0 +1,184 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.utils;
+
+/**
+ * Timestamped ring buffer
+ * <p>
+ * Lock-free buffer of fixed-width timestamped samples for a single writer thread. The writer never blocks; once the
+ * buffer is full the oldest samples are overwritten. Any number of threads may read samples concurrently into their
+ * own arrays, while draining is serialized. Readers detect samples that were overwritten while being read and skip
+ * them, so a reader never sees a torn sample.
+ */
+public class TimestampedRingBuffer {
+  /** Consumer of drained samples */
+  @FunctionalInterface
+  public interface SampleConsumer {
+    /**
+     * Accept sample
+     * @param timestamp Sample timestamp in seconds
+     * @param values Sample values, only valid until this method returns
+     */
+    void accept(double timestamp, double[] values);
+  }
+
+  private final int m_capacity;
+  private final int m_mask;
+  private final int m_width;
+  private final double[] m_timestamps;
+  private final double[] m_values;
+  private final double[] m_drainValues;
+  private volatile long m_writeIndex;
+  private volatile long m_startIndex;
+
+  /**
+   * Create a timestamped ring buffer
+   * @param capacity Minimum number of samples to keep, rounded up to a power of two
+   * @param width Number of values per sample
+   */
+  public TimestampedRingBuffer(int capacity, int width) {
+    this.m_capacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    this.m_mask = m_capacity - 1;
+    this.m_width = width;
+    this.m_timestamps = new double[m_capacity];
+    this.m_values = new double[m_capacity * m_width];
+    this.m_drainValues = new double[m_width];
+    this.m_writeIndex = 0;
+    this.m_startIndex = 0;
+  }
+
+  /**
+   * Add sample, overwriting oldest sample if buffer is full
+   * <p>
+   * Must only be called from the writer thread
+   * @param timestamp Sample timestamp in seconds
+   * @param values Sample values, must contain at least as many values as buffer width
+   */
+  public void add(double timestamp, double[] values) {
+    long index = m_writeIndex;
+    int slot = (int)(index & m_mask);
+    m_timestamps[slot] = timestamp;
+    System.arraycopy(values, 0, m_values, slot * m_width, m_width);
+    m_writeIndex = index + 1;
+  }
+
+  /**
+   * Copy sample into array
+   * @param index Sample index
+   * @param values Array to copy values into
+   * @return Sample timestamp, NaN if sample was overwritten while reading
+   */
+  private double read(long index, double[] values) {
+    int slot = (int)(index & m_mask);
+    double timestamp = m_timestamps[slot];
+    System.arraycopy(m_values, slot * m_width, values, 0, m_width);
+
+    // Writer may be overwriting the oldest slot while it is being read
+    return isAvailable(index) ? timestamp : Double.NaN;
+  }
+
+  /**
+   * Check if sample is still in buffer
+   * @param index Sample index
+   * @return True if sample has not been overwritten or cleared
+   */
+  private boolean isAvailable(long index) {
+    return index >= m_startIndex && index > m_writeIndex - m_capacity;
+  }
+
+  /**
+   * Get latest sample
+   * @param values Array to copy values into
+   * @return Timestamp of latest sample, NaN if buffer is empty
+   */
+  public double getLatest(double[] values) {
+    long index = m_writeIndex - 1;
+    if (index < m_startIndex) return Double.NaN;
+
+    return read(index, values);
+  }
+
+  /**
+   * Get sample at timestamp, linearly interpolating between neighbouring samples
+   * <p>
+   * Timestamps newer than the latest sample return the latest sample
+   * @param timestamp Timestamp in seconds
+   * @param values Array to copy interpolated values into
+   * @return True if a sample could be found, false if buffer is empty or timestamp is older than all samples
+   */
+  public boolean getAt(double timestamp, double[] values) {
+    long next = m_writeIndex - 1;
+    if (next < 0 || !isAvailable(next)) return false;
+
+    double nextTimestamp = m_timestamps[(int)(next & m_mask)];
+    if (timestamp >= nextTimestamp) return !Double.isNaN(read(next, values));
+
+    // Find newest sample at or before timestamp, comparing timestamps only
+    long previous = next - 1;
+    while (previous >= 0 && isAvailable(previous)) {
+      double previousTimestamp = m_timestamps[(int)(previous & m_mask)];
+      if (timestamp >= previousTimestamp) {
+        double t = (timestamp - previousTimestamp) / (nextTimestamp - previousTimestamp);
+        int previousOffset = (int)(previous & m_mask) * m_width;
+        int nextOffset = (int)(next & m_mask) * m_width;
+        for (int i = 0; i < m_width; i++)
+          values[i] = m_values[previousOffset + i] + (m_values[nextOffset + i] - m_values[previousOffset + i]) * t;
+
+        // Writer may have overwritten the older sample while it was being read
+        return isAvailable(previous);
+      }
+      next = previous;
+      nextTimestamp = previousTimestamp;
+      previous--;
+    }
+
+    return false;
+  }
+
+  /**
+   * Pass every sample newer than timestamp to consumer, oldest first
+   * <p>
+   * Concurrent drains share a buffer for sample values, so they are serialized
+   * @param timestamp Timestamp of last sample already consumed, in seconds
+   * @param consumer Sample consumer
+   * @return Timestamp of newest sample consumed, or given timestamp if there were no new samples
+   */
+  public synchronized double drainSince(double timestamp, SampleConsumer consumer) {
+    long end = m_writeIndex;
+
+    // Walk back to oldest new sample still in buffer
+    long start = end;
+    while (isAvailable(start - 1) && m_timestamps[(int)((start - 1) & m_mask)] > timestamp) start--;
+
+    double latestTimestamp = timestamp;
+    for (long index = start; index < end; index++) {
+      double sampleTimestamp = read(index, m_drainValues);
+      if (Double.isNaN(sampleTimestamp) || sampleTimestamp <= latestTimestamp) continue;
+
+      consumer.accept(sampleTimestamp, m_drainValues);
+      latestTimestamp = sampleTimestamp;
+    }
+
+    return latestTimestamp;
+  }
+
+  /**
+   * Get total number of samples ever added, including cleared samples
+   * @return Number of samples added
+   */
+  public long getCount() {
+    return m_writeIndex;
+  }
+
+  /**
+   * Remove all samples
+   * <p>
+   * Must only be called from the writer thread, or while the writer is stopped. Sample indices keep increasing, so
+   * readers that are active while the buffer is cleared see the cleared samples as overwritten.
+   */
+  public void clear() {
+    m_startIndex = m_writeIndex;
+  }
+}
@@ -0,0 +1,432 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.drive;
+
+import static edu.wpi.first.math.Nat.N1;
+import static edu.wpi.first.math.Nat.N2;
+import static edu.wpi.first.math.Nat.N3;
+import static edu.wpi.first.math.Nat.N4;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.lasarobotics.drive.AdvancedSwerveKinematics.ControlCentricity;
+import org.lasarobotics.drive.AdvancedSwerveKinematics.DesaturationPolicy;
+import org.lasarobotics.utils.GlobalConstants;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.numbers.N4;
+import edu.wpi.first.units.Units;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class AdvancedSwerveKinematicsTest {
+  private final double DELTA = 1e-9;
+  private final int SAMPLES = 1000;
+  private final int LOOPS = 10000;
+  private final double TIME_STEP = 1e-6;
+  private final double SIM_PERIOD = 0.001;
+  private final double SIM_DURATION = 2.0;
+  private final double ROTATE_kP = 20.0;
+  private final double MAX_MODULE_SPEED = 4.5;
+  private final Translation2d[] MODULE_LOCATIONS = {
+    new Translation2d(+0.3, +0.3),
+    new Translation2d(+0.3, -0.3),
+    new Translation2d(-0.3, +0.3),
+    new Translation2d(-0.3, -0.3)
+  };
+
+  private AdvancedSwerveKinematics m_kinematics;
+  private double[] m_moduleSpeeds;
+  private double[] m_moduleHeadings;
+  private double[] m_moduleTurnSpeeds;
+  private double[] m_chassisSpeeds;
+
+  @BeforeEach
+  public void setup() {
+    m_kinematics = new AdvancedSwerveKinematics(MODULE_LOCATIONS);
+    m_moduleSpeeds = new double[MODULE_LOCATIONS.length];
+    m_moduleHeadings = new double[MODULE_LOCATIONS.length];
+    m_moduleTurnSpeeds = new double[MODULE_LOCATIONS.length];
+    m_chassisSpeeds = new double[3];
+  }
+
+  @AfterEach
+  public void close() {
+    m_kinematics = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if module states match matrix implementation")
+  public void matchesMatrixImplementation() {
+    Random random = new Random(5406);
+    SwerveModuleState[] moduleStates = new SwerveModuleState[MODULE_LOCATIONS.length];
+    for (int i = 0; i < moduleStates.length; i++) moduleStates[i] = new SwerveModuleState();
+
+    for (int i = 0; i < SAMPLES; i++) {
+      ChassisSpeeds speeds = new ChassisSpeeds(
+        random.nextDouble(-5.0, +5.0),
+        random.nextDouble(-5.0, +5.0),
+        random.nextDouble(-10.0, +10.0)
+      );
+      Rotation2d heading = Rotation2d.fromRadians(random.nextDouble(-Math.PI, +Math.PI));
+      ControlCentricity controlCentricity = ControlCentricity.values()[i % ControlCentricity.values().length];
+
+      SwerveModuleState[] expectedStates = toSwerveModuleStatesMatrix(speeds, heading, controlCentricity);
+      m_kinematics.toSwerveModuleStates(speeds, heading, controlCentricity, moduleStates);
+
+      for (int j = 0; j < moduleStates.length; j++) {
+        assertEquals(expectedStates[j].speedMetersPerSecond, moduleStates[j].speedMetersPerSecond, DELTA);
+        assertEquals(expectedStates[j].angle.getRadians(), moduleStates[j].angle.getRadians(), DELTA);
+      }
+    }
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if primitive conversion does not allocate")
+  public void zeroAllocation() {
+    ThreadMXBean threadMXBean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+    m_kinematics.setDesaturation(DesaturationPolicy.TRANSLATION_PRIORITY, Units.MetersPerSecond.of(MAX_MODULE_SPEED));
+
+    // Warm up
+    convert();
+
+    long startBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+    convert();
+    long endBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+
+    assertEquals(0, endBytes - startBytes);
+    assertTrue(Double.isFinite(m_moduleSpeeds[0]));
+    assertTrue(Double.isFinite(m_chassisSpeeds[0]));
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if module turn speeds match rate of change of module headings")
+  public void turnSpeed() {
+    double[] nextModuleHeadings = new double[MODULE_LOCATIONS.length];
+    double vx = 2.0, vy = -1.0, omega = 3.0, robotHeading = 0.5;
+
+    // Field centric, module headings change as the robot turns under constant translation
+    m_kinematics.toSwerveModuleStates(
+      vx, vy, omega, robotHeading,
+      ControlCentricity.FIELD_CENTRIC,
+      m_moduleSpeeds,
+      m_moduleHeadings,
+      m_moduleTurnSpeeds
+    );
+    m_kinematics.toSwerveModuleStates(
+      vx, vy, omega, robotHeading + omega * TIME_STEP,
+      ControlCentricity.FIELD_CENTRIC,
+      m_moduleSpeeds,
+      nextModuleHeadings
+    );
+    for (int i = 0; i < MODULE_LOCATIONS.length; i++) {
+      double headingRate = Math.IEEEremainder(nextModuleHeadings[i] - m_moduleHeadings[i], 2 * Math.PI) / TIME_STEP;
+      assertEquals(headingRate, m_moduleTurnSpeeds[i], 1e-4);
+    }
+
+    // Robot centric, module headings are constant
+    m_kinematics.toSwerveModuleStates(
+      vx, vy, omega, robotHeading,
+      ControlCentricity.ROBOT_CENTRIC,
+      m_moduleSpeeds,
+      m_moduleHeadings,
+      m_moduleTurnSpeeds
+    );
+    for (double turnSpeed : m_moduleTurnSpeeds) assertEquals(0.0, turnSpeed, DELTA);
+
+    // Stopped modules do not turn
+    m_kinematics.toSwerveModuleStates(
+      0.0, 0.0, 0.0, robotHeading,
+      ControlCentricity.FIELD_CENTRIC,
+      m_moduleSpeeds,
+      m_moduleHeadings,
+      m_moduleTurnSpeeds
+    );
+    for (double turnSpeed : m_moduleTurnSpeeds) assertTrue(turnSpeed == 0.0);
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("Test if turn speed feedforward reduces module heading tracking error")
+  public void turnSpeedFeedforward() {
+    double errorWithoutFeedforward = simulateHeadingError(false);
+    double errorWithFeedforward = simulateHeadingError(true);
+
+    assertTrue(errorWithFeedforward < 0.25 * errorWithoutFeedforward);
+  }
+
+  @Test
+  @Order(5)
+  @DisplayName("Test if forward kinematics match WPILib least squares solution")
+  public void forwardMatchesWPILib() {
+    Random random = new Random(5406);
+    SwerveDriveKinematics wpilibKinematics = new SwerveDriveKinematics(MODULE_LOCATIONS);
+    SwerveModuleState[] moduleStates = new SwerveModuleState[MODULE_LOCATIONS.length];
+    SwerveModulePosition[] startPositions = new SwerveModulePosition[MODULE_LOCATIONS.length];
+    SwerveModulePosition[] endPositions = new SwerveModulePosition[MODULE_LOCATIONS.length];
+    ChassisSpeeds chassisSpeeds = new ChassisSpeeds();
+    Twist2d twist = new Twist2d();
+
+    for (int i = 0; i < SAMPLES; i++) {
+      // Modules need not agree, solutions should still match
+      for (int j = 0; j < MODULE_LOCATIONS.length; j++) {
+        Rotation2d angle = Rotation2d.fromRadians(random.nextDouble(-Math.PI, +Math.PI));
+        double distance = random.nextDouble(-5.0, +5.0);
+        moduleStates[j] = new SwerveModuleState(random.nextDouble(-5.0, +5.0), angle);
+        startPositions[j] = new SwerveModulePosition(distance, Rotation2d.fromRadians(random.nextDouble(-Math.PI, +Math.PI)));
+        endPositions[j] = new SwerveModulePosition(distance + random.nextDouble(-0.1, +0.1), angle);
+      }
+
+      ChassisSpeeds expectedSpeeds = wpilibKinematics.toChassisSpeeds(moduleStates);
+      m_kinematics.toChassisSpeeds(moduleStates, chassisSpeeds);
+      assertEquals(expectedSpeeds.vxMetersPerSecond, chassisSpeeds.vxMetersPerSecond, DELTA);
+      assertEquals(expectedSpeeds.vyMetersPerSecond, chassisSpeeds.vyMetersPerSecond, DELTA);
+      assertEquals(expectedSpeeds.omegaRadiansPerSecond, chassisSpeeds.omegaRadiansPerSecond, DELTA);
+
+      Twist2d expectedTwist = wpilibKinematics.toTwist2d(startPositions, endPositions);
+      m_kinematics.toTwist2d(startPositions, endPositions, twist);
+      assertEquals(expectedTwist.dx, twist.dx, DELTA);
+      assertEquals(expectedTwist.dy, twist.dy, DELTA);
+      assertEquals(expectedTwist.dtheta, twist.dtheta, DELTA);
+    }
+  }
+
+  @Test
+  @Order(6)
+  @DisplayName("Test if forward kinematics residual detects a slipping module")
+  public void forwardResidual() {
+    double vx = 2.0, vy = -1.0, omega = 3.0;
+
+    // Consistent modules recover chassis speed exactly
+    m_kinematics.toSwerveModuleStates(vx, vy, omega, 0.0, ControlCentricity.ROBOT_CENTRIC, m_moduleSpeeds, m_moduleHeadings);
+    assertEquals(0.0, m_kinematics.toChassisSpeeds(m_moduleSpeeds, m_moduleHeadings, m_chassisSpeeds), DELTA);
+    assertEquals(vx, m_chassisSpeeds[0], DELTA);
+    assertEquals(vy, m_chassisSpeeds[1], DELTA);
+    assertEquals(omega, m_chassisSpeeds[2], DELTA);
+
+    // One module spinning faster than the others
+    m_moduleSpeeds[0] += 1.0;
+    assertTrue(m_kinematics.toChassisSpeeds(m_moduleSpeeds, m_moduleHeadings, m_chassisSpeeds) > 0.1);
+  }
+
+  @Test
+  @Order(7)
+  @DisplayName("Test if desaturation policies keep modules within max speed")
+  public void desaturation() {
+    // Uniform keeps path curvature
+    m_kinematics.setDesaturation(DesaturationPolicy.UNIFORM, Units.MetersPerSecond.of(MAX_MODULE_SPEED));
+    assertChassisSpeeds(8.0, 0.0, 10.0, 8.0 * getScale(), 0.0, 10.0 * getScale());
+    assertTrue(getScale() < 1.0);
+
+    // Translation priority holds translation, giving up rotation
+    m_kinematics.setDesaturation(DesaturationPolicy.TRANSLATION_PRIORITY, Units.MetersPerSecond.of(MAX_MODULE_SPEED));
+    convertWithinLimits(4.0, 0.0, 10.0);
+    assertEquals(4.0, m_chassisSpeeds[0], DELTA);
+    assertEquals(0.0, m_chassisSpeeds[1], DELTA);
+    assertTrue(m_chassisSpeeds[2] > 0.0 && m_chassisSpeeds[2] < 10.0);
+    assertChassisSpeeds(0.0, 8.0, 10.0, 0.0, MAX_MODULE_SPEED, 0.0);
+
+    // Rotation priority holds rotation, giving up translation
+    m_kinematics.setDesaturation(DesaturationPolicy.ROTATION_PRIORITY, Units.MetersPerSecond.of(MAX_MODULE_SPEED));
+    convertWithinLimits(4.0, 0.0, 10.0);
+    assertTrue(m_chassisSpeeds[0] > 0.0 && m_chassisSpeeds[0] < 4.0);
+    assertEquals(0.0, m_chassisSpeeds[1], DELTA);
+    assertEquals(10.0, m_chassisSpeeds[2], DELTA);
+    assertChassisSpeeds(1.0, 0.0, 20.0, 0.0, 0.0, MAX_MODULE_SPEED / MODULE_LOCATIONS[0].getNorm());
+
+    // Speeds within limits are untouched
+    assertChassisSpeeds(1.0, 1.0, 1.0, 1.0, 1.0, 1.0);
+
+    // Each module respects its own max speed
+    double[] maxModuleSpeeds = { MAX_MODULE_SPEED, MAX_MODULE_SPEED, MAX_MODULE_SPEED - 0.5, MAX_MODULE_SPEED };
+    m_kinematics.setDesaturation(DesaturationPolicy.TRANSLATION_PRIORITY, maxModuleSpeeds);
+    assertChassisSpeeds(8.0, 0.0, 10.0, MAX_MODULE_SPEED - 0.5, 0.0, 0.0);
+    for (int i = 0; i < MODULE_LOCATIONS.length; i++) assertTrue(m_moduleSpeeds[i] <= maxModuleSpeeds[i] + DELTA);
+  }
+
+  /**
+   * Convert requested chassis speed to module speeds, check modules are within limits and recover achieved chassis speed
+   * @param vx Requested X speed in meters per second
+   * @param vy Requested Y speed in meters per second
+   * @param omega Requested rotation speed in radians per second
+   */
+  private void convertWithinLimits(double vx, double vy, double omega) {
+    m_kinematics.toSwerveModuleStates(vx, vy, omega, 0.0, ControlCentricity.ROBOT_CENTRIC, m_moduleSpeeds, m_moduleHeadings);
+    m_kinematics.toChassisSpeeds(m_moduleSpeeds, m_moduleHeadings, m_chassisSpeeds);
+
+    for (double speed : m_moduleSpeeds) assertTrue(speed <= MAX_MODULE_SPEED + DELTA);
+  }
+
+  /**
+   * Check that requested chassis speed is desaturated to expected chassis speed
+   * @param vx Requested X speed in meters per second
+   * @param vy Requested Y speed in meters per second
+   * @param omega Requested rotation speed in radians per second
+   * @param expectedVx Expected achieved X speed in meters per second
+   * @param expectedVy Expected achieved Y speed in meters per second
+   * @param expectedOmega Expected achieved rotation speed in radians per second
+   */
+  private void assertChassisSpeeds(double vx, double vy, double omega,
+                                   double expectedVx, double expectedVy, double expectedOmega) {
+    convertWithinLimits(vx, vy, omega);
+
+    assertEquals(expectedVx, m_chassisSpeeds[0], DELTA);
+    assertEquals(expectedVy, m_chassisSpeeds[1], DELTA);
+    assertEquals(expectedOmega, m_chassisSpeeds[2], DELTA);
+  }
+
+  /**
+   * Get uniform desaturation scale that puts the fastest module at max speed for 8 m/s at 10 rad/s
+   * @return Scale
+   */
+  private double getScale() {
+    double fastestSpeed = 0.0;
+    for (Translation2d location : MODULE_LOCATIONS)
+      fastestSpeed = Math.max(fastestSpeed, Math.hypot(8.0 - location.getY() * 10.0, location.getX() * 10.0));
+    return MAX_MODULE_SPEED / fastestSpeed;
+  }
+
+  /**
+   * Simulate modules tracking headings while robot translates and spins, with proportional azimuth control
+   * <p>
+   * Setpoints are updated once per robot loop, azimuth is integrated at a finer period
+   * @param useFeedforward True to add module turn speed as feedforward
+   * @return RMS module heading error in radians
+   */
+  private double simulateHeadingError(boolean useFeedforward) {
+    double vx = 3.0, vy = 0.0, omega = 4.0;
+    double[] azimuths = new double[MODULE_LOCATIONS.length];
+    double[] setpoints = new double[MODULE_LOCATIONS.length];
+    double[] feedforwards = new double[MODULE_LOCATIONS.length];
+    double[] desiredHeadings = new double[MODULE_LOCATIONS.length];
+    int substeps = (int)Math.round(GlobalConstants.ROBOT_LOOP_PERIOD / SIM_PERIOD);
+    int loops = (int)Math.round(SIM_DURATION / GlobalConstants.ROBOT_LOOP_PERIOD);
+
+    // Start on target
+    m_kinematics.toSwerveModuleStates(vx, vy, omega, 0.0, ControlCentricity.FIELD_CENTRIC, m_moduleSpeeds, azimuths);
+
+    double squaredError = 0.0;
+    int samples = 0;
+    for (int i = 0; i < loops; i++) {
+      double time = i * GlobalConstants.ROBOT_LOOP_PERIOD;
+      m_kinematics.toSwerveModuleStates(
+        vx, vy, omega, omega * time,
+        ControlCentricity.FIELD_CENTRIC,
+        m_moduleSpeeds,
+        setpoints,
+        m_moduleTurnSpeeds
+      );
+      for (int j = 0; j < azimuths.length; j++) feedforwards[j] = useFeedforward ? m_moduleTurnSpeeds[j] : 0.0;
+
+      for (int k = 1; k <= substeps; k++) {
+        for (int j = 0; j < azimuths.length; j++) {
+          double error = Math.IEEEremainder(setpoints[j] - azimuths[j], 2 * Math.PI);
+          azimuths[j] += (ROTATE_kP * error + feedforwards[j]) * SIM_PERIOD;
+        }
+
+        // Compare against where modules should be pointing right now
+        m_kinematics.toSwerveModuleStates(
+          vx, vy, omega, omega * (time + k * SIM_PERIOD),
+          ControlCentricity.FIELD_CENTRIC,
+          m_moduleSpeeds,
+          desiredHeadings
+        );
+        for (int j = 0; j < azimuths.length; j++) {
+          double error = Math.IEEEremainder(desiredHeadings[j] - azimuths[j], 2 * Math.PI);
+          squaredError += error * error;
+          samples++;
+        }
+      }
+    }
+
+    return Math.sqrt(squaredError / samples);
+  }
+
+  /**
+   * Convert varying chassis speeds to module speeds and headings, and back
+   */
+  private void convert() {
+    for (int i = 0; i < LOOPS; i++) {
+      m_kinematics.toSwerveModuleStates(
+        2.0, 1.0, (i % 100) * 0.1, i * 0.001,
+        ControlCentricity.FIELD_CENTRIC,
+        m_moduleSpeeds,
+        m_moduleHeadings
+      );
+      m_kinematics.toChassisSpeeds(m_moduleSpeeds, m_moduleHeadings, m_chassisSpeeds);
+    }
+  }
+
+  /**
+   * Reference matrix implementation of second order swerve kinematics
+   * @param desiredSpeed Desired translation and rotation speed of the robot
+   * @param robotHeading Heading of the robot relative to the field
+   * @param controlCentricity Control centricity to use (field or robot centric)
+   * @return Array of module states
+   */
+  private SwerveModuleState[] toSwerveModuleStatesMatrix(ChassisSpeeds desiredSpeed, Rotation2d robotHeading, ControlCentricity controlCentricity) {
+    Matrix<N3, N1> firstOrderInputMatrix = new Matrix<>(N3(),N1());
+    Matrix<N2, N3> firstOrderMatrix = new Matrix<>(N2(),N3());
+    Matrix<N4, N1> secondOrderInputMatrix = new Matrix<>(N4(),N1());
+    Matrix<N2, N4> secondOrderMatrix = new Matrix<>(N2(),N4());
+
+    firstOrderInputMatrix.set(0, 0, desiredSpeed.vxMetersPerSecond);
+    firstOrderInputMatrix.set(1, 0, desiredSpeed.vyMetersPerSecond);
+    firstOrderInputMatrix.set(2, 0, desiredSpeed.omegaRadiansPerSecond);
+
+    secondOrderInputMatrix.set(2, 0, Math.pow(desiredSpeed.omegaRadiansPerSecond, 2));
+
+    firstOrderMatrix.set(0, 0, 1);
+    firstOrderMatrix.set(1, 1, 1);
+
+    secondOrderMatrix.set(0, 0, 1);
+    secondOrderMatrix.set(1, 1, 1);
+
+    SwerveModuleState[] swerveModuleStates = new SwerveModuleState[MODULE_LOCATIONS.length];
+
+    for (int i = 0; i < MODULE_LOCATIONS.length; i++) {
+      Rotation2d moduleAngle = new Rotation2d(Math.atan2(MODULE_LOCATIONS[i].getY(), MODULE_LOCATIONS[i].getX()));
+      moduleAngle = Rotation2d.fromRadians(moduleAngle.getRadians() + robotHeading.getRadians() * controlCentricity.ordinal());
+      double moduleX = MODULE_LOCATIONS[i].getNorm() * Math.cos(moduleAngle.getRadians());
+      double moduleY = MODULE_LOCATIONS[i].getNorm() * Math.sin(moduleAngle.getRadians());
+      firstOrderMatrix.set(0, 2, -moduleY);
+      firstOrderMatrix.set(1, 2, +moduleX);
+
+      Matrix<N2, N1> firstOrderOutput = firstOrderMatrix.times(firstOrderInputMatrix);
+
+      double moduleHeading = Math.atan2(firstOrderOutput.get(1, 0), firstOrderOutput.get(0, 0));
+      double moduleSpeed = Math.sqrt(firstOrderOutput.elementPower(2).elementSum());
+
+      moduleHeading -= robotHeading.getRadians() * controlCentricity.ordinal();
+      swerveModuleStates[i] = new SwerveModuleState(moduleSpeed, Rotation2d.fromRadians(moduleHeading));
+    }
+
+    return swerveModuleStates;
+  }
+}
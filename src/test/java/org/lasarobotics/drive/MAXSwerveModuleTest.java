@@ -11,6 +11,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
@@ -19,6 +22,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.lasarobotics.drive.MAXSwerveModule.GearRatio;
 import org.lasarobotics.drive.MAXSwerveModule.ModuleLocation;
+import org.lasarobotics.hardware.HardwareManager;
 import org.lasarobotics.hardware.revrobotics.Spark;
 import org.lasarobotics.hardware.revrobotics.Spark.MotorKind;
 import org.lasarobotics.hardware.revrobotics.SparkInputsAutoLogged;
@@ -27,7 +31,10 @@ import org.mockito.AdditionalMatchers;
 import org.mockito.ArgumentMatchers;
 
 import com.revrobotics.CANSparkBase.ControlType;
+import com.revrobotics.REVLibError;
+import com.revrobotics.SparkPIDController;
 
+import edu.wpi.first.hal.HAL;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
@@ -69,6 +76,8 @@ public class MAXSwerveModuleTest {
 
   @BeforeEach
   public void setup() {
+    HAL.initialize(500, 0);
+
     // Create mock hardware devices
     m_lFrontDriveMotor = mock(Spark.class);
     m_lFrontRotateMotor = mock(Spark.class);
@@ -85,6 +94,16 @@ public class MAXSwerveModuleTest {
     when(m_lRearDriveMotor.getKind()).thenReturn(MotorKind.NEO_VORTEX);
     when(m_rRearDriveMotor.getKind()).thenReturn(MotorKind.NEO_VORTEX);
 
+    // Burn flash completes immediately
+    when(m_lFrontDriveMotor.burnFlash()).thenReturn(CompletableFuture.completedFuture(REVLibError.kOk));
+    when(m_lFrontRotateMotor.burnFlash()).thenReturn(CompletableFuture.completedFuture(REVLibError.kOk));
+    when(m_rFrontDriveMotor.burnFlash()).thenReturn(CompletableFuture.completedFuture(REVLibError.kOk));
+    when(m_rFrontRotateMotor.burnFlash()).thenReturn(CompletableFuture.completedFuture(REVLibError.kOk));
+    when(m_lRearDriveMotor.burnFlash()).thenReturn(CompletableFuture.completedFuture(REVLibError.kOk));
+    when(m_lRearRotateMotor.burnFlash()).thenReturn(CompletableFuture.completedFuture(REVLibError.kOk));
+    when(m_rRearDriveMotor.burnFlash()).thenReturn(CompletableFuture.completedFuture(REVLibError.kOk));
+    when(m_rRearRotateMotor.burnFlash()).thenReturn(CompletableFuture.completedFuture(REVLibError.kOk));
+
     // Hardcode sample ID
     Spark.ID id = new Spark.ID("moduleName", 0);
     when(m_lFrontDriveMotor.getID()).thenReturn(id);
@@ -145,6 +164,11 @@ public class MAXSwerveModuleTest {
     m_rRearModule.disableTractionControl();
   }
 
+  @AfterEach
+  public void close() {
+    HardwareManager.getInstance().stop();
+  }
+
   @Test
   @Order(1)
   @DisplayName("Test if module location is set correctly")
@@ -176,13 +200,13 @@ public class MAXSwerveModuleTest {
 
     // Verify that motors are being driven with expected values
     verify(m_lFrontDriveMotor, times(1)).set(AdditionalMatchers.eq(+2.0, DELTA), ArgumentMatchers.eq(ControlType.kVelocity));
-    verify(m_lFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 2, DELTA), ArgumentMatchers.eq(ControlType.kPosition));
+    verify(m_lFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 2, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
     verify(m_rFrontDriveMotor, times(1)).set(AdditionalMatchers.eq(-2.0, DELTA), ArgumentMatchers.eq(ControlType.kVelocity));
-    verify(m_rFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(ControlType.kPosition));
+    verify(m_rFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
     verify(m_lRearDriveMotor, times(1)).set(AdditionalMatchers.eq(+2.0, DELTA), ArgumentMatchers.eq(ControlType.kVelocity));
-    verify(m_lRearRotateMotor, times(1)).set(AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(ControlType.kPosition));
+    verify(m_lRearRotateMotor, times(1)).set(AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
     verify(m_rRearDriveMotor, times(1)).set(AdditionalMatchers.eq(-2.0, DELTA), ArgumentMatchers.eq(ControlType.kVelocity));
-    verify(m_rRearRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 2, DELTA), ArgumentMatchers.eq(ControlType.kPosition));
+    verify(m_rRearRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 2, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
   }
 
   @Test
@@ -208,13 +232,13 @@ public class MAXSwerveModuleTest {
 
     // Verify that motors are being driven with expected values
     verify(m_lFrontDriveMotor, times(1)).set(AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(ControlType.kVelocity));
-    verify(m_lFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 4, DELTA), ArgumentMatchers.eq(ControlType.kPosition));
+    verify(m_lFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 4, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
     verify(m_rFrontDriveMotor, times(1)).set(AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(ControlType.kVelocity));
-    verify(m_rFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 4, DELTA), ArgumentMatchers.eq(ControlType.kPosition));
+    verify(m_rFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 4, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
     verify(m_lRearDriveMotor, times(1)).set(AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(ControlType.kVelocity));
-    verify(m_lRearRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 4, DELTA), ArgumentMatchers.eq(ControlType.kPosition));
+    verify(m_lRearRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 4, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
     verify(m_rRearDriveMotor, times(1)).set(AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(ControlType.kVelocity));
-    verify(m_rRearRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 4, DELTA), ArgumentMatchers.eq(ControlType.kPosition));
+    verify(m_rRearRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 4, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(0.0, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
   }
 
   @Test
@@ -254,4 +278,38 @@ public class MAXSwerveModuleTest {
     assertTrue(m_lRearModule.getMaxLinearSpeed().isNear(VORTEX_MAX_LINEAR_SPEED, DELTA));
     assertTrue(m_rRearModule.getMaxLinearSpeed().isNear(VORTEX_MAX_LINEAR_SPEED, DELTA));
   }
+
+  @Test
+  @Order(6)
+  @DisplayName("Test if module passes turn speed to rotate motor as feedforward")
+  public void turnSpeedFeedforward() {
+    // Hardcode sensor values
+    SparkInputsAutoLogged sparkInputs = new SparkInputsAutoLogged();
+    when(m_lFrontRotateMotor.getInputs()).thenReturn(sparkInputs);
+
+    // Try to set module state while turning
+    double turnSpeed = 2.0;
+    SwerveModuleState state = new SwerveModuleState(+2.0, Rotation2d.fromRadians(+Math.PI));
+    m_lFrontModule.set(state, turnSpeed);
+
+    // Verify that rotate motor is driven with feedforward voltage for turn speed
+    double feedforward = turnSpeed * (9424.0 / 203.0) / MotorKind.NEO_550.motor.KvRadPerSecPerVolt;
+    verify(m_lFrontRotateMotor, times(1)).set(AdditionalMatchers.eq(+Math.PI / 2, DELTA), ArgumentMatchers.eq(ControlType.kPosition), AdditionalMatchers.eq(feedforward, DELTA), ArgumentMatchers.eq(SparkPIDController.ArbFFUnits.kVoltage));
+  }
+
+  @Test
+  @Order(7)
+  @DisplayName("Test if module keeps updating motor outputs once hardware manager is running")
+  public void hardwareManager() {
+    // Module updates motors while hardware manager is not running
+    m_lFrontModule.periodic();
+    verify(m_lFrontDriveMotor, times(1)).periodic();
+    verify(m_lFrontRotateMotor, times(1)).periodic();
+
+    // Hardware manager only reads motor inputs, so module still updates motors
+    HardwareManager.getInstance().run();
+    m_lFrontModule.periodic();
+    verify(m_lFrontDriveMotor, times(2)).periodic();
+    verify(m_lFrontRotateMotor, times(2)).periodic();
+  }
 }
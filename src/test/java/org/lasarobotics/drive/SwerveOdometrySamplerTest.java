@@ -0,0 +1,139 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.lasarobotics.hardware.IMU;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.units.Units;
+import edu.wpi.first.wpilibj.RobotController;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class SwerveOdometrySamplerTest {
+  private final double DELTA = 1e-9;
+  private final Measure<Time> PERIOD = Units.Milliseconds.of(4.0);
+  private final double DRIVE_STEP = 0.01;
+
+  private IMU m_imu;
+  private MAXSwerveModule m_lFrontModule;
+  private MAXSwerveModule m_rFrontModule;
+  private SwerveOdometrySampler m_sampler;
+  private double m_drivePosition;
+
+  @BeforeEach
+  public void setup() {
+    HAL.initialize(500, 0);
+    m_imu = mock(IMU.class);
+    m_lFrontModule = mock(MAXSwerveModule.class);
+    m_rFrontModule = mock(MAXSwerveModule.class);
+    m_drivePosition = 0.0;
+
+    when(m_imu.getSampleSize()).thenReturn(IMU.SAMPLE_SIZE);
+    when(m_imu.getLatestSample(any())).thenAnswer((invocation) -> {
+      double[] sample = invocation.getArgument(0);
+      sample[IMU.SAMPLE_YAW_ANGLE] = -90.0;
+      sample[IMU.SAMPLE_YAW_RATE] = 0.0;
+      return RobotController.getFPGATime() / 1e6;
+    });
+    when(m_imu.getRotation2d()).thenReturn(Rotation2d.fromDegrees(45.0));
+    when(m_lFrontModule.sampleDrivePosition()).thenAnswer((invocation) -> m_drivePosition);
+    when(m_lFrontModule.sampleRotatePosition()).thenReturn(Math.PI / 2);
+    when(m_rFrontModule.sampleDrivePosition()).thenAnswer((invocation) -> -m_drivePosition);
+    when(m_rFrontModule.sampleRotatePosition()).thenReturn(0.0);
+
+    m_sampler = new SwerveOdometrySampler(m_imu, PERIOD, m_lFrontModule, m_rFrontModule);
+  }
+
+  @AfterEach
+  public void close() {
+    m_sampler.close();
+    m_sampler = null;
+  }
+
+  /**
+   * Take samples, advancing drive position between each
+   * @param count Number of samples
+   */
+  private void takeSamples(int count) throws InterruptedException {
+    for (int i = 0; i < count; i++) {
+      m_drivePosition += DRIVE_STEP;
+      m_sampler.sample();
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if status frames are matched to sampling period")
+  public void statusFrames() {
+    verify(m_lFrontModule).setOdometryPeriod(PERIOD);
+    verify(m_rFrontModule).setOdometryPeriod(PERIOD);
+    verify(m_imu).setUpdatePeriod(PERIOD);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if every sample is drained once, in order")
+  public void drain() throws InterruptedException {
+    List<Double> positions = new ArrayList<>();
+    List<Double> timestamps = new ArrayList<>();
+
+    takeSamples(5);
+    assertEquals(5, m_sampler.drain((timestamp, rotation, modulePositions) -> {
+      timestamps.add(timestamp);
+      positions.add(modulePositions[0].distanceMeters);
+      assertEquals(-modulePositions[0].distanceMeters, modulePositions[1].distanceMeters, DELTA);
+      assertEquals(Math.PI / 2, modulePositions[0].angle.getRadians(), DELTA);
+      assertEquals(90.0, rotation.getDegrees(), DELTA);
+    }));
+    assertEquals(0, m_sampler.drain((timestamp, rotation, modulePositions) -> positions.add(Double.NaN)));
+
+    takeSamples(2);
+    assertEquals(2, m_sampler.drain((timestamp, rotation, modulePositions) -> {
+      timestamps.add(timestamp);
+      positions.add(modulePositions[0].distanceMeters);
+    }));
+
+    assertEquals(7, positions.size());
+    for (int i = 0; i < positions.size(); i++) {
+      assertEquals((i + 1) * DRIVE_STEP, positions.get(i), DELTA);
+      if (i > 0) assertTrue(timestamps.get(i) > timestamps.get(i - 1));
+    }
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if latest heading is used while IMU has no samples")
+  public void headingFallback() throws InterruptedException {
+    List<Double> headings = new ArrayList<>();
+    when(m_imu.getLatestSample(any())).thenReturn(Double.NaN);
+
+    takeSamples(2);
+    m_sampler.drain((timestamp, rotation, modulePositions) -> headings.add(rotation.getDegrees()));
+
+    assertEquals(2, headings.size());
+    for (double heading : headings) assertEquals(45.0, heading, DELTA);
+  }
+}
@@ -0,0 +1,81 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.lasarobotics.utils.GlobalConstants;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class CircuitBreakerTest {
+  private final int FAILURE_THRESHOLD = 5;
+  private final double PROBE_PERIOD = 1.0;
+
+  private CircuitBreaker m_circuitBreaker;
+
+  @BeforeEach
+  public void setup() {
+    m_circuitBreaker = new CircuitBreaker(FAILURE_THRESHOLD, PROBE_PERIOD);
+  }
+
+  @AfterEach
+  public void close() {
+    m_circuitBreaker = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if breaker opens after consecutive failures only")
+  public void open() {
+    double timestamp = 0.0;
+    for (int i = 0; i < FAILURE_THRESHOLD - 1; i++) {
+      assertFalse(m_circuitBreaker.recordFailure(timestamp));
+      timestamp += GlobalConstants.ROBOT_LOOP_PERIOD;
+    }
+    m_circuitBreaker.recordSuccess();
+    for (int i = 0; i < FAILURE_THRESHOLD - 1; i++) {
+      assertFalse(m_circuitBreaker.recordFailure(timestamp));
+      timestamp += GlobalConstants.ROBOT_LOOP_PERIOD;
+    }
+    assertEquals(CircuitBreaker.State.CLOSED, m_circuitBreaker.getState());
+
+    assertTrue(m_circuitBreaker.recordFailure(timestamp));
+    assertEquals(CircuitBreaker.State.OPEN, m_circuitBreaker.getState());
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if open breaker probes at low rate and closes when device responds")
+  public void probe() {
+    double timestamp = 0.0;
+    for (int i = 0; i < FAILURE_THRESHOLD; i++) m_circuitBreaker.recordFailure(timestamp);
+
+    // Poll every loop, but only probe once per probe period
+    int requests = 0;
+    for (int i = 0; i < 3 * GlobalConstants.ROBOT_LOOP_HZ; i++) {
+      timestamp += GlobalConstants.ROBOT_LOOP_PERIOD;
+      if (!m_circuitBreaker.allowRequest(timestamp)) continue;
+      requests++;
+      m_circuitBreaker.recordFailure(timestamp);
+    }
+    assertEquals(3, requests);
+    assertEquals(CircuitBreaker.State.OPEN, m_circuitBreaker.getState());
+
+    timestamp += 2 * PROBE_PERIOD;
+    assertTrue(m_circuitBreaker.allowRequest(timestamp));
+    assertTrue(m_circuitBreaker.recordSuccess());
+    assertEquals(CircuitBreaker.State.CLOSED, m_circuitBreaker.getState());
+    assertTrue(m_circuitBreaker.allowRequest(timestamp));
+  }
+}
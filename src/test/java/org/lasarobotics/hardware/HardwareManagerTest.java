@@ -0,0 +1,138 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+
+import edu.wpi.first.hal.HAL;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class HardwareManagerTest {
+  private final long SLOW_DEVICE_DELAY = 5;
+
+  private HardwareManager m_manager;
+  private List<String> m_updates;
+  private LoggableHardware m_gyro;
+  private LoggableHardware m_arm;
+  private LoggableHardware m_intake;
+
+  /**
+   * Create device that records when it is updated
+   * @param name Device name
+   * @param delay Time taken by periodic method in milliseconds
+   * @return Device
+   */
+  private LoggableHardware createDevice(String name, long delay) {
+    return new LoggableHardware() {
+      @Override
+      public void periodic() {
+        m_updates.add(name);
+        if (delay <= 0) return;
+        try { Thread.sleep(delay); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+      }
+
+      @Override
+      public LoggableInputs getInputs() {
+        return null;
+      }
+    };
+  }
+
+  @BeforeEach
+  public void setup() {
+    HAL.initialize(500, 0);
+    m_manager = HardwareManager.getInstance();
+    m_updates = new ArrayList<>();
+    m_gyro = createDevice("Gyro", 0);
+    m_arm = createDevice("Arm", SLOW_DEVICE_DELAY);
+    m_intake = createDevice("Intake", 0);
+
+    m_manager.register("Gyro", m_gyro);
+    m_manager.register("Arm", m_arm);
+    m_manager.register("Intake", m_intake);
+  }
+
+  @AfterEach
+  public void close() {
+    m_manager.unregister(m_gyro);
+    m_manager.unregister(m_arm);
+    m_manager.unregister(m_intake);
+    m_manager.stop();
+    m_manager = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if devices are updated in registration order")
+  public void registrationOrder() {
+    m_manager.run();
+
+    assertEquals(List.of("Gyro", "Arm", "Intake"), m_updates);
+    assertTrue(m_manager.isRunning());
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if slowest device is reported")
+  public void slowestDevice() {
+    m_manager.run();
+
+    assertEquals("Arm", m_manager.getSlowestDevices()[0]);
+    assertTrue(m_manager.getTotalTime() >= SLOW_DEVICE_DELAY);
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if unregistered devices are no longer updated")
+  public void unregister() {
+    m_manager.unregister(m_arm);
+    m_manager.run();
+
+    assertEquals(List.of("Gyro", "Intake"), m_updates);
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("Test if devices only acquire inputs with shared timestamp")
+  public void acquireInputs() {
+    List<Double> timestamps = new ArrayList<>();
+    LoggableHardware motor = new LoggableHardware() {
+      @Override
+      public void acquireInputs(double timestamp) {
+        timestamps.add(timestamp);
+      }
+
+      @Override
+      public void periodic() {
+        m_updates.add("Motor");
+      }
+
+      @Override
+      public LoggableInputs getInputs() {
+        return null;
+      }
+    };
+    m_manager.register("Motor", motor);
+    m_manager.run();
+    m_manager.unregister(motor);
+
+    assertEquals(List.of(m_manager.getTimestamp()), timestamps);
+    assertEquals(List.of("Gyro", "Arm", "Intake"), m_updates);
+  }
+}
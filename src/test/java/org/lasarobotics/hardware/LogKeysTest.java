@@ -0,0 +1,132 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.lasarobotics.hardware.generic.DoubleSolenoid;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DoubleSolenoid.Value;
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class LogKeysTest {
+  private static final String DEVICE_NAME = "Test/Spark";
+  private static final String VALUE_LOG_ENTRY = "/OutputValue";
+  private static final String MODE_LOG_ENTRY = "/OutputMode";
+  private static final int LOOPS = 10000;
+  private static final TimeUnit[] UNITS = TimeUnit.values();
+  private static final Value[] VALUES = Value.values();
+  private static final int FORWARD_CHANNEL = 0;
+  private static final int REVERSE_CHANNEL = 1;
+
+  private LogKeys m_logKeys;
+
+  @BeforeEach
+  public void setup() {
+    HAL.initialize(500, 0);
+    m_logKeys = new LogKeys(DEVICE_NAME, VALUE_LOG_ENTRY, MODE_LOG_ENTRY);
+  }
+
+  @AfterEach
+  public void close() {
+    m_logKeys = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if log keys are built from prefix and entry")
+  public void keys() {
+    assertEquals(DEVICE_NAME + VALUE_LOG_ENTRY, m_logKeys.get(VALUE_LOG_ENTRY));
+    assertEquals(DEVICE_NAME + MODE_LOG_ENTRY, m_logKeys.get(MODE_LOG_ENTRY));
+    assertEquals(DEVICE_NAME + "/Other", m_logKeys.get("/Other"));
+    assertSame(m_logKeys.get(VALUE_LOG_ENTRY), m_logKeys.get(VALUE_LOG_ENTRY));
+    assertSame(m_logKeys.get("/Other"), m_logKeys.get("/Other"));
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if enum strings are cached")
+  public void enumStrings() {
+    for (TimeUnit unit : TimeUnit.values()) {
+      assertEquals(unit.toString(), LogKeys.toString(unit));
+      assertSame(LogKeys.toString(unit), LogKeys.toString(unit));
+    }
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if looking up cached keys and enum strings allocates nothing")
+  public void zeroAllocation() {
+    ThreadMXBean threadMXBean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    // Warm up
+    int expectedLength = lookup();
+
+    long startBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+    int length = lookup();
+    long endBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+
+    assertEquals(expectedLength, length);
+    assertEquals(0, endBytes - startBytes);
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("Test if wrapper output logging allocates nothing")
+  public void wrapperZeroAllocation() {
+    ThreadMXBean threadMXBean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+    DoubleSolenoid doubleSolenoid = new DoubleSolenoid(
+      new DoubleSolenoid.ID(DEVICE_NAME, PneumaticsModuleType.CTREPCM, FORWARD_CHANNEL, REVERSE_CHANNEL)
+    );
+
+    // Warm up
+    set(doubleSolenoid);
+
+    // Logger is not running in unit tests, so this covers the wrapper's own key and value lookup, not AdvantageKit
+    long startBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+    set(doubleSolenoid);
+    long endBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+
+    doubleSolenoid.close();
+    assertEquals(0, endBytes - startBytes);
+  }
+
+  /**
+   * Set double solenoid every loop, which logs its output
+   * @param doubleSolenoid Double solenoid
+   */
+  private void set(DoubleSolenoid doubleSolenoid) {
+    for (int i = 0; i < LOOPS; i++) doubleSolenoid.set(VALUES[i % VALUES.length]);
+  }
+
+  /**
+   * Look up keys and enum strings the same way hardware wrappers do when logging every loop
+   * @return Total length of strings looked up, so that lookups are not optimized away
+   */
+  private int lookup() {
+    int length = 0;
+    for (int i = 0; i < LOOPS; i++) {
+      length += m_logKeys.get(VALUE_LOG_ENTRY).length();
+      length += m_logKeys.get(MODE_LOG_ENTRY).length();
+      length += LogKeys.toString(UNITS[i % UNITS.length]).length();
+    }
+    return length;
+  }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import edu.wpi.first.hal.HAL;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class OutputCommitStageTest {
+  private OutputCommitStage m_stage;
+  private List<String> m_commits;
+  private Runnable m_intakeTask;
+  private Runnable m_armTask;
+  private Runnable m_shooterTask;
+
+  @BeforeEach
+  public void setup() {
+    HAL.initialize(500, 0);
+    m_stage = OutputCommitStage.getInstance();
+    m_commits = new ArrayList<>();
+    m_intakeTask = () -> m_commits.add("Intake");
+    m_armTask = () -> m_commits.add("Arm");
+    m_shooterTask = () -> m_commits.add("Shooter");
+
+    // Register out of order
+    m_stage.register("Shooter", m_shooterTask);
+    m_stage.register("Arm", m_armTask);
+    m_stage.register("Intake", m_intakeTask);
+  }
+
+  @AfterEach
+  public void close() {
+    m_stage.unregister(m_intakeTask);
+    m_stage.unregister(m_armTask);
+    m_stage.unregister(m_shooterTask);
+    m_stage.disable();
+    m_stage = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if commit flushes devices in name order")
+  public void commitOrder() {
+    m_stage.enable();
+    m_stage.commit();
+
+    assertEquals(List.of("Arm", "Intake", "Shooter"), m_commits);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if unregistered devices are not flushed")
+  public void unregister() {
+    m_stage.unregister(m_armTask);
+    m_stage.register("Intake", m_intakeTask);
+    m_stage.enable();
+    m_stage.commit();
+
+    assertEquals(List.of("Intake", "Shooter"), m_commits);
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if disabling stage flushes pending outputs")
+  public void disable() {
+    m_stage.enable();
+    m_stage.disable();
+
+    assertFalse(m_stage.isEnabled());
+    assertEquals(List.of("Arm", "Intake", "Shooter"), m_commits);
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.lasarobotics.utils.GlobalConstants;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class SCurveMotionProfileTest {
+  private final double DELTA = 1e-6;
+  private final double MAX_VELOCITY = 2.0;
+  private final double MAX_ACCELERATION = 8.0;
+  private final double MAX_JERK = 80.0;
+  private final double SIM_PERIOD = 0.001;
+  private final int LOOPS = 10000;
+
+  private SCurveMotionProfile m_motionProfile;
+  private TrapezoidProfile.State m_state;
+
+  @BeforeEach
+  public void setup() {
+    m_motionProfile = new SCurveMotionProfile(MAX_VELOCITY, MAX_ACCELERATION, MAX_JERK);
+    m_state = new TrapezoidProfile.State();
+  }
+
+  @AfterEach
+  public void close() {
+    m_motionProfile = null;
+    m_state = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if profile reaches goal within velocity, acceleration and jerk limits")
+  public void limits() {
+    // Start moving away from goal, so profile must stop before reversing
+    m_motionProfile.reset(1.0, 1.5);
+    m_motionProfile.setGoal(-3.0, 0.0);
+
+    double velocity = m_motionProfile.getVelocity();
+    double acceleration = 0.0;
+    double time = 0.0;
+    while (!m_motionProfile.isFinished()) {
+      m_motionProfile.calculate(SIM_PERIOD);
+      time += SIM_PERIOD;
+
+      double newAcceleration = (m_motionProfile.getVelocity() - velocity) / SIM_PERIOD;
+      assertTrue(Math.abs(m_motionProfile.getVelocity()) <= MAX_VELOCITY + DELTA);
+      assertTrue(Math.abs(newAcceleration) <= MAX_ACCELERATION + DELTA);
+      // Allow for phase boundaries falling between steps
+      assertTrue(Math.abs(newAcceleration - acceleration) / SIM_PERIOD <= MAX_JERK * 1.05);
+
+      velocity = m_motionProfile.getVelocity();
+      acceleration = newAcceleration;
+    }
+
+    assertEquals(-3.0, m_motionProfile.getPosition(), DELTA);
+    assertEquals(0.0, m_motionProfile.getVelocity(), DELTA);
+    assertEquals(m_motionProfile.getDuration(), time, SIM_PERIOD);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if jerk limit costs at most one jerk phase compared to trapezoid profile")
+  public void duration() {
+    // Same peak acceleration, and so roughly the same peak current, as the trapezoid profile
+    double[] distances = { 0.1, 0.5, 3.0, 10.0 };
+    for (double distance : distances) {
+      TrapezoidMotionProfile trapezoidProfile = new TrapezoidMotionProfile(MAX_VELOCITY, MAX_ACCELERATION);
+      trapezoidProfile.reset(0.0, 0.0);
+      trapezoidProfile.setGoal(distance, 0.0);
+      double trapezoidDuration = 0.0;
+      while (!trapezoidProfile.isFinished()) {
+        trapezoidProfile.calculate(SIM_PERIOD);
+        trapezoidDuration += SIM_PERIOD;
+      }
+
+      m_motionProfile.reset(0.0, 0.0);
+      m_motionProfile.setGoal(distance, 0.0);
+      double sCurveDuration = m_motionProfile.getDuration();
+
+      assertTrue(
+        sCurveDuration >= trapezoidDuration - SIM_PERIOD
+        && sCurveDuration <= trapezoidDuration + MAX_ACCELERATION / MAX_JERK + 2 * SIM_PERIOD + 0.02,
+        String.format("Distance: %.1f, trapezoid: %.3fs, S-curve: %.3fs", distance, trapezoidDuration, sCurveDuration)
+      );
+    }
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if stepping and retargeting profile allocates nothing")
+  public void zeroAllocation() {
+    ThreadMXBean threadMXBean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+    m_motionProfile.reset(0.0, 0.0);
+
+    // Warm up
+    track();
+
+    long startBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+    track();
+    long endBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+
+    assertEquals(0, endBytes - startBytes);
+    assertTrue(Double.isFinite(m_state.position));
+  }
+
+  /**
+   * Step profile, changing goal every 50 loops
+   */
+  private void track() {
+    for (int i = 0; i < LOOPS; i++) {
+      m_motionProfile.setConstraints(MAX_VELOCITY, MAX_ACCELERATION, MAX_JERK);
+      m_motionProfile.setGoal((i / 50) % 2 == 0 ? 1.0 : -1.0, 0.0);
+      m_motionProfile.calculate(GlobalConstants.ROBOT_LOOP_PERIOD);
+      m_motionProfile.getState(m_state);
+    }
+  }
+}
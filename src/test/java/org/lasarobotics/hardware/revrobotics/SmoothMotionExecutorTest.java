@@ -0,0 +1,122 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.DoubleConsumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import edu.wpi.first.units.Units;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class SmoothMotionExecutorTest {
+  private final double DELTA = 1e-9;
+  private final double MAX_VELOCITY = 2.0;
+  private final double MAX_ACCELERATION = 8.0;
+  private final double GOAL = 3.0;
+  private final double SIM_PERIOD = 0.0005;
+  private final double SIM_DURATION = 2.5;
+  // Closed loop response of mechanism position controller
+  private final double NATURAL_FREQUENCY = 60.0;
+
+  private SmoothMotionExecutor m_executor;
+  private TrapezoidMotionProfile m_motionProfile;
+  private double m_reference;
+  private double m_referenceVelocity;
+  private double m_elapsedTime;
+  private DoubleConsumer m_task;
+
+  @BeforeEach
+  public void setup() {
+    m_executor = SmoothMotionExecutor.getInstance();
+    m_motionProfile = new TrapezoidMotionProfile(MAX_VELOCITY, MAX_ACCELERATION);
+    m_reference = 0.0;
+    m_referenceVelocity = 0.0;
+    m_elapsedTime = 0.0;
+    m_task = (dt) -> {
+      m_elapsedTime += dt;
+      m_motionProfile.calculate(dt);
+      m_reference = m_motionProfile.getPosition();
+      m_referenceVelocity = m_motionProfile.getVelocity();
+    };
+    m_executor.add(m_task);
+  }
+
+  @AfterEach
+  public void close() {
+    m_executor.remove(m_task);
+    m_executor = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if executor steps profiles using measured time step")
+  public void measuredTimeStep() {
+    double[] timestamps = { 1.000, 1.005, 1.011, 1.014, 1.020, 1.027 };
+
+    m_executor.setPeriod(Units.Milliseconds.of(5.0));
+    m_motionProfile.reset(0.0, 0.0);
+    m_motionProfile.setGoal(GOAL, 0.0);
+    for (double timestamp : timestamps) m_executor.run(timestamp);
+
+    assertEquals(timestamps[timestamps.length - 1] - timestamps[0], m_elapsedTime, DELTA);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if stepping profile faster reduces tracking error")
+  public void trackingError() {
+    double error50Hz = simulateTrackingError(0.020);
+    double error200Hz = simulateTrackingError(0.005);
+
+    assertTrue(
+      error200Hz < error50Hz / 2,
+      String.format("RMS tracking error 50Hz: %.5f, 200Hz: %.5f", error50Hz, error200Hz)
+    );
+  }
+
+  /**
+   * Simulate a mechanism tracking setpoints sent by the executor at the given period
+   * @param period Executor period in seconds
+   * @return RMS error between mechanism and continuous profile
+   */
+  private double simulateTrackingError(double period) {
+    TrapezoidMotionProfile idealProfile = new TrapezoidMotionProfile(MAX_VELOCITY, MAX_ACCELERATION);
+    idealProfile.reset(0.0, 0.0);
+    idealProfile.setGoal(GOAL, 0.0);
+    m_motionProfile.reset(0.0, 0.0);
+    m_motionProfile.setGoal(GOAL, 0.0);
+    m_executor.setPeriod(Units.Seconds.of(period));
+
+    double position = 0.0, velocity = 0.0;
+    double squaredError = 0.0;
+    int steps = (int)Math.round(SIM_DURATION / SIM_PERIOD);
+    int stepsPerPeriod = (int)Math.round(period / SIM_PERIOD);
+    for (int i = 0; i < steps; i++) {
+      if (i % stepsPerPeriod == 0) m_executor.run(i * SIM_PERIOD);
+
+      // Critically damped position loop with velocity feed forward, holding last setpoint between updates
+      double acceleration = NATURAL_FREQUENCY * NATURAL_FREQUENCY * (m_reference - position)
+                            + 2 * NATURAL_FREQUENCY * (m_referenceVelocity - velocity);
+      velocity += acceleration * SIM_PERIOD;
+      position += velocity * SIM_PERIOD;
+
+      idealProfile.calculate(SIM_PERIOD);
+      squaredError += Math.pow(idealProfile.getPosition() - position, 2);
+    }
+
+    assertEquals(GOAL, position, 1e-3);
+    return Math.sqrt(squaredError / steps);
+  }
+}
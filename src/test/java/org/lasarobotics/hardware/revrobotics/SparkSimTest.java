@@ -0,0 +1,176 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.lasarobotics.hardware.revrobotics.Spark.FeedbackSensor;
+import org.lasarobotics.hardware.revrobotics.Spark.MotorKind;
+
+import com.revrobotics.CANSparkBase.ControlType;
+import com.revrobotics.SparkPIDController;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class SparkSimTest {
+  private final double DELTA = 1e-3;
+  private final double SIM_DURATION = 5.0;
+  private final double SUB_STEP_PERIOD = 0.001;
+  private final int MOTOR_COUNT = 30;
+  private final int LOOPS = 100000;
+  private final double SENSOR_RATIO = -10.0;
+  private final double SENSOR_CONVERSION_FACTOR = 2 * Math.PI;
+  private final double SMALL_LOAD_INERTIA = 1e-5;
+  // Generous bound so that shared machines do not fail, a full 1kHz sub-step period
+  private final double MAX_STEP_TIME = 1e-3;
+
+  private SparkSim m_sim;
+  private ArrayList<Integer> m_indices;
+
+  @BeforeEach
+  public void setup() {
+    m_sim = SparkSim.getInstance();
+    m_indices = new ArrayList<>();
+  }
+
+  @AfterEach
+  public void close() {
+    for (int index : m_indices) m_sim.remove(index);
+    m_sim = null;
+  }
+
+  /**
+   * Add motor to simulation
+   * @param kind Kind of motor
+   * @param inputs Inputs to write into
+   * @return Index of simulated motor
+   */
+  private int add(MotorKind kind, SparkInputsAutoLogged inputs) {
+    int index = m_sim.add(kind.motor, inputs);
+    m_indices.add(index);
+    return index;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if Spark Max and Spark Flex motors reach free speed")
+  public void freeSpeed() {
+    SparkInputsAutoLogged neoInputs = new SparkInputsAutoLogged();
+    SparkInputsAutoLogged vortexInputs = new SparkInputsAutoLogged();
+    int neo = add(MotorKind.NEO, neoInputs);
+    int vortex = add(MotorKind.NEO_VORTEX, vortexInputs);
+
+    m_sim.setReference(neo, 1.0, ControlType.kDutyCycle, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
+    m_sim.setReference(vortex, 1.0, ControlType.kDutyCycle, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
+    m_sim.run(SIM_DURATION);
+
+    assertEquals(MotorKind.NEO.getMaxRPM(), neoInputs.encoderVelocity, DELTA);
+    assertEquals(MotorKind.NEO_VORTEX.getMaxRPM(), vortexInputs.encoderVelocity, DELTA);
+    assertEquals(MotorKind.NEO.motor.freeCurrentAmps, m_sim.getCurrent(neo), DELTA);
+    assertTrue(m_sim.getTemperature(neo) > 25.0);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if simulated closed loop reaches reference")
+  public void closedLoop() {
+    SparkInputsAutoLogged inputs = new SparkInputsAutoLogged();
+    int index = add(MotorKind.NEO, inputs);
+
+    m_sim.setPositionConversionFactor(index, FeedbackSensor.NEO_ENCODER, 0.5);
+    m_sim.setP(index, 0.5);
+    m_sim.setD(index, 5.0);
+    m_sim.setReference(index, 5.0, ControlType.kPosition, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
+    m_sim.run(SIM_DURATION);
+
+    assertEquals(5.0, inputs.encoderPosition, 1e-2);
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if simulated closed loop uses selected absolute encoder")
+  public void closedLoopAbsoluteEncoder() {
+    SparkInputsAutoLogged inputs = new SparkInputsAutoLogged();
+    int index = add(MotorKind.NEO_550, inputs);
+
+    // Sensor turns opposite to motor, corrected by inverted sensor phase
+    m_sim.setLoadInertia(index, SMALL_LOAD_INERTIA);
+    m_sim.setSensorRatio(index, SENSOR_RATIO);
+    m_sim.setFeedbackSensor(index, FeedbackSensor.THROUGH_BORE_ENCODER, true);
+    m_sim.setPositionConversionFactor(index, FeedbackSensor.THROUGH_BORE_ENCODER, SENSOR_CONVERSION_FACTOR);
+    m_sim.setP(index, 0.5);
+    m_sim.setD(index, 5.0);
+    m_sim.setReference(index, 1.0, ControlType.kPosition, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
+    m_sim.run(SIM_DURATION);
+
+    assertEquals(1.0, inputs.absoluteEncoderPosition, 1e-2);
+    assertEquals(1.0 / SENSOR_CONVERSION_FACTOR * Math.abs(SENSOR_RATIO), inputs.encoderPosition, 1e-2);
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("Test if simulated closed loop takes shortest path with PID wrapping")
+  public void closedLoopWrapping() {
+    SparkInputsAutoLogged inputs = new SparkInputsAutoLogged();
+    int index = add(MotorKind.NEO_550, inputs);
+
+    m_sim.setLoadInertia(index, SMALL_LOAD_INERTIA);
+    m_sim.setSensorRatio(index, SENSOR_RATIO);
+    m_sim.setFeedbackSensor(index, FeedbackSensor.THROUGH_BORE_ENCODER, true);
+    m_sim.setPositionConversionFactor(index, FeedbackSensor.THROUGH_BORE_ENCODER, SENSOR_CONVERSION_FACTOR);
+    m_sim.setPIDWrapping(index, true, 0.0, SENSOR_CONVERSION_FACTOR);
+    m_sim.setP(index, 0.5);
+    m_sim.setD(index, 5.0);
+    m_sim.setReference(index, SENSOR_CONVERSION_FACTOR - 0.5, ControlType.kPosition, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
+    m_sim.run(SIM_DURATION);
+
+    assertEquals(SENSOR_CONVERSION_FACTOR - 0.5, inputs.absoluteEncoderPosition, 1e-2);
+    assertEquals(-0.5 / SENSOR_CONVERSION_FACTOR * Math.abs(SENSOR_RATIO), inputs.encoderPosition, 1e-2);
+  }
+
+  @Test
+  @Order(5)
+  @DisplayName("Test if motor inversion applies to built-in encoder but not external sensors")
+  public void inverted() {
+    SparkInputsAutoLogged inputs = new SparkInputsAutoLogged();
+    int index = add(MotorKind.NEO, inputs);
+
+    m_sim.setInverted(index, true);
+    m_sim.setFeedbackSensor(index, FeedbackSensor.THROUGH_BORE_ENCODER, false);
+    m_sim.setReference(index, 1.0, ControlType.kDutyCycle, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
+    m_sim.run(SIM_DURATION);
+
+    assertEquals(+MotorKind.NEO.getMaxRPM(), inputs.encoderVelocity, DELTA);
+    assertEquals(-MotorKind.NEO.getMaxRPM(), inputs.absoluteEncoderVelocity, DELTA);
+  }
+
+  @Test
+  @Order(6)
+  @DisplayName("Test if stepping a robot's worth of motors is fast enough to sub-step at 1kHz")
+  public void stepTime() {
+    for (int i = 0; i < MOTOR_COUNT; i++) {
+      int index = add(i % 2 == 0 ? MotorKind.NEO : MotorKind.NEO_VORTEX, new SparkInputsAutoLogged());
+      m_sim.setReference(index, 0.5, ControlType.kDutyCycle, 0.0, SparkPIDController.ArbFFUnits.kVoltage);
+    }
+
+    // Warm up
+    for (int i = 0; i < LOOPS; i++) m_sim.run(SUB_STEP_PERIOD);
+
+    long startTime = System.nanoTime();
+    for (int i = 0; i < LOOPS; i++) m_sim.run(SUB_STEP_PERIOD);
+    double stepTime = (System.nanoTime() - startTime) / 1e9 / LOOPS;
+
+    assertTrue(stepTime < MAX_STEP_TIME, String.format("Step time for %d motors: %.2fus", MOTOR_COUNT, stepTime * 1e6));
+  }
+}
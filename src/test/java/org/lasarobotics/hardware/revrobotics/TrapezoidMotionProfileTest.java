@@ -0,0 +1,117 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.lasarobotics.utils.GlobalConstants;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class TrapezoidMotionProfileTest {
+  private final double DELTA = 1e-9;
+  private final double MAX_VELOCITY = 2.0;
+  private final double MAX_ACCELERATION = 4.0;
+  private final int LOOPS = 10000;
+
+  private TrapezoidMotionProfile m_motionProfile;
+  private TrapezoidProfile.State m_state;
+
+  @BeforeEach
+  public void setup() {
+    m_motionProfile = new TrapezoidMotionProfile(MAX_VELOCITY, MAX_ACCELERATION);
+    m_state = new TrapezoidProfile.State();
+  }
+
+  @AfterEach
+  public void close() {
+    m_motionProfile = null;
+    m_state = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if profile matches WPILib trapezoid profile")
+  public void matchesTrapezoidProfile() {
+    TrapezoidProfile profile = new TrapezoidProfile(new TrapezoidProfile.Constraints(MAX_VELOCITY, MAX_ACCELERATION));
+    TrapezoidProfile.State goal = new TrapezoidProfile.State(-3.0, 0.0);
+    TrapezoidProfile.State expected = new TrapezoidProfile.State(1.0, 0.5);
+
+    m_motionProfile.reset(expected.position, expected.velocity);
+    m_motionProfile.setGoal(goal.position, goal.velocity);
+    while (!m_motionProfile.isFinished()) {
+      expected = profile.calculate(GlobalConstants.ROBOT_LOOP_PERIOD, expected, goal);
+      m_motionProfile.calculate(GlobalConstants.ROBOT_LOOP_PERIOD);
+
+      assertEquals(expected.position, m_motionProfile.getPosition(), DELTA);
+      assertEquals(expected.velocity, m_motionProfile.getVelocity(), DELTA);
+    }
+
+    assertEquals(goal.position, m_motionProfile.getPosition(), DELTA);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if changing goal keeps velocity continuous")
+  public void retarget() {
+    m_motionProfile.reset(0.0, 0.0);
+    m_motionProfile.setGoal(10.0, 0.0);
+    for (int i = 0; i < 50; i++) m_motionProfile.calculate(GlobalConstants.ROBOT_LOOP_PERIOD);
+
+    double velocity = m_motionProfile.getVelocity();
+    assertEquals(MAX_VELOCITY, velocity, DELTA);
+
+    // Reverse goal, velocity must ramp down at max acceleration instead of jumping
+    m_motionProfile.setGoal(-10.0, 0.0);
+    m_motionProfile.calculate(GlobalConstants.ROBOT_LOOP_PERIOD);
+    assertEquals(velocity - MAX_ACCELERATION * GlobalConstants.ROBOT_LOOP_PERIOD, m_motionProfile.getVelocity(), DELTA);
+
+    while (!m_motionProfile.isFinished()) m_motionProfile.calculate(GlobalConstants.ROBOT_LOOP_PERIOD);
+    assertEquals(-10.0, m_motionProfile.getPosition(), DELTA);
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if tracking a moving goal allocates nothing")
+  public void zeroAllocation() {
+    ThreadMXBean threadMXBean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+    m_motionProfile.reset(0.0, 0.0);
+
+    // Warm up
+    track();
+
+    long startBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+    track();
+    long endBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+
+    assertEquals(0, endBytes - startBytes);
+    assertTrue(Double.isFinite(m_state.position));
+  }
+
+  /**
+   * Follow a moving goal, changing goal and constraints every loop
+   */
+  private void track() {
+    for (int i = 0; i < LOOPS; i++) {
+      m_motionProfile.setConstraints(MAX_VELOCITY, MAX_ACCELERATION);
+      m_motionProfile.setGoal(Math.sin(i * GlobalConstants.ROBOT_LOOP_PERIOD), 0.0);
+      m_motionProfile.calculate(GlobalConstants.ROBOT_LOOP_PERIOD);
+      m_motionProfile.getState(m_state);
+    }
+  }
+}
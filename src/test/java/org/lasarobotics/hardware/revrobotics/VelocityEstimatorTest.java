@@ -0,0 +1,124 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.hardware.revrobotics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.lasarobotics.utils.GlobalConstants;
+
+import edu.wpi.first.units.Units;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class VelocityEstimatorTest {
+  private final double DELTA = 1e-6;
+  private final double WINDOW = 0.08;
+  private final double SIM_PERIOD = 0.001;
+  private final double SIM_DURATION = 10.0;
+  private final double AMPLITUDE = 5.0;
+  private final double FREQUENCY = 2 * Math.PI;
+  // Spark Max defaults forced by Spark, 16ms measurement period averaged over 2 measurements
+  private final int FIRMWARE_MEASUREMENT_PERIOD = 16;
+  private final int FIRMWARE_AVERAGE_DEPTH = 2;
+
+  private VelocityEstimator m_estimator;
+
+  @BeforeEach
+  public void setup() {
+    m_estimator = new VelocityEstimator(Units.Seconds.of(WINDOW));
+  }
+
+  @AfterEach
+  public void close() {
+    m_estimator = null;
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if estimator is exact for constant acceleration")
+  public void constantAcceleration() {
+    for (int i = 0; i < 20; i++) {
+      double t = i * GlobalConstants.ROBOT_LOOP_PERIOD;
+      m_estimator.addSample(t, 1.0 + 2.0 * t + 1.5 * t * t);
+
+      if (i < 2) continue;
+      assertEquals(2.0 + 3.0 * t, m_estimator.getVelocity(), DELTA);
+      assertEquals(3.0, m_estimator.getAcceleration(), DELTA);
+    }
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if estimator lags less than firmware velocity measurement")
+  public void phaseLag() {
+    int steps = (int)Math.round(SIM_DURATION / SIM_PERIOD);
+    int stepsPerSample = (int)Math.round(GlobalConstants.ROBOT_LOOP_PERIOD / SIM_PERIOD);
+    int samples = steps / stepsPerSample;
+
+    // NEO hall sensor position, quantized to encoder ticks
+    double[] positions = new double[steps];
+    for (int i = 0; i < steps; i++) {
+      double position = AMPLITUDE * Math.sin(FREQUENCY * i * SIM_PERIOD);
+      positions[i] = Math.floor(position * GlobalConstants.NEO_ENCODER_TICKS_PER_ROTATION) / GlobalConstants.NEO_ENCODER_TICKS_PER_ROTATION;
+    }
+
+    // Sample firmware and estimated velocity in rotations per second every robot loop
+    double[] timestamps = new double[samples];
+    double[] firmwareVelocities = new double[samples];
+    double[] estimatedVelocities = new double[samples];
+    for (int i = 0; i < samples; i++) {
+      int step = i * stepsPerSample;
+      timestamps[i] = step * SIM_PERIOD;
+
+      double velocity = 0.0;
+      for (int j = 0; j < FIRMWARE_AVERAGE_DEPTH; j++) {
+        int end = Math.max(step - j * FIRMWARE_MEASUREMENT_PERIOD, 0);
+        int start = Math.max(end - FIRMWARE_MEASUREMENT_PERIOD, 0);
+        velocity += (positions[end] - positions[start]) / (FIRMWARE_MEASUREMENT_PERIOD * SIM_PERIOD);
+      }
+      firmwareVelocities[i] = velocity / FIRMWARE_AVERAGE_DEPTH;
+
+      m_estimator.addSample(timestamps[i], positions[step]);
+      estimatedVelocities[i] = m_estimator.getVelocity();
+    }
+
+    double firmwareLag = getLag(timestamps, firmwareVelocities);
+    double estimatorLag = getLag(timestamps, estimatedVelocities);
+
+    assertTrue(
+      Math.abs(estimatorLag) < firmwareLag / 4,
+      String.format("Firmware lag: %.1fms, estimator lag: %.1fms", firmwareLag * 1e3, estimatorLag * 1e3)
+    );
+  }
+
+  /**
+   * Find delay that best aligns velocity with true velocity
+   * @param timestamps Sample timestamps
+   * @param velocities Measured velocities
+   * @return Delay in seconds
+   */
+  private double getLag(double[] timestamps, double[] velocities) {
+    double bestLag = 0.0, bestError = Double.POSITIVE_INFINITY;
+    for (double lag = -0.05; lag <= 0.1; lag += 0.0005) {
+      double error = 0.0;
+      // Skip start up
+      for (int i = timestamps.length / 5; i < timestamps.length; i++)
+        error += Math.pow(velocities[i] - AMPLITUDE * FREQUENCY * Math.cos(FREQUENCY * (timestamps[i] - lag)), 2);
+      if (error < bestError) {
+        bestError = error;
+        bestLag = lag;
+      }
+    }
+
+    return bestLag;
+  }
+}
@@ -0,0 +1,115 @@
+// Copyright (c) LASA Robotics and other contributors
+// Open Source Software; you can modify and/or share it under the terms of
+// the MIT license file in the root directory of this project.
+
+package org.lasarobotics.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class TimestampedRingBufferTest {
+  private final double DELTA = 1e-9;
+  private final int CAPACITY = 8;
+  private final int WIDTH = 2;
+  private final double PERIOD = 0.005;
+
+  private TimestampedRingBuffer m_buffer;
+  private double[] m_values;
+
+  @BeforeEach
+  public void setup() {
+    m_buffer = new TimestampedRingBuffer(CAPACITY, WIDTH);
+    m_values = new double[WIDTH];
+  }
+
+  @AfterEach
+  public void close() {
+    m_buffer = null;
+  }
+
+  /**
+   * Add samples with values equal to their index and twice their index
+   * @param count Number of samples to add
+   */
+  private void addSamples(int count) {
+    for (int i = 0; i < count; i++) m_buffer.add(i * PERIOD, new double[] { i, 2 * i });
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Test if latest sample is returned")
+  public void latest() {
+    assertTrue(Double.isNaN(m_buffer.getLatest(m_values)));
+
+    addSamples(20);
+
+    assertEquals(19 * PERIOD, m_buffer.getLatest(m_values), DELTA);
+    assertEquals(19.0, m_values[0], DELTA);
+    assertEquals(38.0, m_values[1], DELTA);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Test if samples are interpolated at timestamp")
+  public void interpolate() {
+    addSamples(20);
+
+    assertTrue(m_buffer.getAt(15.25 * PERIOD, m_values));
+    assertEquals(15.25, m_values[0], DELTA);
+    assertEquals(30.5, m_values[1], DELTA);
+
+    // Newer than latest sample
+    assertTrue(m_buffer.getAt(25 * PERIOD, m_values));
+    assertEquals(19.0, m_values[0], DELTA);
+
+    // Older than retained samples
+    assertFalse(m_buffer.getAt(5 * PERIOD, m_values));
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Test if drain returns every new retained sample in order")
+  public void drain() {
+    List<Double> drained = new ArrayList<>();
+    addSamples(5);
+
+    double timestamp = m_buffer.drainSince(Double.NEGATIVE_INFINITY, (t, values) -> drained.add(values[0]));
+    assertEquals(List.of(0.0, 1.0, 2.0, 3.0, 4.0), drained);
+    assertEquals(4 * PERIOD, timestamp, DELTA);
+
+    drained.clear();
+    for (int i = 5; i < 7; i++) m_buffer.add(i * PERIOD, new double[] { i, 2 * i });
+    timestamp = m_buffer.drainSince(timestamp, (t, values) -> drained.add(values[0]));
+    assertEquals(List.of(5.0, 6.0), drained);
+    assertEquals(6 * PERIOD, timestamp, DELTA);
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("Test if cleared samples are no longer returned")
+  public void clear() {
+    addSamples(5);
+    m_buffer.clear();
+
+    assertTrue(Double.isNaN(m_buffer.getLatest(m_values)));
+    assertFalse(m_buffer.getAt(4 * PERIOD, m_values));
+    assertEquals(Double.NEGATIVE_INFINITY, m_buffer.drainSince(Double.NEGATIVE_INFINITY, (t, values) -> {}), DELTA);
+
+    m_buffer.add(10 * PERIOD, new double[] { 10.0, 20.0 });
+    assertEquals(10 * PERIOD, m_buffer.getLatest(m_values), DELTA);
+    assertEquals(10.0, m_values[0], DELTA);
+  }
+}